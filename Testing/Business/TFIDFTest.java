@@ -2,6 +2,9 @@ package Business;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.util.HashMap;
+import java.util.Map;
+
 import dal.TFIDFCalculator;
 
 public class TFIDFTest {
@@ -140,4 +143,27 @@ public class TFIDFTest {
         assertFalse(Double.isNaN(result), "Multiple spaces should be handled");
         assertTrue(Double.isFinite(result), "Repeated spaces should not affect TF-IDF calculation");
     }
-}
\ No newline at end of file
+
+    // -------------------- Positive Test --------------------
+    @Test
+    void testCalculateTfIdf_StoredDocumentFrequencies() {
+        TFIDFCalculator corpus = new TFIDFCalculator();
+        corpus.addDocumentToCorpus("كتاب جديد في المكتبة");
+        corpus.addDocumentToCorpus("قرأ الطالب كتاب التاريخ");
+        corpus.addDocumentToCorpus("المكتبة مغلقة");
+        Map<String, Integer> frequencies = new HashMap<>();
+        frequencies.put("كتاب", 2);
+        frequencies.put("جديد", 1);
+        frequencies.put("في", 1);
+        frequencies.put("المكتبة", 2);
+        frequencies.put("قرأ", 1);
+        frequencies.put("الطالب", 1);
+        frequencies.put("التاريخ", 1);
+        frequencies.put("مغلقة", 1);
+        TFIDFCalculator stored = new TFIDFCalculator(3, frequencies);
+
+        String document = "كتاب المكتبة كتاب قديم";
+        assertEquals(corpus.calculateDocumentTfIdf(document), stored.calculateDocumentTfIdf(document), 1e-12,
+                "Stored document frequencies should score like the same corpus added document by document");
+    }
+}
@@ -0,0 +1,64 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import dal.ArabicNormalizer;
+
+class ArabicNormalizerTest {
+
+    @Test
+    @DisplayName("Default mode matches the three-pass preprocessing on random text")
+    void testDefaultMatchesLegacy() {
+        // Arrange
+        char[] alphabet = { 'ك', 'ت', 'أ', 'ة', 'ى', 'َ', 'ّ', 'ـ', '،', '٣', 'a', 'Z', 'İ', '1', ' ', '\t', '\n', '\r',
+                ' ', 'ﻻ', '\uD83B', '\uDE00', '\uD83D', '\uDE00' };
+        Random random = new Random(7);
+        ArabicNormalizer normalizer = new ArabicNormalizer();
+
+        for (int round = 0; round < 2000; round++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(60);
+            for (int i = 0; i < length; i++) {
+                text.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+
+            // Act
+            String normalized = normalizer.normalize(text);
+
+            // Assert
+            assertEquals(NormalizerBenchmark.legacyPreprocess(text.toString()), normalized,
+                    "Output differs for \"" + text + "\"");
+        }
+    }
+
+    @Test
+    @DisplayName("Harakat, tatweel and non-Arabic characters are removed")
+    void testRemovesNonLetters() {
+        // Arrange
+        ArabicNormalizer normalizer = new ArabicNormalizer();
+
+        // Act
+        String normalized = normalizer.normalize("الكِتـــابُ، abc 123\tجديد");
+
+        // Assert
+        assertEquals("الكتاب  \tجديد", normalized);
+    }
+
+    @Test
+    @DisplayName("Letter folding is applied only when enabled")
+    void testFolding() {
+        // Arrange
+        ArabicNormalizer folding = new ArabicNormalizer(true, true, true);
+        ArabicNormalizer alefOnly = new ArabicNormalizer(true, false, false);
+
+        // Act and Assert
+        assertEquals("احمد الي مدرسه اخري", folding.normalize("أحمد إلى مدرسة أخرى"));
+        assertEquals("احمد الى مدرسة اخرى", alefOnly.normalize("أحمد إلى مدرسة أخرى"));
+        assertEquals('ا', folding.map('آ'));
+        assertEquals(-1, folding.map('َ'));
+    }
+}
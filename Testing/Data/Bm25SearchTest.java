@@ -0,0 +1,60 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import dal.Bm25Search;
+
+class Bm25SearchTest {
+
+    @Test
+    @DisplayName("Rarer terms get a larger idf that stays positive for common terms")
+    void testInverseDocumentFrequency() {
+        // Arrange
+        Bm25Search bm25 = new Bm25Search(100, 50, 1.2, 0.75);
+
+        // Act
+        double rare = bm25.inverseDocumentFrequency(1);
+        double common = bm25.inverseDocumentFrequency(90);
+        double everywhere = bm25.inverseDocumentFrequency(100);
+
+        // Assert
+        assertEquals(Math.log(1 + 99.5 / 1.5), rare, 1e-12);
+        assertTrue(rare > common);
+        assertTrue(everywhere > 0);
+    }
+
+    @Test
+    @DisplayName("Repeated matches saturate towards idf * (k1 + 1)")
+    void testTermFrequencySaturation() {
+        // Arrange
+        Bm25Search bm25 = new Bm25Search(100, 50, 1.2, 0.75);
+        double idf = bm25.inverseDocumentFrequency(10);
+
+        // Act
+        double once = bm25.score(1, 10, 50);
+        double twice = bm25.score(2, 10, 50);
+        double often = bm25.score(1000, 10, 50);
+
+        // Assert
+        assertEquals(idf * 2.2 / (1 + 1.2), once, 1e-12);
+        assertTrue(twice > once);
+        assertTrue(twice - once > often - bm25.score(999, 10, 50));
+        assertTrue(often < idf * 2.2);
+        assertEquals(0.0, bm25.score(0, 10, 50));
+    }
+
+    @Test
+    @DisplayName("Longer files score lower for the same count unless b is 0")
+    void testLengthNormalization() {
+        // Arrange
+        Bm25Search normalized = new Bm25Search(100, 50, 1.2, 0.75);
+        Bm25Search unnormalized = new Bm25Search(100, 50, 1.2, 0);
+
+        // Act & Assert
+        assertTrue(normalized.score(3, 10, 25) > normalized.score(3, 10, 50));
+        assertTrue(normalized.score(3, 10, 50) > normalized.score(3, 10, 200));
+        assertEquals(unnormalized.score(3, 10, 25), unnormalized.score(3, 10, 200), 1e-12);
+    }
+}
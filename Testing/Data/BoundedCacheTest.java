@@ -0,0 +1,62 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+import dal.BoundedCache;
+
+class BoundedCacheTest {
+
+    @Test
+    @DisplayName("Cached value is returned and counted as a hit")
+    void testHitAfterPut() {
+        // Arrange
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 1);
+        cache.put("كتاب", "كتب");
+
+        // Act
+        String value = cache.get("كتاب");
+
+        // Assert
+        assertEquals("كتب", value, "Cached value should be returned");
+        assertEquals(1, cache.getHits(), "Lookup should count as a hit");
+        assertEquals(0, cache.getMisses(), "No miss should be recorded");
+    }
+
+    @Test
+    @DisplayName("Loader runs only on a miss")
+    void testLoaderRunsOnce() {
+        // Arrange
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10, 2);
+        int[] loads = { 0 };
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            cache.get("word", key -> ++loads[0]);
+        }
+
+        // Assert
+        assertEquals(1, loads[0], "Loader should run once for a repeated key");
+        assertEquals(4, cache.getHits(), "Remaining lookups should be hits");
+        assertEquals(1, cache.getMisses(), "First lookup should be a miss");
+    }
+
+    @Test
+    @DisplayName("Least recently used entry is evicted when full")
+    void testLeastRecentlyUsedEviction() {
+        // Arrange
+        BoundedCache<String, String> cache = new BoundedCache<>(2, 1);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+
+        // Act
+        cache.put("c", "3");
+
+        // Assert
+        assertEquals(2, cache.size(), "Cache should stay within capacity");
+        assertEquals(1, cache.getEvictions(), "One entry should be evicted");
+        assertNull(cache.get("b"), "Least recently used entry should be gone");
+        assertNotNull(cache.get("a"), "Recently used entry should survive");
+    }
+}
@@ -0,0 +1,141 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import dal.CollocationIndex;
+import dal.PMICalculator;
+
+class CollocationIndexTest {
+
+    private CollocationIndex index(String... files) {
+        CollocationIndex index = new CollocationIndex();
+        for (String file : files) {
+            for (String word : file.split(" ")) {
+                index.addWord(word);
+            }
+            index.endFile();
+        }
+        return index;
+    }
+
+    @Test
+    @DisplayName("PMI over a single text matches PMICalculator")
+    void testMatchesPageCalculator() {
+        // Arrange
+        String text = "كتب الطالب الدرس ثم كتب الطالب الواجب";
+        CollocationIndex index = index(text);
+        PMICalculator calculator = new PMICalculator(text);
+
+        // Act
+        double pmi = index.pmi("كتب", "الطالب");
+
+        // Assert
+        assertEquals(calculator.calculatePMI("كتب", "الطالب"), pmi, 1e-12);
+        assertEquals(2, index.getCount("كتب", "الطالب"));
+        assertEquals(Double.NEGATIVE_INFINITY, index.pmi("الدرس", "الواجب"));
+    }
+
+    @Test
+    @DisplayName("Bigrams do not span files")
+    void testFileBoundaries() {
+        // Arrange
+        CollocationIndex index = index("قلم كتاب", "باب دار");
+
+        // Act & Assert
+        assertEquals(0, index.getCount("كتاب", "باب"));
+        assertEquals(1, index.getCount("باب", "دار"));
+        assertEquals(4, index.getWordCount());
+    }
+
+    @Test
+    @DisplayName("Merging a file in and out again restores the counts")
+    void testMergeAndSubtract() {
+        // Arrange
+        CollocationIndex corpus = index("قلم كتاب باب", "كتاب باب دار");
+        CollocationIndex file = index("باب دار نور باب دار");
+        double before = corpus.pmi("باب", "دار");
+
+        // Act
+        corpus.merge(file, 1);
+        int added = corpus.getCount("باب", "دار");
+        corpus.merge(file, -1);
+
+        // Assert
+        assertEquals(3, added);
+        assertEquals(1, corpus.getCount("باب", "دار"));
+        assertEquals(before, corpus.pmi("باب", "دار"), 1e-12);
+        assertEquals(6, corpus.getWordCount());
+    }
+
+    @Test
+    @DisplayName("Taking most of the corpus away asks for the counts to be rebuilt")
+    void testRebuildAfterRemovals() {
+        // Arrange
+        CollocationIndex corpus = index("قلم كتاب باب");
+        CollocationIndex removed = index("شمس قمر بحر نهر جبل");
+
+        // Act
+        corpus.merge(removed, 1);
+        boolean beforeRemoval = corpus.shouldRebuild();
+        corpus.merge(removed, -1);
+
+        // Assert
+        assertFalse(beforeRemoval);
+        assertTrue(corpus.shouldRebuild());
+        assertEquals(1, corpus.getCount("قلم", "كتاب"));
+    }
+
+    @Test
+    @DisplayName("Top collocations are ranked by PMI among pairs seen often enough")
+    void testTopCollocations() {
+        // Arrange
+        CollocationIndex index = index("شمس قمر قلم كتاب قلم كتاب قلم باب", "شمس قمر بحر نهر");
+
+        // Act
+        Map<String, Double> top = index.topCollocations(2, 2);
+        Map<String, Double> all = index.topCollocations(10, 1);
+
+        // Assert
+        assertEquals(2, top.size());
+        assertEquals("شمس قمر", top.keySet().iterator().next());
+        assertTrue(top.containsKey("قلم كتاب"));
+        assertFalse(top.containsKey("بحر نهر"), "Pairs seen once are below the minimum count");
+        assertTrue(all.containsKey("بحر نهر"));
+        Double previous = null;
+        for (double score : all.values()) {
+            assertTrue(previous == null || score <= previous);
+            previous = score;
+        }
+    }
+
+    @Test
+    @DisplayName("Sketch counting agrees with exact counting when the sketch has room")
+    void testApproximateCounting() {
+        // Arrange
+        String[] files = { "شمس قمر قلم كتاب قلم كتاب قلم باب", "شمس قمر بحر نهر", "قلم كتاب باب دار" };
+        CollocationIndex exact = index(files);
+        CollocationIndex approximate = CollocationIndex.approximate(1 << 16, 4, 100);
+        CollocationIndex file = index("باب دار نور");
+
+        // Act
+        for (String text : files) {
+            for (String word : text.split(" ")) {
+                approximate.addWord(word);
+            }
+            approximate.endFile();
+        }
+        approximate.merge(file, 1);
+        approximate.merge(file, -1);
+
+        // Assert
+        assertTrue(approximate.isApproximate());
+        assertEquals(exact.getCount("قلم", "كتاب"), approximate.getCount("قلم", "كتاب"));
+        assertEquals(exact.pmi("باب", "دار"), approximate.pmi("باب", "دار"), 1e-12);
+        assertEquals(exact.topCollocations(3, 2), approximate.topCollocations(3, 2));
+        assertThrows(IllegalArgumentException.class, () -> exact.merge(approximate, 1));
+    }
+}
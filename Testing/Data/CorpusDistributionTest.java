@@ -0,0 +1,77 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import dal.CorpusDistribution;
+import dal.PKLCalculator;
+import dal.TextCache;
+import dal.Tokenizer;
+
+class CorpusDistributionTest {
+
+    private CorpusDistribution corpus() {
+        CorpusDistribution distribution = new CorpusDistribution();
+        distribution.add("كتب", 30);
+        distribution.add("الطالب", 50);
+        distribution.add("الدرس", 20);
+        return distribution;
+    }
+
+    @Test
+    @DisplayName("Probabilities come from the corpus counts and follow added and removed counts")
+    void testProbabilities() {
+        // Arrange
+        CorpusDistribution distribution = corpus();
+
+        // Act
+        distribution.add("الدرس", -10);
+
+        // Assert
+        assertEquals(90, distribution.getTotalWords());
+        assertEquals(50 / 90.0, distribution.probability("الطالب"), 1e-12);
+        assertEquals(10 / 90.0, distribution.probability("الدرس"), 1e-12);
+        assertEquals(0.0, distribution.probability("الواجب"));
+    }
+
+    @Test
+    @DisplayName("PKL against the corpus uses corpus probabilities instead of the page's counts")
+    void testBackgroundPkl() {
+        // Arrange
+        Tokenizer tokens = TextCache.get("كتب الطالب الدرس").getTokens();
+        CorpusDistribution distribution = corpus();
+        double pV = 0.5, pUl = 0.3, pUr = 0.2;
+
+        // Act
+        Map<String, Double> scores = new PKLCalculator(tokens, distribution).calculatePKLForAllWords();
+        Map<String, Double> pageScores = new PKLCalculator(tokens).calculatePKLForAllWords();
+
+        // Assert
+        Iterator<Map.Entry<String, Double>> entries = scores.entrySet().iterator();
+        Map.Entry<String, Double> entry = entries.next();
+        assertEquals("الطالب (كتب, الدرس)", entry.getKey());
+        assertEquals(pV * Math.log(pV / (pUl * pUr)), entry.getValue(), 1e-12);
+        assertFalse(entries.hasNext());
+        assertEquals(pageScores.keySet(), scores.keySet());
+        assertNotEquals(pageScores.get("الطالب (كتب, الدرس)"), entry.getValue());
+        assertEquals(entry.getValue(), new PKLCalculator(tokens, distribution).calculatePKL("الطالب", "كتب", "الدرس"),
+                1e-12);
+    }
+
+    @Test
+    @DisplayName("Words the corpus does not contain score 0")
+    void testUnknownWords() {
+        // Arrange
+        Tokenizer tokens = TextCache.get("كتب الواجب الدرس").getTokens();
+
+        // Act
+        Map<String, Double> scores = new PKLCalculator(tokens, corpus()).calculatePKLForAllWords();
+
+        // Assert
+        assertEquals(0.0, scores.get("الواجب (كتب, الدرس)"));
+    }
+}
@@ -0,0 +1,81 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import dal.CountMinSketch;
+
+class CountMinSketchTest {
+
+    @Test
+    @DisplayName("Estimates never fall below the true count and rarely exceed the error bound")
+    void testErrorBound() {
+        // Arrange
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        Map<Long, Integer> exact = new HashMap<>();
+        Random random = new Random(11);
+
+        // Act
+        for (int i = 0; i < 100000; i++) {
+            long key = (long) (Math.abs(random.nextGaussian()) * 2000) << 32 | random.nextInt(3);
+            sketch.add(key, 1);
+            exact.merge(key, 1, Integer::sum);
+        }
+
+        // Assert
+        int overBound = 0;
+        for (Map.Entry<Long, Integer> entry : exact.entrySet()) {
+            int estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue());
+            if (estimate - entry.getValue() > sketch.getErrorBound()) {
+                overBound++;
+            }
+        }
+        assertTrue(overBound <= exact.size() * sketch.getFailureProbability() * 2 + 1);
+        assertEquals(100000, sketch.getTotal());
+    }
+
+    @Test
+    @DisplayName("Taking counts away again restores the estimates")
+    void testSubtract() {
+        // Arrange
+        CountMinSketch sketch = new CountMinSketch(64, 3);
+        sketch.add(7L, 5);
+        int before = sketch.estimate(7L);
+
+        // Act
+        for (long key = 100; key < 300; key++) {
+            sketch.add(key, 2);
+        }
+        for (long key = 100; key < 300; key++) {
+            sketch.add(key, -2);
+        }
+
+        // Assert
+        assertEquals(before, sketch.estimate(7L));
+        assertEquals(5, sketch.getTotal());
+    }
+
+    @Test
+    @DisplayName("A memory budget sets the width")
+    void testBudget() {
+        // Act
+        CountMinSketch sketch = CountMinSketch.forBudget(1 << 20, 4);
+
+        // Assert
+        assertEquals(1 << 16, sketch.getWidth());
+        assertEquals(1 << 20, sketch.getMemoryBytes());
+    }
+
+    @Test
+    @DisplayName("A shape with more counters than an array holds is rejected")
+    void testTooManyCounters() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(1 << 30, 4));
+    }
+}
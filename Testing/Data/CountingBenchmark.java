@@ -0,0 +1,117 @@
+package Data;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import dal.CollocationIndex;
+
+// Compares exact corpus-wide pair counts with sketch counting of several memory budgets on a synthetic
+// corpus of Zipf-distributed words: heap taken, counting time, how far the estimates of the 1000 most
+// frequent pairs are off, and how many of the exact top collocations the sketch lists.
+// Run with: java -Xmx4g Data.CountingBenchmark [million words] [megabytes...]
+public class CountingBenchmark {
+
+    private static String[] vocabulary(int size) {
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder word = new StringBuilder();
+            int n = i;
+            do {
+                word.append((char) ('ب' + n % 20));
+                n /= 20;
+            } while (n > 0);
+            words[i] = word.append('ر').toString();
+        }
+        return words;
+    }
+
+    // Word ranks with probability proportional to 1 / rank, by inverting the cumulative weights
+    private static int[] corpus(int words, int vocabularySize, long seed) {
+        double[] cumulative = new double[vocabularySize];
+        double sum = 0;
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulative[rank] = sum;
+        }
+        Random random = new Random(seed);
+        int[] corpus = new int[words];
+        for (int i = 0; i < words; i++) {
+            int found = java.util.Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            corpus[i] = found >= 0 ? found : Math.min(vocabularySize - 1, -found - 1);
+        }
+        return corpus;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static CollocationIndex count(CollocationIndex index, String[] words, int[] corpus) {
+        for (int i = 0; i < corpus.length; i++) {
+            index.addWord(words[corpus[i]]);
+            // Files of 5000 words
+            if (i % 5000 == 4999) {
+                index.endFile();
+            }
+        }
+        index.endFile();
+        return index;
+    }
+
+    private static void report(String name, CollocationIndex index, CollocationIndex exact, String[] words,
+            Map<String, Double> exactTop, long heap, long nanos) {
+        // Relative error of the most frequent pairs, taken from the exact top list by count
+        Map<String, Double> frequent = exact.topCollocations(1000, 50);
+        double errorSum = 0;
+        int pairs = 0;
+        for (String pair : frequent.keySet()) {
+            String[] parts = pair.split(" ");
+            int exactCount = exact.getCount(parts[0], parts[1]);
+            errorSum += (double) (index.getCount(parts[0], parts[1]) - exactCount) / exactCount;
+            pairs++;
+        }
+        Set<String> listed = index.topCollocations(exactTop.size(), 50).keySet();
+        int overlap = 0;
+        for (String pair : exactTop.keySet()) {
+            if (listed.contains(pair)) {
+                overlap++;
+            }
+        }
+        System.out.printf("%s\t%.1f\t%.0f\t%.2f%%\t%.0f\t%d/%d%n", name, heap / 1048576.0, nanos / 1e6,
+                pairs == 0 ? 0 : 100 * errorSum / pairs, index.getBigramErrorBound(), overlap, exactTop.size());
+    }
+
+    public static void main(String[] args) {
+        int millions = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        String[] budgets = args.length > 1 ? java.util.Arrays.copyOfRange(args, 1, args.length)
+                : new String[] { "4", "16", "64" };
+        String[] words = vocabulary(200000);
+        int[] corpus = corpus(millions * 1000000, words.length, 17);
+
+        System.out.println("counting\theap MB\tms\tmean error of frequent pairs\terror bound\ttop 100 found");
+        long base = usedHeap();
+        long start = System.nanoTime();
+        CollocationIndex exact = count(new CollocationIndex(), words, corpus);
+        long exactNanos = System.nanoTime() - start;
+        long exactHeap = usedHeap() - base;
+        Map<String, Double> exactTop = exact.topCollocations(100, 50);
+        report("exact", exact, exact, words, exactTop, exactHeap, exactNanos);
+
+        for (String budget : budgets) {
+            long megabytes = Long.parseLong(budget);
+            base = usedHeap();
+            start = System.nanoTime();
+            CollocationIndex approximate = count(CollocationIndex.approximate(megabytes * 1048576, 4, 100000), words,
+                    corpus);
+            long nanos = System.nanoTime() - start;
+            long heap = usedHeap() - base;
+            report("sketch " + budget + " MB", approximate, exact, words, exactTop, heap, nanos);
+            approximate = null;
+        }
+    }
+}
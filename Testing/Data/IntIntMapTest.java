@@ -0,0 +1,56 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import dal.IntIntMap;
+
+class IntIntMapTest {
+
+    @Test
+    @DisplayName("Increments agree with a HashMap across growth")
+    void testMatchesHashMap() {
+        // Arrange
+        IntIntMap map = new IntIntMap(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(3);
+
+        // Act
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(5000) * 64;
+            map.increment(key, 1);
+            expected.merge(key, 1, Integer::sum);
+        }
+
+        // Assert
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+        }
+        assertEquals(0, map.get(1), "An absent key should read as 0");
+    }
+
+    @Test
+    @DisplayName("Entries are read back by position in insertion order")
+    void testPositions() {
+        // Arrange
+        IntIntMap map = new IntIntMap();
+
+        // Act
+        map.put(9, 90);
+        map.put(2, 20);
+        map.put(9, 99);
+
+        // Assert
+        assertEquals(2, map.size());
+        assertEquals(9, map.keyAt(0));
+        assertEquals(99, map.valueAt(0));
+        assertEquals(2, map.keyAt(1));
+        assertThrows(IllegalArgumentException.class, () -> map.put(-1, 1));
+    }
+}
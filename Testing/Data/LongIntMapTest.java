@@ -0,0 +1,37 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import dal.LongIntMap;
+
+class LongIntMapTest {
+
+    @Test
+    @DisplayName("Increments of packed pair keys agree with a HashMap across growth")
+    void testMatchesHashMap() {
+        // Arrange
+        LongIntMap map = new LongIntMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(5);
+
+        // Act
+        for (int i = 0; i < 20000; i++) {
+            long key = ((long) random.nextInt(100) << 32) | random.nextInt(100);
+            map.increment(key, 1);
+            expected.merge(key, 1, Integer::sum);
+        }
+
+        // Assert
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+        }
+        assertEquals(0, map.get(-1L), "An absent key should read as 0");
+    }
+}
@@ -0,0 +1,109 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import dal.MinHash;
+
+class MinHashTest {
+
+    private String randomText(Random random, int words) {
+        String[] vocabulary = { "كتاب", "قلم", "مدرسة", "بيت", "شمس", "قمر", "بحر", "جبل", "نهر", "شجرة", "طالب",
+                "معلم", "مدينة", "سماء", "أرض", "علم" };
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(vocabulary[random.nextInt(vocabulary.length)]).append(i % 7 == 6 ? "\n" : " ");
+        }
+        return text.toString();
+    }
+
+    private Set<String> shingles(String text) {
+        String[] words = text.trim().split("\\s+");
+        Set<String> shingles = new HashSet<>();
+        for (int i = 0; i + 3 <= words.length; i++) {
+            shingles.add(words[i] + " " + words[i + 1] + " " + words[i + 2]);
+        }
+        return shingles;
+    }
+
+    @Test
+    @DisplayName("Signatures estimate the Jaccard similarity of word shingles")
+    void testEstimatesJaccard() {
+        // Arrange
+        Random random = new Random(3);
+        MinHash minHash = new MinHash(256, 3);
+        String original = randomText(random, 2000);
+        String[] words = original.split(" ");
+        StringBuilder edited = new StringBuilder();
+        for (int i = 0; i < words.length; i++) {
+            edited.append(i % 25 == 0 ? "تعديل" : words[i]).append(' ');
+        }
+        Set<String> a = shingles(original);
+        Set<String> b = shingles(edited.toString());
+        Set<String> union = new HashSet<>(a);
+        union.addAll(b);
+        a.retainAll(b);
+        double jaccard = (double) a.size() / union.size();
+
+        // Act
+        double estimate = MinHash.similarity(minHash.signature(original), minHash.signature(edited));
+
+        // Assert
+        assertEquals(jaccard, estimate, 0.1);
+        assertTrue(MinHash.similarity(minHash.signature(original), minHash.signature(randomText(random, 2000))) < 0.3,
+                "Unrelated texts should not look alike");
+    }
+
+    @Test
+    @DisplayName("A text signed in pieces matches the text signed whole, even when a word is split")
+    void testStreamingMatchesWhole() {
+        // Arrange
+        MinHash minHash = new MinHash(64, 3);
+        String text = randomText(new Random(5), 300);
+        MinHash.Sketch sketch = minHash.newSketch();
+
+        // Act
+        for (int start = 0; start < text.length(); start += 37) {
+            sketch.accept(text.substring(start, Math.min(text.length(), start + 37)));
+        }
+
+        // Assert
+        assertArrayEquals(minHash.signature(text), sketch.finish());
+    }
+
+    @Test
+    @DisplayName("Harakat and punctuation do not change the signature")
+    void testSignsPreprocessedWords() {
+        // Arrange
+        MinHash minHash = new MinHash(64, 3);
+
+        // Act
+        int[] plain = minHash.signature("كتب الطالب الدرس في المدرسة");
+        int[] marked = minHash.signature("كَتَبَ الطالبُ، الدرسَ في المدرسةِ.");
+
+        // Assert
+        assertArrayEquals(plain, marked);
+        assertEquals(1.0, MinHash.similarity(plain, marked));
+    }
+
+    @Test
+    @DisplayName("Short and empty texts, and signatures survive encoding")
+    void testShortTextsAndEncoding() {
+        // Arrange
+        MinHash minHash = new MinHash(32, 3);
+
+        // Act
+        int[] empty = minHash.signature("  \n ");
+        int[] shortText = minHash.signature("كتاب قلم");
+
+        // Assert
+        assertEquals(0.0, MinHash.similarity(empty, empty), "Texts without words resemble nothing");
+        assertEquals(1.0, MinHash.similarity(shortText, minHash.signature("كتاب  قلم\n")));
+        assertArrayEquals(shortText, MinHash.decode(MinHash.encode(shortText)));
+    }
+}
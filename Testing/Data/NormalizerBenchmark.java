@@ -0,0 +1,51 @@
+package Data;
+
+import dal.ArabicNormalizer;
+import dal.PreProcessText;
+
+// Times the three-pass PreProcessText pipeline (removeHarakat, removeNonArabicCharacters, toLowerCase)
+// against ArabicNormalizer on diacritized text.
+// Run with: java Data.NormalizerBenchmark [megabytes...]
+public class NormalizerBenchmark {
+
+    static String legacyPreprocess(String text) {
+        text = PreProcessText.removeHarakat(text);
+        text = PreProcessText.removeNonArabicCharacters(text);
+        return text.toLowerCase();
+    }
+
+    private static String sampleText(int characters) {
+        String sentence = "ذَهَبَ الطَّالِبُ إِلَى المَدْرَسَةِ صَباحًا، وَقَرَأَ كِتابًا جَدِيدًا عَنْ تارِيخِ العُلُومِ (1999).\n";
+        StringBuilder builder = new StringBuilder(characters);
+        while (builder.length() < characters) {
+            builder.append(sentence);
+        }
+        builder.setLength(characters);
+        return builder.toString();
+    }
+
+    private static long time(Runnable task) {
+        // One warm-up run so both sides are measured after JIT compilation
+        task.run();
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) {
+        String[] sizes = args.length > 0 ? args : new String[] { "1", "5", "20" };
+        ArabicNormalizer normalizer = new ArabicNormalizer();
+        System.out.println("MB\tlegacy ms\tnormalizer ms\tlegacy MB/s\tnormalizer MB/s");
+        for (String size : sizes) {
+            String content = sampleText(Integer.parseInt(size) * 1024 * 1024);
+            char[] buffer = new char[content.length()];
+
+            long legacy = time(() -> legacyPreprocess(content));
+            long normalized = time(() -> normalizer.normalize(content, buffer));
+
+            double megabytes = Double.parseDouble(size);
+            System.out.printf("%s\t%.1f\t%.1f\t%.0f\t%.0f%n", size, legacy / 1e6, normalized / 1e6,
+                    megabytes / (legacy / 1e9), megabytes / (normalized / 1e9));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dal.PageView;
+import dal.PaginationDAO;
+import dto.Pages;
+
+// Times the previous character-by-character paginator against PaginationDAO.paginateViews.
+// Run with: java Data.PaginationBenchmark [megabytes...]
+public class PaginationBenchmark {
+
+    // The implementation PaginationDAO.paginate had before it was rewritten
+    static List<Pages> legacyPaginate(String fileContent) {
+        int pageSize = 100;
+        int pageNumber = 1;
+        String pageContent = "";
+        List<Pages> pages = new ArrayList<Pages>();
+        if (fileContent == null || fileContent.isEmpty()) {
+            pages.add(new Pages(0, 0, pageNumber, pageContent));
+            return pages;
+        }
+        for (int i = 0; i < fileContent.length(); i++) {
+            pageContent += fileContent.charAt(i);
+            if (pageContent.length() == pageSize || i == fileContent.length() - 1) {
+                pages.add(new Pages(0, 0, pageNumber, pageContent));
+                pageNumber++;
+                pageContent = "";
+            }
+        }
+        return pages;
+    }
+
+    private static String sampleText(int characters) {
+        String sentence = "ذهب الطالب إلى المدرسة صباحا وقرأ كتابا جديدا عن تاريخ العلوم\n";
+        StringBuilder builder = new StringBuilder(characters);
+        while (builder.length() < characters) {
+            builder.append(sentence);
+        }
+        builder.setLength(characters);
+        return builder.toString();
+    }
+
+    private static long time(Runnable task) {
+        // One warm-up run so both sides are measured after JIT compilation
+        task.run();
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) {
+        String[] sizes = args.length > 0 ? args : new String[] { "1", "5", "20" };
+        System.out.println("MB\tlegacy ms\tviews ms\tviews+materialize ms");
+        for (String size : sizes) {
+            String content = sampleText(Integer.parseInt(size) * 1024 * 1024);
+
+            long legacy = time(() -> legacyPaginate(content));
+            long views = time(() -> PaginationDAO.paginateViews(content, 100, false));
+            long materialized = time(() -> {
+                for (PageView view : PaginationDAO.paginateViews(content, 100, false)) {
+                    view.toPages();
+                }
+            });
+
+            System.out.printf("%s\t%.1f\t%.1f\t%.1f%n", size, legacy / 1e6, views / 1e6, materialized / 1e6);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import dal.PageStream;
+import dal.PageView;
+import dal.PaginationDAO;
+import dto.Pages;
+
+class PaginationTest {
+
+    private String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    @DisplayName("Text is cut into fixed-size pages with a shorter last page")
+    void testFixedSizePages() {
+        // Arrange
+        String content = repeat("ب", 250);
+
+        // Act
+        List<PageView> pages = PaginationDAO.paginateViews(content, 100, false);
+
+        // Assert
+        assertEquals(3, pages.size(), "250 characters should fill three pages");
+        assertEquals(100, pages.get(0).length());
+        assertEquals(50, pages.get(2).length());
+        assertEquals(3, pages.get(2).getPageNumber(), "Pages should be numbered from 1");
+        assertEquals(200, pages.get(2).getOffset());
+    }
+
+    @Test
+    @DisplayName("Empty content yields one empty page")
+    void testEmptyContent() {
+        // Act
+        List<Pages> pages = PaginationDAO.paginate("");
+
+        // Assert
+        assertEquals(1, pages.size());
+        assertEquals("", pages.get(0).getPageContent());
+        assertEquals(1, pages.get(0).getPageNumber());
+    }
+
+    @Test
+    @DisplayName("Word alignment moves a split word to the next page")
+    void testAlignToWords() {
+        // Arrange
+        String content = "كتب الطالب الدرس";
+
+        // Act
+        List<PageView> pages = PaginationDAO.paginateViews(content, 6, true);
+
+        // Assert
+        assertEquals("كتب ", pages.get(0).toString(), "The cut should fall after the whitespace");
+        assertEquals("الطالب", pages.get(1).toString().trim());
+        StringBuilder joined = new StringBuilder();
+        for (PageView page : pages) {
+            joined.append(page);
+        }
+        assertEquals(content, joined.toString(), "Pages should cover the text exactly once");
+    }
+
+    @Test
+    @DisplayName("A word longer than a page is cut at the page size")
+    void testLongWordIsCut() {
+        // Act
+        List<PageView> pages = PaginationDAO.paginateViews(repeat("م", 15), 10, true);
+
+        // Assert
+        assertEquals(10, pages.get(0).length());
+        assertEquals(5, pages.get(1).length());
+    }
+
+    @Test
+    @DisplayName("Streamed pages match the in-memory paginator")
+    void testStreamMatchesViews() throws Exception {
+        // Arrange
+        String content = repeat("في البيت كتاب جديد\n", 40);
+        PageStream stream = new PageStream(new StringReader(content), false, 17, true);
+
+        // Act
+        List<String> streamed = new ArrayList<>();
+        Pages page;
+        while ((page = stream.nextPage()) != null) {
+            streamed.add(page.getPageContent());
+        }
+        List<String> expected = new ArrayList<>();
+        for (PageView view : PaginationDAO.paginateViews(content, 17, true)) {
+            expected.add(view.toString());
+        }
+
+        // Assert
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    @DisplayName("In-memory text pages, hashes and counts like the same text streamed")
+    void testInMemoryMatchesStream() throws Exception {
+        // Arrange
+        String content = repeat("ذهب الولد إلى المدرسة\n", 30);
+        PageStream streamed = new PageStream(new StringReader(content), false, 23, true);
+        PageStream inMemory = new PageStream(content, 23, true);
+
+        // Act
+        List<String> streamedPages = new ArrayList<>();
+        List<String> inMemoryPages = new ArrayList<>();
+        Pages page;
+        while ((page = streamed.nextPage()) != null) {
+            streamedPages.add(page.getPageContent());
+        }
+        while ((page = inMemory.nextPage()) != null) {
+            inMemoryPages.add(page.getPageContent());
+        }
+
+        // Assert
+        assertEquals(streamedPages, inMemoryPages);
+        assertEquals(streamed.getHash(), inMemory.getHash(), "Both should hash the same text");
+        assertEquals(streamed.getTermCounts(), inMemory.getTermCounts());
+    }
+}
@@ -0,0 +1,137 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import dal.SimilarityIndex;
+
+class SimilarityIndexTest {
+
+    private double[] idf(int terms, Random random) {
+        double[] idf = new double[terms];
+        for (int i = 0; i < terms; i++) {
+            idf[i] = random.nextDouble() * 3 - 0.2;
+        }
+        return idf;
+    }
+
+    private double weight(double[] idf, int termId, int count) {
+        return count * Math.max(0, idf[termId]);
+    }
+
+    private double cosine(double[] idf, int[][] a, int[][] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a[0].length; i++) {
+            double wa = weight(idf, a[0][i], a[1][i]);
+            normA += wa * wa;
+            for (int j = 0; j < b[0].length; j++) {
+                if (a[0][i] == b[0][j]) {
+                    dot += wa * weight(idf, b[0][j], b[1][j]);
+                }
+            }
+        }
+        for (int j = 0; j < b[0].length; j++) {
+            double wb = weight(idf, b[0][j], b[1][j]);
+            normB += wb * wb;
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA) / Math.sqrt(normB);
+    }
+
+    // Distinct term ids in [0, terms) with counts, skewed toward low ids
+    private int[][] randomDocument(int terms, Random random) {
+        int length = 1 + random.nextInt(30);
+        List<Integer> ids = new ArrayList<>();
+        while (ids.size() < length) {
+            int id = (int) (terms * Math.pow(random.nextDouble(), 2));
+            if (!ids.contains(id)) {
+                ids.add(id);
+            }
+        }
+        int[][] document = new int[2][length];
+        for (int i = 0; i < length; i++) {
+            document[0][i] = ids.get(i);
+            document[1][i] = 1 + random.nextInt(5);
+        }
+        return document;
+    }
+
+    @Test
+    @DisplayName("Pruned top-k matches exhaustive cosine scoring")
+    void testMatchesBruteForce() {
+        // Arrange
+        Random random = new Random(7);
+        int terms = 200;
+        double[] idf = idf(terms, random);
+        SimilarityIndex index = new SimilarityIndex(idf);
+        int[][][] documents = new int[2000][][];
+        for (int fileId = 0; fileId < documents.length; fileId++) {
+            documents[fileId] = randomDocument(terms, random);
+            index.addDocument(fileId, documents[fileId][0], documents[fileId][1], documents[fileId][0].length);
+        }
+
+        for (int query = 0; query < 50; query++) {
+            int[][] document = documents[query];
+
+            // Act
+            Map<Integer, Double> results = index.search(document[0], document[1], document[0].length, 10, query);
+
+            // Assert
+            List<Double> expected = new ArrayList<>();
+            for (int fileId = 0; fileId < documents.length; fileId++) {
+                double similarity = cosine(idf, document, documents[fileId]);
+                if (fileId != query && similarity > 0) {
+                    expected.add(similarity);
+                }
+            }
+            expected.sort((a, b) -> Double.compare(b, a));
+            assertEquals(Math.min(10, expected.size()), results.size());
+            Iterator<Map.Entry<Integer, Double>> actual = results.entrySet().iterator();
+            for (int i = 0; i < results.size(); i++) {
+                Map.Entry<Integer, Double> entry = actual.next();
+                assertEquals(expected.get(i), entry.getValue(), 1e-5, "Rank " + i + " of query " + query);
+                assertEquals(cosine(idf, document, documents[entry.getKey()]), entry.getValue(), 1e-5);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The query file is left out and an identical file scores 1")
+    void testExcludesQueryFile() {
+        // Arrange
+        SimilarityIndex index = new SimilarityIndex(new double[] { 1.0, 2.0, 0.5 });
+        int[] termIds = { 0, 1 };
+        int[] counts = { 2, 1 };
+        index.addDocument(1, termIds, counts, 2);
+        index.addDocument(2, termIds, counts, 2);
+        index.addDocument(3, new int[] { 2 }, new int[] { 4 }, 1);
+
+        // Act
+        Map<Integer, Double> results = index.search(termIds, counts, 2, 5, 1);
+
+        // Assert
+        assertEquals(1, results.size(), "A file sharing no term should not be returned");
+        assertEquals(1.0, results.get(2), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Terms with no idf weight do not make files similar")
+    void testIgnoresUnweightedTerms() {
+        // Arrange
+        SimilarityIndex index = new SimilarityIndex(new double[] { -0.1, 1.0, 1.0 });
+        index.addDocument(1, new int[] { 0, 1 }, new int[] { 5, 1 }, 2);
+        index.addDocument(2, new int[] { 0, 2 }, new int[] { 5, 1 }, 2);
+
+        // Act
+        Map<Integer, Double> results = index.search(new int[] { 0, 1 }, new int[] { 5, 1 }, 2, 5, 1);
+
+        // Assert
+        assertTrue(results.isEmpty());
+    }
+}
@@ -0,0 +1,70 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import dal.SpaceSaving;
+
+class SpaceSavingTest {
+
+    @Test
+    @DisplayName("Every key above total / capacity is monitored with a bounded count")
+    void testHeavyHitters() {
+        // Arrange
+        SpaceSaving summary = new SpaceSaving(100);
+        Map<Long, Integer> exact = new HashMap<>();
+        Random random = new Random(13);
+        int total = 200000;
+
+        // Act
+        for (int i = 0; i < total; i++) {
+            long key = random.nextInt(10) < 3 ? random.nextInt(20) : 1000 + random.nextInt(100000);
+            summary.add(key, 1);
+            exact.merge(key, 1, Integer::sum);
+        }
+
+        // Assert
+        Map<Long, Integer> monitored = new HashMap<>();
+        for (int i = 0; i < summary.size(); i++) {
+            long key = summary.keyAt(i);
+            int trueCount = exact.getOrDefault(key, 0);
+            assertTrue(summary.countAt(i) >= trueCount);
+            assertTrue(summary.countAt(i) - summary.errorAt(i) <= trueCount);
+            monitored.put(key, summary.countAt(i));
+        }
+        for (Map.Entry<Long, Integer> entry : exact.entrySet()) {
+            if (entry.getValue() > total / summary.getCapacity()) {
+                assertTrue(monitored.containsKey(entry.getKey()), "Missed heavy hitter " + entry.getKey());
+            }
+        }
+        assertEquals(100, summary.size());
+    }
+
+    @Test
+    @DisplayName("Counts taken away stay non-negative")
+    void testSubtract() {
+        // Arrange
+        SpaceSaving summary = new SpaceSaving(4);
+        summary.add(1L, 5);
+        summary.add(2L, 3);
+
+        // Act
+        summary.add(1L, -2);
+        summary.add(2L, -10);
+        summary.add(9L, -1);
+
+        // Assert
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int i = 0; i < summary.size(); i++) {
+            counts.put(summary.keyAt(i), summary.countAt(i));
+        }
+        assertEquals(3, counts.get(1L).intValue());
+        assertEquals(0, counts.get(2L).intValue());
+        assertFalse(counts.containsKey(9L));
+    }
+}
@@ -0,0 +1,41 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import dal.TermVector;
+
+class TermVectorTest {
+
+    @Test
+    @DisplayName("A vector decodes to the entries it was encoded from")
+    void testRoundTrip() {
+        // Arrange
+        TermVector vector = new TermVector(new int[] { 7, 3, 12 }, new float[] { 0.5f, 0.25f, 0.125f });
+
+        // Act
+        TermVector decoded = TermVector.decode(vector.encode(), Integer.MAX_VALUE);
+
+        // Assert
+        assertEquals(3, decoded.size());
+        assertEquals(7, decoded.getTermId(0));
+        assertEquals(12, decoded.getTermId(2));
+        assertEquals(0.25f, decoded.getWeight(1));
+    }
+
+    @Test
+    @DisplayName("Decoding with a limit keeps only the leading entries")
+    void testDecodeLimit() {
+        // Arrange
+        byte[] encoded = new TermVector(new int[] { 1, 2, 3, 4 }, new float[] { 4f, 3f, 2f, 1f }).encode();
+
+        // Act
+        TermVector top = TermVector.decode(encoded, 2);
+
+        // Assert
+        assertEquals(2, top.size(), "Only the first two entries should be decoded");
+        assertEquals(2, top.getTermId(1));
+        assertEquals(32, encoded.length, "Each entry should take eight bytes");
+    }
+}
@@ -0,0 +1,48 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import dal.PreProcessText;
+import dal.PreprocessedText;
+import dal.TextCache;
+
+class TextCacheTest {
+
+    @Test
+    @DisplayName("Equal content is preprocessed once and shared")
+    void testEqualContentShared() {
+        // Arrange
+        String content = "ذَهَبَ الطالبُ إلى المدرسةِ، ثم ذهب الطالب";
+        String copy = new String(content.toCharArray());
+        long hitsBefore = TextCache.getCache().getHits();
+
+        // Act
+        PreprocessedText first = TextCache.get(content);
+        PreprocessedText second = TextCache.get(copy);
+
+        // Assert
+        assertSame(first, second, "Equal content should map to one cached entry");
+        assertEquals(hitsBefore + 1, TextCache.getCache().getHits(), "The second lookup should be a hit");
+        assertEquals(PreProcessText.preprocessText(content), first.getText());
+    }
+
+    @Test
+    @DisplayName("Cached tokens and distinct words match the preprocessed text")
+    void testTokensMatchText() {
+        // Arrange
+        String content = "قال قلم، قال كتاب";
+
+        // Act
+        PreprocessedText preprocessed = TextCache.get(content);
+
+        // Assert
+        assertEquals(4, preprocessed.getTokens().size());
+        assertEquals(3, preprocessed.getDistinctWords().size());
+        assertEquals("قلم", preprocessed.getDistinctWords().get(1));
+        assertThrows(UnsupportedOperationException.class, () -> preprocessed.getDistinctWords().add("x"));
+        assertTrue(preprocessed.getTokens().isFrozen());
+        assertThrows(IllegalStateException.class, () -> preprocessed.getTokens().tokenize("نص آخر"));
+    }
+}
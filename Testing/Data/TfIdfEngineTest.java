@@ -0,0 +1,125 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import dal.IntIntMap;
+import dal.PreProcessText;
+import dal.TfIdfEngine;
+
+class TfIdfEngineTest {
+
+    private static final String[] WORDS = { "كتاب", "قلم", "مدرسة", "طالب", "علم", "بيت", "شمس", "قمر", "بحر", "جبل" };
+
+    // Mean tf * idf computed directly from the documents, with words taken as the non-empty tokens
+    private double referenceScore(List<String> corpus, String document) {
+        Map<String, Integer> documentFrequencies = new HashMap<>();
+        for (String doc : corpus) {
+            Set<String> words = new HashSet<>();
+            for (String word : PreProcessText.preprocessText(doc).split("\\s+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+            for (String word : words) {
+                documentFrequencies.merge(word, 1, Integer::sum);
+            }
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        int total = 0;
+        for (String word : PreProcessText.preprocessText(document).split("\\s+")) {
+            if (!word.isEmpty()) {
+                counts.merge(word, 1, Integer::sum);
+                total++;
+            }
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+        double sum = 0;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            Integer df = documentFrequencies.get(entry.getKey());
+            double idf = df == null ? Math.log(corpus.size() + 1) : Math.log((double) corpus.size() / (1 + df));
+            sum += (double) entry.getValue() / total * idf;
+        }
+        return sum / total;
+    }
+
+    private String randomDocument(Random random, int words) {
+        StringBuilder document = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            document.append(random.nextInt(5) == 0 ? "  " : " ").append(WORDS[random.nextInt(WORDS.length)]);
+            if (random.nextInt(4) == 0) {
+                document.append('َ');
+            }
+        }
+        return document.toString();
+    }
+
+    @Test
+    @DisplayName("Scores match a direct computation over the same corpus")
+    void testMatchesReference() {
+        // Arrange
+        Random random = new Random(11);
+        TfIdfEngine engine = new TfIdfEngine();
+        List<String> corpus = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String document = randomDocument(random, 1 + random.nextInt(20));
+            corpus.add(document);
+            engine.addDocument(document);
+        }
+
+        for (int round = 0; round < 100; round++) {
+            String document = randomDocument(random, random.nextInt(30)) + (round % 3 == 0 ? " مجهول" : "");
+
+            // Act
+            double score = engine.score(document);
+
+            // Assert
+            assertEquals(referenceScore(corpus, document), score, 1e-12);
+        }
+    }
+
+    @Test
+    @DisplayName("A document without words scores 0")
+    void testEmptyDocument() {
+        // Arrange
+        TfIdfEngine engine = new TfIdfEngine();
+        engine.addDocument("كتاب قلم");
+
+        // Act and Assert
+        assertEquals(0.0, engine.score(""));
+        assertEquals(0.0, engine.score("   "));
+        assertEquals(0.0, engine.score("only latin words"));
+    }
+
+    @Test
+    @DisplayName("Repeated words are interned once and counted per document")
+    void testVocabulary() {
+        // Arrange
+        TfIdfEngine engine = new TfIdfEngine();
+        engine.addDocument("كتاب كتاب قلم");
+        engine.addDocument("كتاب بيت");
+
+        // Act
+        IntIntMap counts = engine.termCounts("كتاب كتاب شمس");
+        int bookId = engine.getVocabulary().id("كتاب");
+
+        // Assert
+        assertEquals(3, engine.getVocabulary().size());
+        assertEquals(2, engine.getDocumentFrequency(bookId));
+        assertEquals(2, counts.get(bookId));
+        assertEquals(1, counts.size(), "Unknown words should not get an id");
+        assertEquals(1, engine.getUnseenCount());
+        assertEquals(3, engine.getWordCount());
+    }
+}
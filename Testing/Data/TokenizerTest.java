@@ -0,0 +1,99 @@
+package Data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import dal.Tokenizer;
+
+class TokenizerTest {
+
+    private String[] tokensOf(Tokenizer tokenizer) {
+        String[] tokens = new String[tokenizer.size()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = tokenizer.getText().subSequence(tokenizer.start(i), tokenizer.end(i)).toString();
+        }
+        return tokens;
+    }
+
+    @Test
+    @DisplayName("Tokens match split on whitespace, including its edge cases")
+    void testMatchesSplit() {
+        // Arrange
+        String[] texts = { "", " ", " \t\n", "كتاب", "كتاب قلم", "  كتاب  قلم  ", "\nكتاب\r\nقلم\f", "a\u000Bb" };
+        Tokenizer tokenizer = new Tokenizer();
+
+        for (String text : texts) {
+            // Act
+            String[] tokens = tokensOf(tokenizer.tokenize(text));
+
+            // Assert
+            assertArrayEquals(text.split("\\s+"), tokens, "Tokens differ for \"" + text + "\"");
+        }
+    }
+
+    @Test
+    @DisplayName("Random text tokenizes like split when the tokenizer is reused")
+    void testRandomTextMatchesSplit() {
+        // Arrange
+        char[] alphabet = { 'ك', 'ت', 'ا', 'ب', 'َ', 'a', ' ', '\t', '\n', '\r', ' ' };
+        Random random = new Random(42);
+        Tokenizer tokenizer = new Tokenizer();
+
+        for (int round = 0; round < 500; round++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(300);
+            for (int i = 0; i < length; i++) {
+                text.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+
+            // Act
+            String[] tokens = tokensOf(tokenizer.tokenize(text));
+
+            // Assert
+            assertArrayEquals(text.toString().split("\\s+"), tokens);
+        }
+    }
+
+    @Test
+    @DisplayName("Repeated words share an id and a single String")
+    void testDistinctTokens() {
+        // Arrange
+        Tokenizer tokenizer = new Tokenizer();
+
+        // Act
+        tokenizer.tokenize("قال قلم قال كتاب قلم قال");
+        int[] counts = tokenizer.countDistinct(null);
+
+        // Assert
+        assertEquals(6, tokenizer.size());
+        assertEquals(3, tokenizer.getDistinctCount());
+        assertEquals(tokenizer.id(0), tokenizer.id(2));
+        assertSame(tokenizer.token(0), tokenizer.token(5), "Equal tokens should return the same String");
+        assertEquals("كتاب", tokenizer.distinctToken(2), "Ids should follow first appearance");
+        assertEquals(3, counts[tokenizer.id(0)]);
+        assertEquals(2, counts[tokenizer.id(1)]);
+        assertEquals(1, counts[tokenizer.id(3)]);
+    }
+
+    @Test
+    @DisplayName("Offsets index into the original text")
+    void testOffsets() {
+        // Arrange
+        Tokenizer tokenizer = new Tokenizer();
+
+        // Act
+        tokenizer.tokenize("  ab  cde");
+
+        // Assert
+        assertEquals(3, tokenizer.size(), "Leading whitespace should give an empty first token");
+        assertEquals(0, tokenizer.end(0));
+        assertEquals(2, tokenizer.start(1));
+        assertEquals(4, tokenizer.end(1));
+        assertEquals(6, tokenizer.start(2));
+        assertEquals(9, tokenizer.end(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> tokenizer.start(3));
+    }
+}
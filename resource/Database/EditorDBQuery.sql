@@ -7,7 +7,8 @@ CREATE TABLE `files` (
 	`fileHash` VARCHAR(255) NOT NULL COLLATE 'utf8mb4_general_ci',
 	`dateCreated` TIMESTAMP NOT NULL DEFAULT current_timestamp(),
 	`lastModified` TIMESTAMP NOT NULL DEFAULT current_timestamp() ON UPDATE current_timestamp(),
-	PRIMARY KEY (`fileid`) USING BTREE
+	PRIMARY KEY (`fileid`) USING BTREE,
+	INDEX `file_hash` (`fileHash`) USING BTREE
 )
 COLLATE='utf8mb4_general_ci'
 ENGINE=InnoDB
@@ -18,8 +19,12 @@ CREATE TABLE `pages` (
 	`fileId` INT(11) NOT NULL,
 	`pageNumber` INT(11) NOT NULL,
 	`pageContent` LONGTEXT NOT NULL COLLATE 'utf8mb4_general_ci',
+	`pageHash` CHAR(32) NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
+	`analysisStatus` ENUM('pending','done','failed') NOT NULL DEFAULT 'done' COLLATE 'utf8mb4_general_ci',
 	PRIMARY KEY (`pageId`) USING BTREE,
 	UNIQUE INDEX `file_id` (`fileId`, `pageNumber`) USING BTREE,
+	INDEX `page_hash` (`pageHash`) USING BTREE,
+	INDEX `analysis_status` (`analysisStatus`) USING BTREE,
 	CONSTRAINT `pages_ibfk_1` FOREIGN KEY (`fileId`) REFERENCES `files` (`fileid`) ON UPDATE RESTRICT ON DELETE CASCADE
 )
 COLLATE='utf8mb4_general_ci'
@@ -39,6 +44,8 @@ ENGINE=InnoDB
 AUTO_INCREMENT=32
 ;
 
+-- pos, lemmatization, rootextraction, stemmation and wordsegementation hold per-page rows written
+-- before the word_analysis lexicon existed; new pages reference word_analysis through page_words
 CREATE TABLE `lemmatization` (
 	`id` INT(11) NOT NULL AUTO_INCREMENT,
 	`pageId` INT(11) NOT NULL,
@@ -154,3 +161,137 @@ COLLATE='utf8mb4_general_ci'
 ENGINE=InnoDB
 AUTO_INCREMENT=14517
 ;
+CREATE TABLE `word_analysis` (
+	`wordId` INT(11) NOT NULL AUTO_INCREMENT,
+	`word` VARCHAR(255) NOT NULL COLLATE 'utf8mb4_bin',
+	`pos` TEXT NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
+	`lemma` TEXT NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
+	`root` TEXT NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
+	`stem` TEXT NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
+	`segment` TEXT NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
+	PRIMARY KEY (`wordId`) USING BTREE,
+	UNIQUE INDEX `word` (`word`) USING BTREE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE `page_words` (
+	`pageId` INT(11) NOT NULL,
+	`wordId` INT(11) NOT NULL,
+	`frequency` INT(11) NOT NULL DEFAULT '1',
+	PRIMARY KEY (`pageId`, `wordId`) USING BTREE,
+	INDEX `page_words_ibfk_2` (`wordId`) USING BTREE,
+	CONSTRAINT `page_words_ibfk_1` FOREIGN KEY (`pageId`) REFERENCES `pages` (`pageId`) ON UPDATE RESTRICT ON DELETE CASCADE,
+	CONSTRAINT `page_words_ibfk_2` FOREIGN KEY (`wordId`) REFERENCES `word_analysis` (`wordId`) ON UPDATE RESTRICT ON DELETE RESTRICT
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE `ingest_jobs` (
+	`jobId` INT(11) NOT NULL AUTO_INCREMENT,
+	`fileId` INT(11) NOT NULL,
+	`status` ENUM('queued','running','done','failed') NOT NULL DEFAULT 'queued' COLLATE 'utf8mb4_general_ci',
+	`claimedBy` VARCHAR(255) NULL DEFAULT NULL COLLATE 'utf8mb4_general_ci',
+	`leaseExpires` DATETIME NULL DEFAULT NULL,
+	`lastCompletedPage` INT(11) NOT NULL DEFAULT '0',
+	`attempts` INT(11) NOT NULL DEFAULT '0',
+	`dateCreated` TIMESTAMP NOT NULL DEFAULT current_timestamp(),
+	`lastModified` TIMESTAMP NOT NULL DEFAULT current_timestamp() ON UPDATE current_timestamp(),
+	PRIMARY KEY (`jobId`) USING BTREE,
+	INDEX `job_status` (`status`, `jobId`) USING BTREE,
+	INDEX `job_claim` (`claimedBy`) USING BTREE,
+	INDEX `ingest_jobs_ibfk_1` (`fileId`) USING BTREE,
+	CONSTRAINT `ingest_jobs_ibfk_1` FOREIGN KEY (`fileId`) REFERENCES `files` (`fileid`) ON UPDATE RESTRICT ON DELETE CASCADE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE `terms` (
+	`termId` INT(11) NOT NULL AUTO_INCREMENT,
+	`term` VARCHAR(255) NOT NULL COLLATE 'utf8mb4_bin',
+	`documentFrequency` INT(11) NOT NULL DEFAULT '0',
+	`corpusFrequency` INT(11) NOT NULL DEFAULT '0',
+	PRIMARY KEY (`termId`) USING BTREE,
+	UNIQUE INDEX `term` (`term`) USING BTREE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE `file_terms` (
+	`fileId` INT(11) NOT NULL,
+	`termId` INT(11) NOT NULL,
+	`termCount` INT(11) NOT NULL DEFAULT '0',
+	PRIMARY KEY (`fileId`, `termId`) USING BTREE,
+	INDEX `file_terms_term` (`termId`) USING BTREE,
+	CONSTRAINT `file_terms_file_fk` FOREIGN KEY (`fileId`) REFERENCES `files` (`fileid`) ON UPDATE RESTRICT ON DELETE CASCADE,
+	CONSTRAINT `file_terms_term_fk` FOREIGN KEY (`termId`) REFERENCES `terms` (`termId`) ON UPDATE RESTRICT ON DELETE RESTRICT
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE `file_lengths` (
+	`fileId` INT(11) NOT NULL,
+	`wordCount` INT(11) NOT NULL DEFAULT '0',
+	PRIMARY KEY (`fileId`) USING BTREE,
+	CONSTRAINT `file_lengths_fk` FOREIGN KEY (`fileId`) REFERENCES `files` (`fileid`) ON UPDATE RESTRICT ON DELETE CASCADE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE `corpus_stats` (
+	`statId` TINYINT(4) NOT NULL,
+	`documentCount` INT(11) NOT NULL DEFAULT '0',
+	`totalWords` BIGINT(20) NOT NULL DEFAULT '0',
+	`version` BIGINT(20) NOT NULL DEFAULT '0',
+	PRIMARY KEY (`statId`) USING BTREE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE `tfidf_vectors` (
+	`fileId` INT(11) NOT NULL,
+	`corpusVersion` BIGINT(20) NOT NULL,
+	`vector` MEDIUMBLOB NOT NULL,
+	PRIMARY KEY (`fileId`) USING BTREE,
+	CONSTRAINT `tfidf_vectors_fk` FOREIGN KEY (`fileId`) REFERENCES `files` (`fileid`) ON UPDATE RESTRICT ON DELETE CASCADE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE `file_signatures` (
+	`fileId` INT(11) NOT NULL,
+	`signature` BLOB NOT NULL,
+	PRIMARY KEY (`fileId`) USING BTREE,
+	CONSTRAINT `file_signatures_fk` FOREIGN KEY (`fileId`) REFERENCES `files` (`fileid`) ON UPDATE RESTRICT ON DELETE CASCADE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE `file_signature_bands` (
+	`band` SMALLINT(6) NOT NULL,
+	`bucket` BIGINT(20) NOT NULL,
+	`fileId` INT(11) NOT NULL,
+	PRIMARY KEY (`band`, `bucket`, `fileId`) USING BTREE,
+	INDEX `file_signature_bands_file` (`fileId`) USING BTREE,
+	CONSTRAINT `file_signature_bands_fk` FOREIGN KEY (`fileId`) REFERENCES `files` (`fileid`) ON UPDATE RESTRICT ON DELETE CASCADE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE TABLE `near_duplicates` (
+	`fileId` INT(11) NOT NULL,
+	`duplicateOfFileId` INT(11) NOT NULL,
+	`similarity` DOUBLE NOT NULL,
+	PRIMARY KEY (`fileId`) USING BTREE,
+	INDEX `near_duplicates_of` (`duplicateOfFileId`) USING BTREE,
+	CONSTRAINT `near_duplicates_file_fk` FOREIGN KEY (`fileId`) REFERENCES `files` (`fileid`) ON UPDATE RESTRICT ON DELETE CASCADE,
+	CONSTRAINT `near_duplicates_of_fk` FOREIGN KEY (`duplicateOfFileId`) REFERENCES `files` (`fileid`) ON UPDATE RESTRICT ON DELETE CASCADE
+)
+COLLATE='utf8mb4_general_ci'
+ENGINE=InnoDB
+;
+CREATE VIEW `page_word_analysis` AS
+	SELECT pw.pageId, wa.word, pw.frequency, wa.pos, wa.lemma, wa.root, wa.stem, wa.segment
+	FROM page_words pw
+	JOIN word_analysis wa ON wa.wordId = pw.wordId
+;
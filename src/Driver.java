@@ -1,10 +1,21 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import bll.BulkImportService;
 import bll.EditorBO;
 import bll.FacadeBO;
 import bll.IFacadeBO;
+import bll.IImportProgressListener;
 import dal.AbstractDAOEditorFactory;
+import dal.AnalyticsProcessor;
 import dal.FacadeDAO;
 import dal.IEditorDBDAO;
 import dal.IFacadeDAO;
+import dto.ImportSummary;
+import dto.RecomputeSummary;
 import pl.EditorPO;
 
 public class Driver {
@@ -17,6 +28,95 @@ public class Driver {
     	IEditorDBDAO editorDAO = AbstractDAOEditorFactory.getInstance().createEditorDAO();
         IFacadeDAO facadeDAO = new FacadeDAO(editorDAO);
         IFacadeBO editorBO = new FacadeBO(new EditorBO(facadeDAO));
+
+        if (args.length > 1 && args[0].equals("--import")) {
+            System.exit(importHeadless(editorBO, args) ? 0 : 1);
+        }
+        if (args.length > 0 && args[0].equals("--recompute-tfidf")) {
+            System.exit(recomputeTfIdf(editorBO) ? 0 : 1);
+        }
+        if (args.length > 1 && args[0].equals("--collocations")) {
+            System.exit(printCollocations(editorBO, args) ? 0 : 1);
+        }
+        // In async mode, starts the analytics workers, which also resume ingest jobs interrupted by an earlier
+        // crash; in sync mode the next import resumes them
+        AnalyticsProcessor.getInstance();
         new EditorPO(editorBO);
     }
-}
\ No newline at end of file
+
+    // java Driver --recompute-tfidf
+    private static boolean recomputeTfIdf(IFacadeBO editorBO) {
+        RecomputeSummary summary = editorBO.recomputeTfIdf();
+        if (summary == null) {
+            System.err.println("TF-IDF recompute failed");
+            return false;
+        }
+        System.out.println(String.format("Recomputed TF-IDF for %d files (%d pages, %d terms) in %d ms, %.0f files/sec",
+                summary.getFileCount(), summary.getPageCount(), summary.getTermCount(), summary.getElapsedMillis(),
+                summary.getFilesPerSecond()));
+        return true;
+    }
+
+    // java Driver --collocations <count> [minimum occurrences]
+    private static boolean printCollocations(IFacadeBO editorBO, String[] args) {
+        try {
+            int count = Integer.parseInt(args[1]);
+            int minCount = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+            Map<String, Double> collocations = editorBO.getTopCollocations(count, minCount);
+            if (collocations == null) {
+                System.err.println("Collocations could not be counted");
+                return false;
+            }
+            for (Map.Entry<String, Double> entry : collocations.entrySet()) {
+                System.out.println(String.format("%.4f\t%s", entry.getValue(), entry.getKey()));
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return false;
+        }
+    }
+
+    // java Driver --import <file or directory>...
+    private static boolean importHeadless(IFacadeBO editorBO, String[] args) {
+        List<File> paths = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            paths.add(new File(args[i]));
+        }
+        try {
+            BulkImportService importService = new BulkImportService(editorBO);
+            ImportSummary summary = importService.importFiles(importService.collectFiles(paths),
+                    new IImportProgressListener() {
+
+                        @Override
+                        public void onProgress(int completedFiles, int totalFiles, int failedFiles) {
+                            System.out.println("Imported " + completedFiles + " of " + totalFiles + " files ("
+                                    + failedFiles + " failed)");
+                        }
+
+                        @Override
+                        public void onSkipped(File file, String reason) {
+                            System.out.println(file.getPath() + " skipped: " + reason);
+                        }
+
+                        @Override
+                        public void onFailure(File file, String reason) {
+                            System.err.println(file.getPath() + " failed to upload: " + reason);
+                        }
+                    });
+            System.out.println(summary.getImportedFiles() + " of " + summary.getTotalFiles() + " files imported, "
+                    + summary.getSkippedFiles() + " skipped as duplicates, in " + summary.getElapsedMillis() + " ms");
+            for (Map.Entry<String, String> failure : summary.getFailures().entrySet()) {
+                System.err.println("  " + failure.getKey() + " - " + failure.getValue());
+            }
+            if (AnalyticsProcessor.isAsync()) {
+                System.out.println("Waiting for queued analytics...");
+                AnalyticsProcessor.getInstance().awaitIdle(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+            return summary.getFailedFiles() == 0;
+        } catch (Exception e) {
+            System.err.println("Import failed: " + e.getMessage());
+            return false;
+        }
+    }
+}
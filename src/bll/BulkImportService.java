@@ -0,0 +1,159 @@
+package bll;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dto.ImportResult;
+import dto.ImportSummary;
+import dto.SimilarFile;
+import pl.EditorPO;
+
+// Imports many files on a bounded pool of workers, reporting progress as files finish. The DAO stores each
+// worker's file on a database connection of its own, so files are read and written in parallel and the
+// editor stays usable meanwhile. Files whose content is already stored are counted as skipped, not imported.
+public class BulkImportService {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+
+	private IEditorBO bo;
+	private int workerCount;
+	private int queueCapacity;
+
+	public BulkImportService(IEditorBO bo) {
+		this(bo, bo.getConfigInt("import.threads", 4), bo.getConfigInt("import.queueSize", 64));
+	}
+
+	public BulkImportService(IEditorBO bo, int workerCount, int queueCapacity) {
+		this.bo = bo;
+		this.workerCount = Math.max(1, workerCount);
+		this.queueCapacity = Math.max(1, queueCapacity);
+	}
+
+	// Directories are walked recursively and contribute their .txt and .md5 files
+	public List<File> collectFiles(List<File> filesOrDirectories) throws IOException {
+		List<File> files = new ArrayList<>();
+		for (File file : filesOrDirectories) {
+			if (file.isDirectory()) {
+				try (Stream<Path> paths = Files.walk(file.toPath())) {
+					files.addAll(paths.filter(Files::isRegularFile).map(Path::toFile).filter(this::isImportable)
+							.sorted().collect(Collectors.toList()));
+				}
+			} else {
+				files.add(file);
+			}
+		}
+		return files;
+	}
+
+	public ImportSummary importDirectory(File directory, IImportProgressListener listener) throws IOException {
+		return importFiles(collectFiles(Arrays.asList(directory)), listener);
+	}
+
+	public ImportSummary importFiles(List<File> files, IImportProgressListener listener) {
+		long startTime = System.currentTimeMillis();
+		Map<String, String> skipped = new ConcurrentHashMap<>();
+		Map<String, String> failures = new ConcurrentHashMap<>();
+		AtomicInteger completed = new AtomicInteger();
+		AtomicInteger imported = new AtomicInteger();
+		int total = files.size();
+
+		ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+		// Bounds files that are running or waiting, so the submitting thread blocks instead of
+		// queueing the whole list
+		Semaphore slots = new Semaphore(workerCount + queueCapacity);
+
+		try {
+			for (File file : files) {
+				slots.acquire();
+				workers.execute(() -> {
+					try {
+						String reason = importFile(file, skipped, listener);
+						if (reason == null) {
+							if (!skipped.containsKey(file.getPath())) {
+								imported.incrementAndGet();
+							}
+						} else {
+							failures.put(file.getPath(), reason);
+							if (listener != null) {
+								listener.onFailure(file, reason);
+							}
+						}
+						int done = completed.incrementAndGet();
+						if (listener != null) {
+							listener.onProgress(done, total, failures.size());
+						}
+					} finally {
+						slots.release();
+					}
+				});
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOGGER.error("Bulk import interrupted: " + e.getMessage());
+		} finally {
+			workers.shutdown();
+			try {
+				workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		ImportSummary summary = new ImportSummary(total, imported.get(), skipped, failures,
+				System.currentTimeMillis() - startTime);
+		LOGGER.info("Bulk import finished: " + summary.getImportedFiles() + " of " + total + " files imported, "
+				+ summary.getSkippedFiles() + " skipped, " + summary.getFailedFiles() + " failed in "
+				+ summary.getElapsedMillis() + " ms");
+		return summary;
+	}
+
+	// Returns why the file failed, or null when it was stored or skipped as a duplicate
+	private String importFile(File file, Map<String, String> skipped, IImportProgressListener listener) {
+		if (!isImportable(file)) {
+			return "Unsupported file type";
+		}
+		try {
+			ImportResult result = bo.importTextFiles(file, file.getName());
+			if (result.getStatus() == ImportResult.Status.SKIPPED) {
+				SimilarFile original = result.getDuplicateOf();
+				String reason = original.getSimilarity() < 1
+						? String.format("Near-duplicate of %s (similarity %.2f)", original.getName(),
+								original.getSimilarity())
+						: "Duplicate of " + original.getName();
+				skipped.put(file.getPath(), reason);
+				if (listener != null) {
+					listener.onSkipped(file, reason);
+				}
+				return null;
+			}
+			if (result.isAnalyticsFailed()) {
+				LOGGER.error(file.getPath() + " was stored, but its analytics failed");
+			}
+			return result.isStored() ? null : "Import failed";
+		} catch (Exception e) {
+			LOGGER.error(file.getPath() + ": " + e.getMessage());
+			return e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+		}
+	}
+
+	private boolean isImportable(File file) {
+		String extension = bo.getFileExtension(file.getName());
+		return Arrays.asList("txt", "md5").contains(extension.toLowerCase());
+	}
+}
@@ -0,0 +1,36 @@
+package bll;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import dal.IFacadeDAO;
+
+// Answers TF-IDF questions about stored files from the document frequencies the DAO keeps up to date on
+// every import, edit and delete, so no document is loaded to score one. Scores are remembered per file
+// until the corpus version moves on; checking the version is a single-row read.
+public class CorpusStatisticsService {
+	private IFacadeDAO db;
+	private Map<Integer, Double> scores = new HashMap<>();
+	private long corpusVersion = -1;
+
+	public CorpusStatisticsService(IFacadeDAO db) {
+		this.db = db;
+	}
+
+	// Null when the file could not be scored
+	public synchronized Double performTFIDF(int fileId) {
+		long version = db.getCorpusVersion();
+		if (version < 0 || version != corpusVersion) {
+			scores.clear();
+			corpusVersion = version;
+		}
+		Double score = scores.get(fileId);
+		if (score == null) {
+			score = db.calculateFileTfIdf(fileId);
+			if (score != null && version >= 0) {
+				scores.put(fileId, score);
+			}
+		}
+		return score;
+	}
+}
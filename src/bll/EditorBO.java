@@ -1,8 +1,14 @@
 package bll;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -12,16 +18,22 @@ import org.apache.logging.log4j.Logger;
 
 import dal.IFacadeDAO;
 import dto.Documents;
+import dto.ImportResult;
 import dto.Pages;
+import dto.RecomputeSummary;
+import dto.SearchResult;
+import dto.SimilarFile;
 import pl.EditorPO;
 
 public class EditorBO implements IEditorBO {
 	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
 
 	private IFacadeDAO db;
+	private CorpusStatisticsService corpusStatistics;
 
 	public EditorBO(IFacadeDAO db) {
 		this.db = db;
+		this.corpusStatistics = new CorpusStatisticsService(db);
 	}
 
 	@Override
@@ -57,28 +69,28 @@ public class EditorBO implements IEditorBO {
 		}
 	}
 
+	// Content that is already stored is skipped, linked or overwritten as import.duplicatePolicy says
 	@Override
-	public boolean importTextFiles(File file, String fileName) {
-		StringBuilder fileContent = new StringBuilder();
+	public ImportResult importTextFiles(File file, String fileName) {
 		String fileExtension = getFileExtension(fileName);
-		BufferedReader reader;
+		if (!fileExtension.equalsIgnoreCase("txt") && !fileExtension.equalsIgnoreCase("md5")) {
+			return ImportResult.failed();
+		}
 		try {
-			reader = new BufferedReader(new FileReader(file));
-			String line;
-
-			while ((line = reader.readLine()) != null) {
-				fileContent.append(line).append("\n");
-			}
-			reader.close();
-
-			if (fileExtension.equalsIgnoreCase("txt") || fileExtension.equalsIgnoreCase("md5")) {
-				return db.createFileInDB(fileName, fileContent.toString());
-			}
+			return db.createFileInDB(fileName, openTextFile(file));
 		} catch (Exception e) {
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
 		}
-		return false;
+		return ImportResult.failed();
+	}
+
+	// The file is decoded straight off the channel so it never has to fit in memory as a whole
+	private Reader openTextFile(File file) throws IOException {
+		CharsetDecoder decoder = Charset.forName(db.getConfigString("import.charset", Charset.defaultCharset().name()))
+				.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		return Channels.newReader(FileChannel.open(file.toPath(), StandardOpenOption.READ), decoder, -1);
 	}
 
 	@Override
@@ -111,7 +123,19 @@ public class EditorBO implements IEditorBO {
 	@Override
 	public List<String> searchKeyword(String keyword) {
 
-		return SearchWord.searchKeyword(keyword, getAllFiles());
+		return SearchWord.searchKeyword(keyword, getAllFiles(), db);
+	}
+
+	// The k stored files ranked best for the query by BM25, best first; null when the search failed
+	@Override
+	public List<SearchResult> searchDocuments(String query, int k) {
+		if (query == null || query.trim().length() < 3) {
+			throw new IllegalArgumentException("Could not Search, Please Enter at least 3 letter to search");
+		}
+		if (k <= 0) {
+			throw new IllegalArgumentException("Number of search results must be positive");
+		}
+		return db.searchDocuments(query, k);
 	}
 
 	@Override
@@ -137,6 +161,63 @@ public class EditorBO implements IEditorBO {
 		return db.performTFIDF(unSelectedDocsContent, selectedDocContent);
 	}
 
+	// Scored against the other stored files; null when the file could not be scored
+	@Override
+	public Double performTFIDF(int fileId) {
+		return corpusStatistics.performTFIDF(fileId);
+	}
+
+	// The k stored files most like this one by cosine similarity, best first; null when they could not be found
+	@Override
+	public List<SimilarFile> findSimilarFiles(int fileId, int k) {
+		if (k <= 0) {
+			throw new IllegalArgumentException("Number of similar files must be positive");
+		}
+		return db.findSimilarFiles(fileId, k);
+	}
+
+	// The stored file this one nearly duplicated when it was imported, or null
+	@Override
+	public SimilarFile getNearDuplicateOf(int fileId) {
+		return db.getNearDuplicateOf(fileId);
+	}
+
+	// Rescores every stored file in one pass over the corpus; null when it failed
+	@Override
+	public RecomputeSummary recomputeTfIdf() {
+		return db.recomputeTfIdf();
+	}
+
+	@Override
+	public Map<String, Double> getTopKeywords(int fileId, int k) {
+		if (k <= 0) {
+			throw new IllegalArgumentException("Number of keywords must be positive");
+		}
+		return db.getTopKeywords(fileId, k);
+	}
+
+	// "word1 word2" -> PMI of the n strongest collocations across all stored files seen at least minCount
+	// times, best first; null when they could not be counted
+	@Override
+	public Map<String, Double> getTopCollocations(int n, int minCount) {
+		if (n <= 0) {
+			throw new IllegalArgumentException("Number of collocations must be positive");
+		}
+		if (minCount < 1) {
+			throw new IllegalArgumentException("Minimum count must be at least 1");
+		}
+		return db.getTopCollocations(n, minCount);
+	}
+
+	// PMI of the pair across all stored files; null when it could not be computed
+	@Override
+	public Double getCorpusPMI(String word1, String word2) {
+		if (word1 == null || word2 == null || word1.trim().isEmpty() || word2.trim().isEmpty()) {
+			throw new IllegalArgumentException("Both words are needed");
+		}
+		return db.getCorpusPMI(word1, word2);
+	}
+
 	@Override
 	public Map<String, Double> performPMI(String content) {
 
@@ -160,4 +241,18 @@ public class EditorBO implements IEditorBO {
 		return db.segmentWords(text);
 	}
 
+	@Override
+	public int countWords(String text) {
+		return db.countWords(text);
+	}
+
+	@Override
+	public double calculateAverageWordLength(String text) {
+		return db.calculateAverageWordLength(text);
+	}
+
+	@Override
+	public int getConfigInt(String key, int defaultValue) {
+		return db.getConfigInt(key, defaultValue);
+	}
 }
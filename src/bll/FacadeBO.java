@@ -5,6 +5,10 @@ import java.util.List;
 import java.util.Map;
 
 import dto.Documents;
+import dto.ImportResult;
+import dto.RecomputeSummary;
+import dto.SearchResult;
+import dto.SimilarFile;
 
 public class FacadeBO implements IFacadeBO {
 
@@ -33,7 +37,7 @@ public class FacadeBO implements IFacadeBO {
 	}
 
 	@Override
-	public boolean importTextFiles(File file, String fileName) {
+	public ImportResult importTextFiles(File file, String fileName) {
 		// TODO Auto-generated method stub
 		return bo.importTextFiles(file, fileName);
 	}
@@ -66,6 +70,11 @@ public class FacadeBO implements IFacadeBO {
 		return bo.searchKeyword(keyword);
 	}
 
+	@Override
+	public List<SearchResult> searchDocuments(String query, int k) {
+		return bo.searchDocuments(query, k);
+	}
+
 	@Override
 	public Map<String, String> lemmatizeWords(String text) {
 		// TODO Auto-generated method stub
@@ -90,6 +99,41 @@ public class FacadeBO implements IFacadeBO {
 		return bo.performTFIDF(unSelectedDocsContent, selectedDocContent);
 	}
 
+	@Override
+	public Double performTFIDF(int fileId) {
+		return bo.performTFIDF(fileId);
+	}
+
+	@Override
+	public List<SimilarFile> findSimilarFiles(int fileId, int k) {
+		return bo.findSimilarFiles(fileId, k);
+	}
+
+	@Override
+	public SimilarFile getNearDuplicateOf(int fileId) {
+		return bo.getNearDuplicateOf(fileId);
+	}
+
+	@Override
+	public RecomputeSummary recomputeTfIdf() {
+		return bo.recomputeTfIdf();
+	}
+
+	@Override
+	public Map<String, Double> getTopKeywords(int fileId, int k) {
+		return bo.getTopKeywords(fileId, k);
+	}
+
+	@Override
+	public Map<String, Double> getTopCollocations(int n, int minCount) {
+		return bo.getTopCollocations(n, minCount);
+	}
+
+	@Override
+	public Double getCorpusPMI(String word1, String word2) {
+		return bo.getCorpusPMI(word1, word2);
+	}
+
 	@Override
 	public Map<String, Double> performPMI(String content) {
 		// TODO Auto-generated method stub
@@ -114,4 +158,19 @@ public class FacadeBO implements IFacadeBO {
 		return bo.segmentWords(text);
 	}
 
+	@Override
+	public int countWords(String text) {
+		return bo.countWords(text);
+	}
+
+	@Override
+	public double calculateAverageWordLength(String text) {
+		return bo.calculateAverageWordLength(text);
+	}
+
+	@Override
+	public int getConfigInt(String key, int defaultValue) {
+		return bo.getConfigInt(key, defaultValue);
+	}
+
 }
@@ -5,6 +5,10 @@ import java.util.List;
 import java.util.Map;
 
 import dto.Documents;
+import dto.ImportResult;
+import dto.RecomputeSummary;
+import dto.SearchResult;
+import dto.SimilarFile;
 
 public interface IEditorBO {
 	boolean createFile(String nameOfFile, String content);
@@ -13,7 +17,7 @@ public interface IEditorBO {
 
 	boolean deleteFile(int id);
 
-	boolean importTextFiles(File file, String fileName);
+	ImportResult importTextFiles(File file, String fileName);
 
 	Documents getFile(int id);
 
@@ -25,6 +29,8 @@ public interface IEditorBO {
 
 	List<String> searchKeyword(String keyword);
 
+	List<SearchResult> searchDocuments(String query, int k);
+
 	Map<String, String> lemmatizeWords(String text);
 
 	Map<String, List<String>> extractPOS(String text);
@@ -33,12 +39,32 @@ public interface IEditorBO {
 
 	double performTFIDF(List<String> unSelectedDocsContent, String selectedDocContent);
 
+	Double performTFIDF(int fileId);
+
+	List<SimilarFile> findSimilarFiles(int fileId, int k);
+
+	SimilarFile getNearDuplicateOf(int fileId);
+
+	RecomputeSummary recomputeTfIdf();
+
+	Map<String, Double> getTopKeywords(int fileId, int k);
+
 	Map<String, Double> performPMI(String content);
 
+	Map<String, Double> getTopCollocations(int n, int minCount);
+
+	Double getCorpusPMI(String word1, String word2);
+
 	Map<String, Double> performPKL(String content);
 
 	Map<String, String> stemWords(String text);
 
 	Map<String, String> segmentWords(String text);
 
+	int countWords(String text);
+
+	double calculateAverageWordLength(String text);
+
+	int getConfigInt(String key, int defaultValue);
+
 }
@@ -0,0 +1,11 @@
+package bll;
+
+import java.io.File;
+
+public interface IImportProgressListener {
+	void onProgress(int completedFiles, int totalFiles, int failedFiles);
+
+	void onSkipped(File file, String reason);
+
+	void onFailure(File file, String reason);
+}
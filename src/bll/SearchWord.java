@@ -6,12 +6,13 @@ import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import dal.IFacadeDAO;
 import dto.Documents;
 import dto.Pages;
 import pl.EditorPO;
 
 public class SearchWord {
-	public static List<String> searchKeyword(String keyword, List<Documents> docs) {
+	public static List<String> searchKeyword(String keyword, List<Documents> docs, IFacadeDAO db) {
 		final Logger LOGGER = LogManager.getLogger(EditorPO.class);
 		// TODO Auto-generated method stub
 		List<String> getFiles = new ArrayList<>();
@@ -24,20 +25,10 @@ public class SearchWord {
 				String pageContent = page.getPageContent();
 				if (pageContent.contains(keyword)) {
 
-					String[] words = pageContent.split("\\s+");
-
-					for (int i = 0; i < words.length; i++) {
-						if (words[i].equalsIgnoreCase(keyword)) {
-
-							String prefixWord;
-							if (i > 0) {
-								prefixWord = words[i - 1];
-							} else {
-								prefixWord = "";
-							}
-							getFiles.add(doc.getName() + " - " + prefixWord + " " + keyword + "...");
-							break;
-						}
+					// Tokenized by the shared tokenizer, behind the facade
+					String prefixWord = db.findWordBefore(pageContent, keyword);
+					if (prefixWord != null) {
+						getFiles.add(doc.getName() + " - " + prefixWord + " " + keyword + "...");
 					}
 					break;
 				}
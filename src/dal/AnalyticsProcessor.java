@@ -0,0 +1,255 @@
+package dal;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dto.Pages;
+import pl.EditorPO;
+
+// Computes page analytics for the jobs in ingest_jobs. Files commit with their pages marked pending and a
+// job; each worker thread claims jobs on its own connection and commits a checkpoint after every few pages,
+// so a job interrupted by a crash resumes from its last checkpoint in whichever installation claims it next.
+// Worker threads only run in async mode; in sync mode each import processes its own job and then any job
+// left open by an earlier failure or crash.
+public class AnalyticsProcessor {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+	private static AnalyticsProcessor INSTANCE;
+
+	private final String processName = ManagementFactory.getRuntimeMXBean().getName();
+	private final int checkpointPages = Math.max(1, Config.getInt("analytics.checkpointPages", 100));
+	private final long pollMillis = Math.max(1, Config.getInt("analytics.pollSeconds", 5)) * 1000L;
+	private final Object wakeUp = new Object();
+
+	private AnalyticsProcessor() {
+		if (!isAsync()) {
+			return;
+		}
+		int workerCount = Math.max(1, Config.getInt("analytics.workers", 1));
+		for (int i = 1; i <= workerCount; i++) {
+			String workerId = processName + "-worker-" + i;
+			Thread worker = new Thread(() -> runWorker(workerId), "analytics-" + i);
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	public static synchronized AnalyticsProcessor getInstance() {
+		if (INSTANCE == null) {
+			INSTANCE = new AnalyticsProcessor();
+		}
+		return INSTANCE;
+	}
+
+	public static boolean isAsync() {
+		return Config.getString("analytics.mode", "sync").equalsIgnoreCase("async");
+	}
+
+	// Identifies a caller that processes its own job instead of leaving it to the workers
+	public String getInlineWorkerId() {
+		return processName + "-inline-" + Thread.currentThread().getId();
+	}
+
+	// Called after a job commits so a worker picks it up without waiting for the next poll
+	public void wakeUp() {
+		synchronized (wakeUp) {
+			wakeUp.notifyAll();
+		}
+	}
+
+	// Waits until no job is queued or running; the headless import uses this before its JVM exits
+	public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException, SQLException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		try (Connection conn = DatabaseConnection.getInstance().openConnection()) {
+			conn.setAutoCommit(true);
+			while (true) {
+				IngestJobQueue.failAbandonedJobs(conn);
+				if (IngestJobQueue.countOpenJobs(conn) == 0) {
+					break;
+				}
+				if (deadline - System.nanoTime() <= 0) {
+					return false;
+				}
+				Thread.sleep(1000);
+			}
+		}
+		return true;
+	}
+
+	private void runWorker(String workerId) {
+		Connection conn = null;
+		while (true) {
+			try {
+				if (conn == null || !conn.isValid(5)) {
+					conn = DatabaseConnection.getInstance().openConnection();
+				}
+				IngestJob job = IngestJobQueue.claim(conn, workerId);
+				if (job != null) {
+					processJob(conn, job);
+					continue;
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+				LOGGER.error(e.getMessage());
+			}
+			synchronized (wakeUp) {
+				try {
+					wakeUp.wait(pollMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	// Claims and processes open jobs on the caller's thread until none can be claimed
+	public void processOpenJobs(Connection conn, String workerId) throws SQLException {
+		IngestJob job;
+		while ((job = IngestJobQueue.claim(conn, workerId)) != null) {
+			processJob(conn, job);
+		}
+	}
+
+	// Returns false when some pages failed or the job was lost to another worker
+	public boolean processJob(Connection conn, IngestJob job) throws SQLException {
+		long startTime = System.nanoTime();
+		int donePages = 0;
+		int failedPages = 0;
+		int reusedPages = 0;
+		conn.setAutoCommit(false);
+		WordLexicon.warmUp(conn);
+		Map<Integer, String> pageHashes = new HashMap<>();
+		List<Pages> pages;
+		while (!(pages = loadPendingPages(conn, job, pageHashes)).isEmpty()) {
+			try {
+				int reused = commitPages(conn, job, pages, pageHashes);
+				if (reused < 0) {
+					return false;
+				}
+				reusedPages += reused;
+				donePages += pages.size();
+			} catch (Exception e) {
+				conn.rollback();
+				LOGGER.error("Analytics for file " + job.getFileId() + " failed, retrying page by page: "
+						+ e.getMessage());
+				// One bad page should not fail the pages around it
+				for (Pages page : pages) {
+					try {
+						int reused = commitPages(conn, job, Collections.singletonList(page), pageHashes);
+						if (reused < 0) {
+							return false;
+						}
+						reusedPages += reused;
+						donePages++;
+					} catch (Exception pageException) {
+						conn.rollback();
+						LOGGER.error("Analytics for page " + page.getPageId() + " failed: " + pageException.getMessage());
+						markFailed(conn, page.getPageId());
+						if (!IngestJobQueue.checkpoint(conn, job, page.getPageNumber())) {
+							conn.rollback();
+							return false;
+						}
+						conn.commit();
+						failedPages++;
+					}
+				}
+			}
+			pageHashes.clear();
+		}
+		IngestJobQueue.complete(conn, job, failedPages == 0);
+		LOGGER.info(String.format("Ingest job %d (file %d): %d pages done (%d reused), %d failed, %.2f s",
+				job.getJobId(), job.getFileId(), donePages, reusedPages, failedPages,
+				(System.nanoTime() - startTime) / 1e9));
+		return failedPages == 0;
+	}
+
+	// Resumes after the job's checkpoint; pages edited since the job started are already done and are skipped
+	private List<Pages> loadPendingPages(Connection conn, IngestJob job, Map<Integer, String> pageHashes)
+			throws SQLException {
+		String query = "SELECT pageId, pageNumber, pageContent, pageHash FROM pages "
+				+ "WHERE fileId = ? AND pageNumber > ? AND analysisStatus = 'pending' ORDER BY pageNumber LIMIT ?";
+		List<Pages> pages = new ArrayList<>();
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, job.getFileId());
+			stmt.setInt(2, job.getLastCompletedPage());
+			stmt.setInt(3, checkpointPages);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					Pages page = new Pages(rs.getInt("pageId"), job.getFileId(), rs.getInt("pageNumber"),
+							rs.getString("pageContent"));
+					page.setAnalysisStatus("pending");
+					pages.add(page);
+					pageHashes.put(page.getPageId(), rs.getString("pageHash"));
+				}
+			}
+		}
+		return pages;
+	}
+
+	// Writes the pages' analytics, marks them done and commits them with a checkpoint. Returns how many
+	// pages were reused from identical ones, or -1 if the lease was lost and nothing was committed.
+	private int commitPages(Connection conn, IngestJob job, List<Pages> pages, Map<Integer, String> pageHashes)
+			throws Exception {
+		Map<Integer, Integer> pageIds = new HashMap<>();
+		Map<Integer, String> hashesByNumber = new HashMap<>();
+		StringBuilder pageIdList = new StringBuilder();
+		for (Pages page : pages) {
+			pageIds.put(page.getPageNumber(), page.getPageId());
+			hashesByNumber.put(page.getPageNumber(), pageHashes.get(page.getPageId()));
+			pageIdList.append(pageIdList.length() == 0 ? "" : ", ").append(page.getPageId());
+		}
+
+		// Rows left by a transliteration made while the page was pending are replaced
+		try (Statement stmt = conn.createStatement()) {
+			for (String[] table : PageAnalyticsWriter.PAGE_ANALYTICS) {
+				stmt.executeUpdate("DELETE FROM " + table[0] + " WHERE pageId IN (" + pageIdList + ")");
+			}
+		}
+
+		Map<String, Integer> uncommittedWordIds = new HashMap<>();
+		int reusedPages;
+		try (PageAnalyticsWriter analytics = new PageAnalyticsWriter(conn);
+				PreparedStatement doneStmt = conn.prepareStatement(
+						"UPDATE pages SET analysisStatus = 'done' WHERE pageId = ? AND analysisStatus = 'pending'")) {
+			analytics.write(job.getFileId(), pages, pageIds, hashesByNumber, uncommittedWordIds);
+			BatchWriter writer = analytics.getWriter();
+			writer.register(doneStmt);
+			for (Pages page : pages) {
+				doneStmt.setInt(1, page.getPageId());
+				writer.add(doneStmt, 8);
+			}
+			analytics.flush();
+			reusedPages = analytics.getReusedPageCount();
+		}
+
+		if (!IngestJobQueue.checkpoint(conn, job, pages.get(pages.size() - 1).getPageNumber())) {
+			conn.rollback();
+			LOGGER.error("Lost the lease on ingest job " + job.getJobId() + ", leaving it to its new worker");
+			return -1;
+		}
+		conn.commit();
+		WordLexicon.commit(uncommittedWordIds);
+		return reusedPages;
+	}
+
+	private void markFailed(Connection conn, int pageId) throws SQLException {
+		String query = "UPDATE pages SET analysisStatus = 'failed' WHERE pageId = ? AND analysisStatus = 'pending'";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, pageId);
+			stmt.executeUpdate();
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package dal;
+
+// Single-pass replacement for removeHarakat + removeNonArabicCharacters + toLowerCase. Every char is
+// looked up in a table holding what it becomes: itself, a folded letter, or nothing. By default the output
+// matches PreProcessText's original three passes exactly: harakat and anything that is neither Arabic
+// script nor whitespace are dropped, and lower-casing never changes what is left. Tatweel (U+0640) is
+// Common script rather than Arabic, so it is always dropped.
+public class ArabicNormalizer {
+	private static final char DROP = 0;
+	private static final char FATHATAN = '\u064B';
+	private static final char SUKUN = '\u0652';
+	private static final char[] DEFAULT_TABLE = buildDefaultTable();
+	private static final int MAX_SHARED_BUFFER = 1 << 16;
+	private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[1024]);
+
+	private static final char ALEF = 'ا';
+	private static final char[] ALEF_VARIANTS = { 'أ', 'إ', 'آ', 'ٱ', 'ٲ', 'ٳ' };
+
+	private final char[] table;
+
+	public ArabicNormalizer() {
+		this(false, false, false);
+	}
+
+	public ArabicNormalizer(boolean foldAlef, boolean foldTaMarbuta, boolean foldAlefMaqsura) {
+		if (!foldAlef && !foldTaMarbuta && !foldAlefMaqsura) {
+			table = DEFAULT_TABLE;
+			return;
+		}
+		table = DEFAULT_TABLE.clone();
+		if (foldAlef) {
+			for (char variant : ALEF_VARIANTS) {
+				table[variant] = ALEF;
+			}
+		}
+		if (foldTaMarbuta) {
+			table['ة'] = 'ه';
+		}
+		if (foldAlefMaqsura) {
+			table['ى'] = 'ي';
+		}
+	}
+
+	public static ArabicNormalizer fromConfig() {
+		return new ArabicNormalizer(Boolean.parseBoolean(Config.getString("normalize.foldAlef", "false")),
+				Boolean.parseBoolean(Config.getString("normalize.foldTaMarbuta", "false")),
+				Boolean.parseBoolean(Config.getString("normalize.foldAlefMaqsura", "false")));
+	}
+
+	private static char[] buildDefaultTable() {
+		char[] table = new char[Character.MAX_VALUE + 1];
+		for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+			if (Character.isHighSurrogate((char) ch)) {
+				// Resolved together with the low surrogate that follows it
+				table[ch] = (char) ch;
+			} else if (isHaraka((char) ch)) {
+				table[ch] = DROP;
+			} else if (PreProcessText.isWhitespace(ch) || (!Character.isLowSurrogate((char) ch)
+					&& Character.UnicodeScript.of(ch) == Character.UnicodeScript.ARABIC)) {
+				table[ch] = (char) ch;
+			}
+		}
+		return table;
+	}
+
+	// Writes the normalized text into buffer, which must hold at least text.length() chars, and returns
+	// the normalized length
+	public int normalize(CharSequence text, char[] buffer) {
+		int length = text.length();
+		int out = 0;
+		for (int i = 0; i < length; i++) {
+			char ch = text.charAt(i);
+			char mapped = table[ch];
+			if (mapped == DROP) {
+				continue;
+			}
+			if (Character.isHighSurrogate(mapped)) {
+				// Harakat were removed before the script filter ran, so they never separated a surrogate pair
+				int next = i + 1;
+				while (next < length && isHaraka(text.charAt(next))) {
+					next++;
+				}
+				if (next < length && Character.isLowSurrogate(text.charAt(next))) {
+					char low = text.charAt(next);
+					i = next;
+					if (isArabic(Character.toCodePoint(ch, low))) {
+						buffer[out++] = ch;
+						buffer[out++] = low;
+					}
+				}
+				continue;
+			}
+			buffer[out++] = mapped;
+		}
+		return out;
+	}
+
+	public String normalize(CharSequence text) {
+		int length = text.length();
+		char[] buffer = BUFFER.get();
+		if (buffer.length < length) {
+			buffer = new char[length];
+			if (length <= MAX_SHARED_BUFFER) {
+				BUFFER.set(buffer);
+			}
+		}
+		return new String(buffer, 0, normalize(text, buffer));
+	}
+
+	// The code point a normalized text holds in place of codePoint, or -1 when it is dropped
+	public int map(int codePoint) {
+		if (codePoint <= Character.MAX_VALUE) {
+			char mapped = table[codePoint];
+			return mapped == DROP || Character.isSurrogate(mapped) ? -1 : mapped;
+		}
+		return isArabic(codePoint) ? codePoint : -1;
+	}
+
+	private static boolean isHaraka(char ch) {
+		return ch >= FATHATAN && ch <= SUKUN;
+	}
+
+	private static boolean isArabic(int codePoint) {
+		return Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.ARABIC;
+	}
+}
@@ -0,0 +1,68 @@
+package dal;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchWriter {
+	private final List<PreparedStatement> statements = new ArrayList<>();
+	private final List<Integer> pendingPerStatement = new ArrayList<>();
+	private final int batchSize;
+	private final long batchBytes;
+	private int pendingRows = 0;
+	private long pendingBytes = 0;
+	private long rowCount = 0;
+	private int roundTrips = 0;
+
+	public BatchWriter() {
+		this(Config.getInt("db.batchSize", 2000), Config.getInt("db.batchBytes", 4 * 1024 * 1024));
+	}
+
+	public BatchWriter(int batchSize, long batchBytes) {
+		this.batchSize = Math.max(1, batchSize);
+		this.batchBytes = Math.max(1, batchBytes);
+	}
+
+	// Statements are flushed in registration order, so parents must be registered before children
+	public PreparedStatement register(PreparedStatement stmt) {
+		statements.add(stmt);
+		pendingPerStatement.add(0);
+		return stmt;
+	}
+
+	public void add(PreparedStatement stmt, int approximateBytes) throws SQLException {
+		int index = statements.indexOf(stmt);
+		if (index < 0) {
+			throw new IllegalArgumentException("Statement was not registered with this writer");
+		}
+		stmt.addBatch();
+		pendingPerStatement.set(index, pendingPerStatement.get(index) + 1);
+		pendingRows++;
+		pendingBytes += approximateBytes;
+		rowCount++;
+		if (pendingRows >= batchSize || pendingBytes >= batchBytes) {
+			flush();
+		}
+	}
+
+	public void flush() throws SQLException {
+		for (int i = 0; i < statements.size(); i++) {
+			if (pendingPerStatement.get(i) > 0) {
+				statements.get(i).executeBatch();
+				pendingPerStatement.set(i, 0);
+				roundTrips++;
+			}
+		}
+		pendingRows = 0;
+		pendingBytes = 0;
+	}
+
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	public int getRoundTrips() {
+		return roundTrips;
+	}
+}
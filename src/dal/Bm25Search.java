@@ -0,0 +1,246 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import dto.SearchResult;
+
+// Okapi BM25 ranking of files for a keyword query, read from the postings DocumentFrequencyIndex keeps:
+// file_terms for the term counts, file_lengths for the file lengths and corpus_stats for the number of
+// files and their average length. Only the postings of the query terms are read, and the best page of
+// each ranked file comes from the page_words counts of the analyzed pages.
+public class Bm25Search {
+	private final int documentCount;
+	private final double averageLength;
+	private final double k1;
+	private final double b;
+
+	public Bm25Search(int documentCount, double averageLength, double k1, double b) {
+		this.documentCount = documentCount;
+		this.averageLength = averageLength;
+		this.k1 = k1;
+		this.b = b;
+	}
+
+	public static Bm25Search getDefault(int documentCount, long totalWords) {
+		double averageLength = documentCount > 0 ? (double) totalWords / documentCount : 0;
+		return new Bm25Search(documentCount, averageLength,
+				Double.parseDouble(Config.getString("search.bm25.k1", "1.2")),
+				Double.parseDouble(Config.getString("search.bm25.b", "0.75")));
+	}
+
+	// The Lucene form, which stays positive for terms found in more than half of the files
+	public double inverseDocumentFrequency(int documentFrequency) {
+		return Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+	}
+
+	// Contribution of one query term to the score of a file of the given length
+	public double score(int termCount, int documentFrequency, double length) {
+		if (termCount <= 0) {
+			return 0;
+		}
+		double norm = averageLength > 0 ? 1 - b + b * length / averageLength : 1;
+		return inverseDocumentFrequency(documentFrequency) * termCount * (k1 + 1) / (termCount + k1 * norm);
+	}
+
+	// Runs in the caller's transaction. The k best files for the query, best first; files containing no
+	// query term are never returned.
+	public static List<SearchResult> search(Connection conn, String query, int k) throws SQLException {
+		List<SearchResult> results = new ArrayList<>();
+		TermCounter counter = new TermCounter();
+		counter.accept(query);
+		counter.finish();
+		Map<String, Integer> frequencies = DocumentFrequencyIndex.getDocumentFrequencies(conn,
+				counter.getTermCounts().keySet());
+		frequencies.remove("");
+		if (frequencies.isEmpty() || k <= 0) {
+			return results;
+		}
+
+		int documentCount = DocumentFrequencyIndex.getDocumentCount(conn);
+		Bm25Search bm25 = getDefault(documentCount, DocumentFrequencyIndex.getTotalWords(conn));
+		Map<Integer, Integer> termFrequencies = new HashMap<>();
+		Map<String, Double> termWeights = new HashMap<>();
+		StringBuilder termQuery = new StringBuilder("SELECT termId, term FROM terms WHERE term IN (");
+		for (int i = 0; i < frequencies.size(); i++) {
+			termQuery.append(i == 0 ? "?" : ", ?");
+		}
+		termQuery.append(")");
+		try (PreparedStatement stmt = conn.prepareStatement(termQuery.toString())) {
+			int parameter = 1;
+			for (String term : frequencies.keySet()) {
+				stmt.setString(parameter++, term);
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					String term = rs.getString("term");
+					termFrequencies.put(rs.getInt("termId"), frequencies.get(term));
+					termWeights.put(term, bm25.inverseDocumentFrequency(frequencies.get(term)));
+				}
+			}
+		}
+
+		// A file indexed before file_lengths existed is taken to be of average length
+		StringBuilder postingQuery = new StringBuilder("SELECT ft.fileId, ft.termId, ft.termCount, fl.wordCount "
+				+ "FROM file_terms ft LEFT JOIN file_lengths fl ON fl.fileId = ft.fileId WHERE ft.termId IN (");
+		for (int i = 0; i < termFrequencies.size(); i++) {
+			postingQuery.append(i == 0 ? "?" : ", ?");
+		}
+		postingQuery.append(") ORDER BY ft.fileId");
+		PriorityQueue<Candidate> topK = new PriorityQueue<>(k + 1);
+		try (PreparedStatement stmt = conn.prepareStatement(postingQuery.toString())) {
+			stmt.setFetchSize(10000);
+			int parameter = 1;
+			for (int termId : termFrequencies.keySet()) {
+				stmt.setInt(parameter++, termId);
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				Candidate current = null;
+				while (rs.next()) {
+					int fileId = rs.getInt("fileId");
+					if (current == null || current.fileId != fileId) {
+						offer(topK, current, k);
+						current = new Candidate(fileId);
+					}
+					int wordCount = rs.getInt("wordCount");
+					double length = rs.wasNull() ? bm25.averageLength : wordCount;
+					int termCount = rs.getInt("termCount");
+					current.score += bm25.score(termCount, termFrequencies.get(rs.getInt("termId")), length);
+					current.matchCount += termCount;
+				}
+				offer(topK, current, k);
+			}
+		}
+		if (topK.isEmpty()) {
+			return results;
+		}
+
+		Candidate[] best = topK.toArray(new Candidate[0]);
+		Arrays.sort(best, (x, y) -> y.compareTo(x));
+		Map<Integer, Candidate> byFileId = new HashMap<>();
+		for (Candidate candidate : best) {
+			byFileId.put(candidate.fileId, candidate);
+		}
+		readNames(conn, byFileId);
+		readBestPages(conn, byFileId, termWeights);
+		for (Candidate candidate : best) {
+			if (candidate.name != null) {
+				results.add(new SearchResult(candidate.fileId, candidate.name, candidate.score, candidate.matchCount,
+						candidate.bestPageNumber));
+			}
+		}
+		return results;
+	}
+
+	private static void offer(PriorityQueue<Candidate> topK, Candidate candidate, int k) {
+		if (candidate == null || candidate.score <= 0) {
+			return;
+		}
+		topK.add(candidate);
+		if (topK.size() > k) {
+			topK.poll();
+		}
+	}
+
+	private static void readNames(Connection conn, Map<Integer, Candidate> candidates) throws SQLException {
+		StringBuilder query = new StringBuilder("SELECT fileId, fileName FROM files WHERE fileId IN (");
+		for (int i = 0; i < candidates.size(); i++) {
+			query.append(i == 0 ? "?" : ", ?");
+		}
+		query.append(")");
+		try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+			int parameter = 1;
+			for (int fileId : candidates.keySet()) {
+				stmt.setInt(parameter++, fileId);
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					candidates.get(rs.getInt("fileId")).name = rs.getString("fileName");
+				}
+			}
+		}
+	}
+
+	// Pages of one file share a length closely enough that the idf-weighted count of the query terms
+	// ranks them; ties go to the earlier page. Files whose pages are not analyzed yet keep no best page.
+	private static void readBestPages(Connection conn, Map<Integer, Candidate> candidates,
+			Map<String, Double> termWeights) throws SQLException {
+		if (termWeights.isEmpty()) {
+			return;
+		}
+		StringBuilder query = new StringBuilder("SELECT p.fileId, p.pageNumber, wa.word, pw.frequency FROM page_words pw "
+				+ "JOIN pages p ON p.pageId = pw.pageId JOIN word_analysis wa ON wa.wordId = pw.wordId WHERE p.fileId IN (");
+		for (int i = 0; i < candidates.size(); i++) {
+			query.append(i == 0 ? "?" : ", ?");
+		}
+		query.append(") AND wa.word IN (");
+		for (int i = 0; i < termWeights.size(); i++) {
+			query.append(i == 0 ? "?" : ", ?");
+		}
+		query.append(") ORDER BY p.fileId, p.pageNumber");
+		try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+			int parameter = 1;
+			for (int fileId : candidates.keySet()) {
+				stmt.setInt(parameter++, fileId);
+			}
+			for (String term : termWeights.keySet()) {
+				stmt.setString(parameter++, term);
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				int currentFileId = -1;
+				int currentPage = -1;
+				double pageScore = 0;
+				while (rs.next()) {
+					int fileId = rs.getInt("fileId");
+					int pageNumber = rs.getInt("pageNumber");
+					if (fileId != currentFileId || pageNumber != currentPage) {
+						keepBestPage(candidates.get(currentFileId), currentPage, pageScore);
+						currentFileId = fileId;
+						currentPage = pageNumber;
+						pageScore = 0;
+					}
+					Double weight = termWeights.get(rs.getString("word"));
+					if (weight != null) {
+						pageScore += weight * rs.getInt("frequency");
+					}
+				}
+				keepBestPage(candidates.get(currentFileId), currentPage, pageScore);
+			}
+		}
+	}
+
+	private static void keepBestPage(Candidate candidate, int pageNumber, double pageScore) {
+		if (candidate != null && pageScore > candidate.bestPageScore) {
+			candidate.bestPageScore = pageScore;
+			candidate.bestPageNumber = pageNumber;
+		}
+	}
+
+	// Orders worst first: lower score, then higher file id
+	private static class Candidate implements Comparable<Candidate> {
+		private final int fileId;
+		private double score = 0;
+		private int matchCount = 0;
+		private String name;
+		private int bestPageNumber = -1;
+		private double bestPageScore = 0;
+
+		Candidate(int fileId) {
+			this.fileId = fileId;
+		}
+
+		@Override
+		public int compareTo(Candidate other) {
+			int byScore = Double.compare(score, other.score);
+			return byScore != 0 ? byScore : Integer.compare(other.fileId, fileId);
+		}
+	}
+}
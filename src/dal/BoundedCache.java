@@ -0,0 +1,133 @@
+package dal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public class BoundedCache<K, V> {
+	private final Segment<K, V>[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	// Each segment is an access-ordered LinkedHashMap behind its own lock, so lookups of
+	// different keys rarely contend and every segment evicts its least recently used entry
+	@SuppressWarnings("unchecked")
+	public BoundedCache(int capacity, int segmentCount) {
+		int count = Math.max(1, Math.min(segmentCount, capacity));
+		int segmentCapacity = Math.max(1, capacity / count);
+		segments = (Segment<K, V>[]) new Segment<?, ?>[count];
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment<>(segmentCapacity, evictions);
+		}
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[(h & 0x7fffffff) % segments.length];
+	}
+
+	public V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		V value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+		if (value != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return value;
+	}
+
+	public void put(K key, V value) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	// The loader runs outside the segment lock; two threads missing on the same key may both load it
+	public V get(K key, Function<K, V> loader) {
+		V value = get(key);
+		if (value == null) {
+			value = loader.apply(key);
+			if (value != null) {
+				put(key, value);
+			}
+		}
+		return value;
+	}
+
+	public void remove(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.remove(key);
+		}
+	}
+
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public double getHitRate() {
+		long total = getHits() + getMisses();
+		return total == 0 ? 0 : (double) getHits() / total;
+	}
+
+	@Override
+	public String toString() {
+		return "size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions="
+				+ getEvictions() + ", hitRate=" + String.format("%.2f", getHitRate());
+	}
+
+	private static class Segment<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+		private final LongAdder evictions;
+
+		Segment(int capacity, LongAdder evictions) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+}
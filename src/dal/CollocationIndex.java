@@ -0,0 +1,309 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Unigram and bigram counts of preprocessed words across files, for PMI collocation queries over the
+// whole corpus. Words are interned to dense ids and a bigram is counted under its two ids packed into one
+// long, so the counts live in primitive maps. Bigrams span page boundaries but not files. Counts are
+// added and subtracted file by file, streamed straight from the file's pages or merged from an index of
+// its own. Entries whose counts fall to 0 stay until the index is counted again; shouldRebuild() says
+// when they outnumber the live ones.
+//
+// With analytics.counting = sketch the corpus-wide bigram counts are approximate and take a fixed amount
+// of memory however many distinct pairs the corpus has: a CountMinSketch of analytics.sketchMegabytes
+// estimates any pair's count, and a SpaceSaving summary of analytics.heavyHitters pairs remembers which
+// pairs are frequent enough to be listed as top collocations. Word counts stay exact.
+public class CollocationIndex {
+	private final Vocabulary vocabulary = new Vocabulary();
+	private final IntIntMap unigramCounts = new IntIntMap();
+	// Exact counts, or null when the sketch and the heavy hitters count instead
+	private final LongIntMap bigramCounts;
+	private final CountMinSketch bigramSketch;
+	private final SpaceSaving heavyBigrams;
+	private long wordCount = 0;
+	private int previousWordId = -1;
+	// Word and exact pair entries whose counts fell to 0; some may have been counted up again since
+	private long zeroedEntries = 0;
+	// Bumped on every change so the last top collocations are only recomputed after one
+	private long modifications = 0;
+	private long cachedModifications = -1;
+	private int cachedCount;
+	private int cachedMinCount;
+	private Map<String, Double> cachedCollocations;
+
+	public CollocationIndex() {
+		bigramCounts = new LongIntMap();
+		bigramSketch = null;
+		heavyBigrams = null;
+	}
+
+	private CollocationIndex(CountMinSketch bigramSketch, SpaceSaving heavyBigrams) {
+		bigramCounts = null;
+		this.bigramSketch = bigramSketch;
+		this.heavyBigrams = heavyBigrams;
+	}
+
+	public static CollocationIndex approximate(long sketchBytes, int depth, int heavyHitters) {
+		return new CollocationIndex(CountMinSketch.forBudget(sketchBytes, depth), new SpaceSaving(heavyHitters));
+	}
+
+	// An empty corpus-wide index counting the way analytics.counting asks
+	public static CollocationIndex fromConfig() {
+		if (!Config.getString("analytics.counting", "exact").equalsIgnoreCase("sketch")) {
+			return new CollocationIndex();
+		}
+		return approximate(Config.getInt("analytics.sketchMegabytes", 64) * 1024L * 1024L,
+				Config.getInt("analytics.sketchDepth", 4), Config.getInt("analytics.heavyHitters", 100000));
+	}
+
+	// Reads the pages of every file once, in file order
+	public static CollocationIndex build(Connection conn) throws SQLException {
+		CollocationIndex index = fromConfig();
+		try (PreparedStatement stmt = conn
+				.prepareStatement("SELECT fileId, pageContent FROM pages ORDER BY fileId, pageNumber")) {
+			stmt.setFetchSize(1000);
+			try (ResultSet rs = stmt.executeQuery()) {
+				TermCounter counter = null;
+				int currentFileId = -1;
+				while (rs.next()) {
+					int fileId = rs.getInt("fileId");
+					if (counter == null || fileId != currentFileId) {
+						index.endFile(counter);
+						counter = new TermCounter(index::addWord);
+						currentFileId = fileId;
+					}
+					counter.accept(rs.getString("pageContent"));
+				}
+				index.endFile(counter);
+			}
+		}
+		return index;
+	}
+
+	// Adds the words of a stored file, read one page at a time, or takes them away with sign -1. Nothing
+	// but the corpus-wide counts is built, so approximate counts stay within their memory budget.
+	public void addFile(Connection conn, int fileId, int sign) throws SQLException {
+		TermCounter counter = new TermCounter(word -> addWord(word, sign));
+		try (PreparedStatement stmt = conn
+				.prepareStatement("SELECT pageContent FROM pages WHERE fileId = ? ORDER BY pageNumber")) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					counter.accept(rs.getString("pageContent"));
+				}
+			}
+		}
+		endFile(counter);
+	}
+
+	// Words of one file in text order; endFile() separates files
+	public void addWord(String word) {
+		addWord(word, 1);
+	}
+
+	private synchronized void addWord(String word, int sign) {
+		int wordId = vocabulary.intern(word, 0, word.length());
+		countZeroed(unigramCounts.increment(wordId, sign));
+		wordCount += sign;
+		if (previousWordId >= 0) {
+			addBigram(bigramKey(previousWordId, wordId), sign);
+		}
+		previousWordId = wordId;
+		modifications++;
+	}
+
+	private void countZeroed(int count) {
+		if (count == 0) {
+			zeroedEntries++;
+		}
+	}
+
+	// True once the entries whose counts fell to 0 outnumber the live ones, and counting the corpus again
+	// would give the memory back
+	public synchronized boolean shouldRebuild() {
+		long entries = unigramCounts.size() + (bigramCounts != null ? bigramCounts.size() : 0);
+		return zeroedEntries * 2 > entries;
+	}
+
+	public synchronized void endFile() {
+		previousWordId = -1;
+	}
+
+	private void endFile(TermCounter counter) {
+		if (counter != null) {
+			counter.finish();
+		}
+		endFile();
+	}
+
+	private void addBigram(long key, int delta) {
+		if (bigramCounts != null) {
+			countZeroed(bigramCounts.increment(key, delta));
+		} else {
+			bigramSketch.add(key, delta);
+			heavyBigrams.add(key, delta);
+		}
+	}
+
+	private int getBigramCount(long key) {
+		return bigramCounts != null ? bigramCounts.get(key) : bigramSketch.estimate(key);
+	}
+
+	public boolean isApproximate() {
+		return bigramCounts == null;
+	}
+
+	// How far an approximate pair count may exceed the true count, except with probability
+	// CountMinSketch.getFailureProbability(); 0 for exact counts
+	public synchronized double getBigramErrorBound() {
+		return bigramCounts != null ? 0 : bigramSketch.getErrorBound();
+	}
+
+	// Adds the counts of another index, or takes them away with sign -1. The other index must count exactly,
+	// as the per-file indexes do.
+	public void merge(CollocationIndex other, int sign) {
+		if (other.isApproximate()) {
+			throw new IllegalArgumentException("Only exact counts can be merged");
+		}
+		synchronized (other) {
+			synchronized (this) {
+				int[] wordIds = new int[other.vocabulary.size()];
+				for (int otherId = 0; otherId < wordIds.length; otherId++) {
+					String word = other.vocabulary.term(otherId);
+					wordIds[otherId] = vocabulary.intern(word, 0, word.length());
+				}
+				for (int i = 0; i < other.unigramCounts.size(); i++) {
+					countZeroed(unigramCounts.increment(wordIds[other.unigramCounts.keyAt(i)],
+							sign * other.unigramCounts.valueAt(i)));
+				}
+				for (int i = 0; i < other.bigramCounts.size(); i++) {
+					long key = other.bigramCounts.keyAt(i);
+					addBigram(bigramKey(wordIds[(int) (key >>> 32)], wordIds[(int) key]),
+							sign * other.bigramCounts.valueAt(i));
+				}
+				wordCount += sign * other.wordCount;
+				modifications++;
+			}
+		}
+	}
+
+	public synchronized long getWordCount() {
+		return wordCount;
+	}
+
+	public synchronized int getCount(String word) {
+		int wordId = wordId(word);
+		return wordId < 0 ? 0 : unigramCounts.get(wordId);
+	}
+
+	public synchronized int getCount(String word1, String word2) {
+		int id1 = wordId(word1);
+		int id2 = wordId(word2);
+		return id1 < 0 || id2 < 0 ? 0 : getBigramCount(bigramKey(id1, id2));
+	}
+
+	// PMI in bits, with probabilities taken over the word count as PMICalculator takes them within a page;
+	// negative infinity when the pair never occurs. The words are preprocessed like page text.
+	public synchronized double pmi(String word1, String word2) {
+		int id1 = wordId(word1);
+		int id2 = wordId(word2);
+		if (id1 < 0 || id2 < 0) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		return pmi(unigramCounts.get(id1), unigramCounts.get(id2), getBigramCount(bigramKey(id1, id2)));
+	}
+
+	private double pmi(int count1, int count2, int bigramCount) {
+		if (count1 <= 0 || count2 <= 0 || bigramCount <= 0) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		return Math.log((double) bigramCount * wordCount / ((double) count1 * count2)) / Math.log(2);
+	}
+
+	// "word1 word2" -> PMI of the n pairs with the highest PMI among those seen at least minCount times,
+	// best first. A minimum count keeps pairs of words seen once or twice from crowding out the rest.
+	// Approximate counts only list the monitored heavy hitters, with the lower of their two estimates.
+	public synchronized Map<String, Double> topCollocations(int n, int minCount) {
+		if (cachedModifications == modifications && cachedCount == n && cachedMinCount == minCount) {
+			return new LinkedHashMap<>(cachedCollocations);
+		}
+		PriorityQueue<Candidate> best = new PriorityQueue<>(Math.max(1, n) + 1);
+		int candidates = bigramCounts != null ? bigramCounts.size() : heavyBigrams.size();
+		for (int i = 0; i < candidates && n > 0; i++) {
+			long key;
+			int bigramCount;
+			if (bigramCounts != null) {
+				key = bigramCounts.keyAt(i);
+				bigramCount = bigramCounts.valueAt(i);
+			} else {
+				key = heavyBigrams.keyAt(i);
+				bigramCount = Math.min(heavyBigrams.countAt(i), bigramSketch.estimate(key));
+			}
+			if (bigramCount < Math.max(1, minCount)) {
+				continue;
+			}
+			double score = pmi(unigramCounts.get((int) (key >>> 32)), unigramCounts.get((int) key), bigramCount);
+			if (best.size() < n || score > best.peek().score) {
+				best.add(new Candidate(key, score));
+				if (best.size() > n) {
+					best.poll();
+				}
+			}
+		}
+		Candidate[] sorted = best.toArray(new Candidate[0]);
+		Arrays.sort(sorted, (a, b) -> Double.compare(b.score, a.score));
+		Map<String, Double> collocations = new LinkedHashMap<>();
+		for (Candidate candidate : sorted) {
+			collocations.put(vocabulary.term((int) (candidate.key >>> 32)) + " " + vocabulary.term((int) candidate.key),
+					candidate.score);
+		}
+		cachedModifications = modifications;
+		cachedCount = n;
+		cachedMinCount = minCount;
+		cachedCollocations = collocations;
+		return new LinkedHashMap<>(collocations);
+	}
+
+	// -1 unless the text preprocesses to a single known word
+	private int wordId(String text) {
+		TermCounter counter = new TermCounter();
+		counter.accept(text);
+		counter.finish();
+		String word = null;
+		for (String term : counter.getTermCounts().keySet()) {
+			if (!term.isEmpty()) {
+				if (word != null) {
+					return -1;
+				}
+				word = term;
+			}
+		}
+		return word == null ? -1 : vocabulary.id(word);
+	}
+
+	private static long bigramKey(int id1, int id2) {
+		return ((long) id1 << 32) | (id2 & 0xFFFFFFFFL);
+	}
+
+	private static class Candidate implements Comparable<Candidate> {
+		private final long key;
+		private final double score;
+
+		Candidate(long key, double score) {
+			this.key = key;
+			this.score = score;
+		}
+
+		@Override
+		public int compareTo(Candidate other) {
+			return Double.compare(score, other.score);
+		}
+	}
+}
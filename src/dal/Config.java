@@ -0,0 +1,46 @@
+package dal;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.EditorPO;
+
+public class Config {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+	private static Properties properties;
+
+	private static synchronized Properties getProperties() {
+		if (properties == null) {
+			properties = new Properties();
+			try (FileInputStream input = new FileInputStream("config.properties")) {
+				properties.load(input);
+			} catch (IOException e) {
+				e.printStackTrace();
+				LOGGER.error(e.getMessage());
+			}
+		}
+		return properties;
+	}
+
+	public static String getString(String key, String defaultValue) {
+		String value = getProperties().getProperty(key);
+		return (value == null || value.trim().isEmpty()) ? defaultValue : value.trim();
+	}
+
+	public static int getInt(String key, int defaultValue) {
+		String value = getString(key, null);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			LOGGER.error("Invalid value for " + key + ": " + value);
+			return defaultValue;
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.EditorPO;
+
+// The corpus-wide word distribution performPKL scores text against: how often each preprocessed term
+// occurs across the stored files, persisted as terms.corpusFrequency and corpus_stats.totalWords, which
+// DocumentFrequencyIndex keeps in step with every import, edit, link and delete. It is read from the
+// database once and then follows the corpus through the term counts the DAO applies after each commit;
+// a corpus version it did not follow, such as a TF-IDF recompute, makes the next get() read it again.
+public class CorpusDistribution {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+	private static CorpusDistribution shared;
+
+	private final Vocabulary vocabulary = new Vocabulary();
+	private int[] counts = new int[1024];
+	private long totalWords = 0;
+	private long version = -1;
+
+	public static synchronized CorpusDistribution get(Connection conn) throws SQLException {
+		long version = DocumentFrequencyIndex.getCorpusVersion(conn);
+		if (shared == null || shared.version != version) {
+			long startTime = System.nanoTime();
+			shared = load(conn, version);
+			LOGGER.info(String.format("Loaded the corpus distribution of %d terms in %.2f s", shared.vocabulary.size(),
+					(System.nanoTime() - startTime) / 1e9));
+		}
+		return shared;
+	}
+
+	public static synchronized boolean isLoaded() {
+		return shared != null;
+	}
+
+	private static CorpusDistribution load(Connection conn, long version) throws SQLException {
+		CorpusDistribution distribution = new CorpusDistribution();
+		distribution.version = version;
+		try (PreparedStatement stmt = conn
+				.prepareStatement("SELECT term, corpusFrequency FROM terms WHERE corpusFrequency > 0")) {
+			stmt.setFetchSize(10000);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					distribution.add(rs.getString("term"), rs.getInt("corpusFrequency"));
+				}
+			}
+		}
+		return distribution;
+	}
+
+	// Applies a committed change that moved the corpus from oldVersion to newVersion. A distribution that was
+	// not at oldVersion has missed another change and is read again, unless it was already read at newVersion.
+	public static synchronized void apply(Map<String, Integer> removed, Map<String, Integer> added, long oldVersion,
+			long newVersion) {
+		if (shared == null || shared.version == newVersion) {
+			return;
+		}
+		if (shared.version != oldVersion) {
+			shared = null;
+			return;
+		}
+		shared.update(removed, -1);
+		shared.update(added, 1);
+		shared.version = newVersion;
+	}
+
+	private synchronized void update(Map<String, Integer> termCounts, int sign) {
+		if (termCounts == null) {
+			return;
+		}
+		for (Map.Entry<String, Integer> entry : termCounts.entrySet()) {
+			String term = entry.getKey();
+			// As stored by DocumentFrequencyIndex
+			if (!term.isEmpty() && term.length() <= DocumentFrequencyIndex.MAX_TERM_LENGTH) {
+				add(term, sign * entry.getValue());
+			}
+		}
+	}
+
+	// Occurrences of a term joining the corpus, or leaving it with a negative count
+	public synchronized void add(String term, int count) {
+		int termId = vocabulary.intern(term, 0, term.length());
+		if (termId == counts.length) {
+			counts = Arrays.copyOf(counts, termId * 2);
+		}
+		counts[termId] += count;
+		totalWords += count;
+	}
+
+	public synchronized long getTotalWords() {
+		return totalWords;
+	}
+
+	public synchronized double probability(String term) {
+		int termId = vocabulary.id(term);
+		return termId < 0 || totalWords <= 0 ? 0.0 : Math.max(0, counts[termId]) / (double) totalWords;
+	}
+
+	// Corpus probabilities of the distinct tokens of a page, by distinct token id, under one lock
+	public synchronized double[] probabilities(Tokenizer tokens) {
+		double[] probabilities = new double[tokens.getDistinctCount()];
+		CharSequence text = tokens.getText();
+		for (int id = 0; id < probabilities.length; id++) {
+			int index = tokens.firstIndex(id);
+			int termId = vocabulary.id(text, tokens.start(index), tokens.end(index));
+			if (termId >= 0 && totalWords > 0) {
+				probabilities[id] = Math.max(0, counts[termId]) / (double) totalWords;
+			}
+		}
+		return probabilities;
+	}
+}
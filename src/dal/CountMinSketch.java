@@ -0,0 +1,100 @@
+package dal;
+
+import java.util.Random;
+
+// Count-min sketch of long keys: depth rows of width counters, each row hashing a key to one counter.
+// An estimate is the smallest of a key's counters, so it never falls below the true count while counts
+// stay non-negative, and with width w and depth d it exceeds it by more than e / w times the total of
+// all counts with probability at most e^-d. Counts may also be taken away, as long as no key goes below 0.
+public class CountMinSketch {
+	// Fixed so that sketches of the same shape can be merged
+	private static final long SEED = 0x2545F4914F6CDD1DL;
+	// All counters live in one int-indexed array
+	private static final int MAX_COUNTERS = Integer.MAX_VALUE - 8;
+
+	private final int width;
+	private final int depth;
+	private final int shift;
+	private final long[] multipliers;
+	private final int[] counters;
+	private long total = 0;
+
+	// The width is rounded down to a power of two
+	public CountMinSketch(int width, int depth) {
+		if (width < 2 || depth < 1) {
+			throw new IllegalArgumentException("Width must be at least 2 and depth positive");
+		}
+		if ((long) Integer.highestOneBit(width) * depth > MAX_COUNTERS) {
+			throw new IllegalArgumentException("A sketch of width " + Integer.highestOneBit(width) + " and depth "
+					+ depth + " has more counters than an array can hold");
+		}
+		this.width = Integer.highestOneBit(width);
+		this.depth = depth;
+		this.shift = 64 - Integer.numberOfTrailingZeros(this.width);
+		multipliers = new long[depth];
+		Random random = new Random(SEED);
+		for (int row = 0; row < depth; row++) {
+			multipliers[row] = random.nextLong() | 1;
+		}
+		counters = new int[this.width * depth];
+	}
+
+	// The widest sketch of this depth whose counters fit in the budget and in one array
+	public static CountMinSketch forBudget(long bytes, int depth) {
+		long width = Math.max(2, bytes / 4 / Math.max(1, depth));
+		return new CountMinSketch((int) Math.min(width, MAX_COUNTERS / Math.max(1, depth)), depth);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public long getMemoryBytes() {
+		return (long) counters.length * 4;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	// How far an estimate may exceed the true count, except with probability getFailureProbability()
+	public double getErrorBound() {
+		return Math.E / width * total;
+	}
+
+	public double getFailureProbability() {
+		return Math.exp(-depth);
+	}
+
+	public void add(long key, int delta) {
+		long hash = mix(key);
+		for (int row = 0; row < depth; row++) {
+			counters[row * width + index(hash, row)] += delta;
+		}
+		total += delta;
+	}
+
+	public int estimate(long key) {
+		long hash = mix(key);
+		int estimate = Integer.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			estimate = Math.min(estimate, counters[row * width + index(hash, row)]);
+		}
+		return Math.max(0, estimate);
+	}
+
+	private int index(long hash, int row) {
+		return (int) ((hash * multipliers[row]) >>> shift);
+	}
+
+	// The splitmix64 finalizer, so keys that differ in a few bits land in unrelated counters
+	private static long mix(long key) {
+		key = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+		key = (key ^ (key >>> 27)) * 0x94d049bb133111ebL;
+		return key ^ (key >>> 31);
+	}
+}
@@ -19,6 +19,7 @@ public class DatabaseConnection {
     private String url;
     private String username;
     private String password;
+    private Properties connectionProperties = new Properties();
     final Logger LOGGER = LogManager.getLogger(EditorPO.class);
 
     private DatabaseConnection() {
@@ -29,7 +30,15 @@ public class DatabaseConnection {
             url = properties.getProperty("db.url");
             username = properties.getProperty("db.username");
             password = properties.getProperty("db.password");
-            connection = DriverManager.getConnection(url, username, password);
+            if (username != null) {
+                connectionProperties.setProperty("user", username);
+            }
+            if (password != null) {
+                connectionProperties.setProperty("password", password);
+            }
+            // Sends a batch as one bulk command instead of one round trip per row
+            connectionProperties.setProperty("useBulkStmts", properties.getProperty("db.useBulkStmts", "true"));
+            connection = DriverManager.getConnection(url, connectionProperties);
         } catch (IOException | SQLException e) {
             e.printStackTrace();
             LOGGER.error(e.getMessage());
@@ -47,6 +56,11 @@ public class DatabaseConnection {
         return connection;
     }
 
+    // A separate session for work that must not share the editor's transaction
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(url, connectionProperties);
+    }
+
     public void closeConnection() {
         if (connection != null) {
             try {
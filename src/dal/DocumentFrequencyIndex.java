@@ -0,0 +1,294 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.EditorPO;
+
+// Document frequencies for TF-IDF. terms holds how many files contain each preprocessed term and how
+// often it occurs across them, file_terms the term counts of every file, file_lengths the words of every
+// file counted in file_terms, and corpus_stats the number of files and their words. All of them are
+// updated in the transaction that creates, edits, links or deletes a file, so scoring a file only reads
+// the rows of its own terms however large the corpus grows.
+public class DocumentFrequencyIndex {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+	// Longer terms do not fit the terms table; they are scored as if no other file contained them
+	static final int MAX_TERM_LENGTH = 255;
+	private static final int LOOKUP_CHUNK = 500;
+	private static boolean built = false;
+
+	// Builds the index from the stored pages once, for a database created before the index existed
+	public static synchronized void ensureBuilt(Connection conn) throws SQLException {
+		if (built) {
+			return;
+		}
+		try (Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT 1 FROM corpus_stats WHERE statId = 1")) {
+			if (rs.next()) {
+				built = true;
+				return;
+			}
+		}
+
+		long startTime = System.nanoTime();
+		boolean autoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(false);
+		try {
+			try (Statement stmt = conn.createStatement()) {
+				stmt.executeUpdate("DELETE FROM file_terms");
+				stmt.executeUpdate("DELETE FROM file_lengths");
+				stmt.executeUpdate("DELETE FROM terms");
+				stmt.executeUpdate("INSERT INTO corpus_stats (statId, documentCount) VALUES (1, 0)");
+			}
+			List<Integer> fileIds = new ArrayList<>();
+			try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT fileId FROM files")) {
+				while (rs.next()) {
+					fileIds.add(rs.getInt("fileId"));
+				}
+			}
+			for (int fileId : fileIds) {
+				addDocument(conn, fileId, countTerms(conn, fileId).getTermCounts());
+			}
+			conn.commit();
+			built = true;
+			LOGGER.info(String.format("Built the document frequency index for %d files in %.2f s", fileIds.size(),
+					(System.nanoTime() - startTime) / 1e9));
+		} catch (SQLException e) {
+			conn.rollback();
+			throw e;
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+	}
+
+	public static int getDocumentCount(Connection conn) throws SQLException {
+		try (Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT documentCount FROM corpus_stats WHERE statId = 1")) {
+			return rs.next() ? rs.getInt("documentCount") : 0;
+		}
+	}
+
+	// Words in the files, as counted in file_terms
+	public static long getTotalWords(Connection conn) throws SQLException {
+		try (Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT totalWords FROM corpus_stats WHERE statId = 1")) {
+			return rs.next() ? rs.getLong("totalWords") : 0;
+		}
+	}
+
+	// Changes whenever a file joins, leaves or changes; TF-IDF vectors computed under another version are stale
+	public static long getCorpusVersion(Connection conn) throws SQLException {
+		try (Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT version FROM corpus_stats WHERE statId = 1")) {
+			return rs.next() ? rs.getLong("version") : 0;
+		}
+	}
+
+	// Read before a transaction changes the corpus. The row stays locked until it ends, so changes made on
+	// other connections commit one after another, and the plain reads that follow see the latest of them
+	public static long lockCorpusVersion(Connection conn) throws SQLException {
+		try (Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT version FROM corpus_stats WHERE statId = 1 FOR UPDATE")) {
+			return rs.next() ? rs.getLong("version") : 0;
+		}
+	}
+
+	// Terms no file contains are left out
+	public static Map<String, Integer> getDocumentFrequencies(Connection conn, Collection<String> terms)
+			throws SQLException {
+		Map<String, Integer> frequencies = new HashMap<>();
+		List<String> lookup = new ArrayList<>();
+		for (String term : terms) {
+			if (term.length() <= MAX_TERM_LENGTH) {
+				lookup.add(term);
+			}
+		}
+		for (int start = 0; start < lookup.size(); start += LOOKUP_CHUNK) {
+			List<String> chunk = lookup.subList(start, Math.min(lookup.size(), start + LOOKUP_CHUNK));
+			StringBuilder query = new StringBuilder(
+					"SELECT term, documentFrequency FROM terms WHERE documentFrequency > 0 AND term IN (");
+			for (int i = 0; i < chunk.size(); i++) {
+				query.append(i == 0 ? "?" : ", ?");
+			}
+			query.append(")");
+
+			try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+				for (int i = 0; i < chunk.size(); i++) {
+					stmt.setString(i + 1, chunk.get(i));
+				}
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						frequencies.put(rs.getString("term"), rs.getInt("documentFrequency"));
+					}
+				}
+			}
+		}
+		return frequencies;
+	}
+
+	// Runs in the caller's transaction. Terms are written in sorted order so that concurrent imports lock
+	// shared terms rows in the same order.
+	public static void addDocument(Connection conn, int fileId, Map<String, Integer> termCounts) throws SQLException {
+		String termQuery = "INSERT INTO terms (term, documentFrequency, corpusFrequency) VALUES (?, 1, ?) "
+				+ "ON DUPLICATE KEY UPDATE documentFrequency = documentFrequency + 1, "
+				+ "corpusFrequency = corpusFrequency + VALUES(corpusFrequency)";
+		String fileTermQuery = "INSERT INTO file_terms (fileId, termId, termCount) SELECT ?, termId, ? FROM terms WHERE term = ?";
+		try (PreparedStatement termStmt = conn.prepareStatement(termQuery);
+				PreparedStatement fileTermStmt = conn.prepareStatement(fileTermQuery)) {
+			BatchWriter writer = new BatchWriter();
+			writer.register(termStmt);
+			writer.register(fileTermStmt);
+			int wordCount = 0;
+			for (Map.Entry<String, Integer> entry : new TreeMap<>(termCounts).entrySet()) {
+				String term = entry.getKey();
+				if (term.isEmpty() || term.length() > MAX_TERM_LENGTH) {
+					continue;
+				}
+				wordCount += entry.getValue();
+				termStmt.setString(1, term);
+				termStmt.setInt(2, entry.getValue());
+				writer.add(termStmt, 12 + term.length() * 2);
+				fileTermStmt.setInt(1, fileId);
+				fileTermStmt.setInt(2, entry.getValue());
+				fileTermStmt.setString(3, term);
+				writer.add(fileTermStmt, 16 + term.length() * 2);
+			}
+			writer.flush();
+			try (PreparedStatement lengthStmt = conn
+					.prepareStatement("INSERT INTO file_lengths (fileId, wordCount) VALUES (?, ?)")) {
+				lengthStmt.setInt(1, fileId);
+				lengthStmt.setInt(2, wordCount);
+				lengthStmt.executeUpdate();
+			}
+			updateDocumentCount(conn, 1, wordCount);
+		}
+	}
+
+	// Runs in the caller's transaction, before the file's rows are deleted
+	public static void removeDocument(Connection conn, int fileId) throws SQLException {
+		String termQuery = "UPDATE terms t JOIN file_terms ft ON ft.termId = t.termId "
+				+ "SET t.documentFrequency = t.documentFrequency - 1, t.corpusFrequency = t.corpusFrequency - ft.termCount "
+				+ "WHERE ft.fileId = ?";
+		try (PreparedStatement termStmt = conn.prepareStatement(termQuery);
+				PreparedStatement deleteStmt = conn.prepareStatement("DELETE FROM file_terms WHERE fileId = ?");
+				PreparedStatement deleteLengthStmt = conn.prepareStatement("DELETE FROM file_lengths WHERE fileId = ?")) {
+			termStmt.setInt(1, fileId);
+			termStmt.executeUpdate();
+			deleteStmt.setInt(1, fileId);
+			deleteStmt.executeUpdate();
+			int wordCount = getWordCount(conn, fileId);
+			deleteLengthStmt.setInt(1, fileId);
+			deleteLengthStmt.executeUpdate();
+			updateDocumentCount(conn, -1, -wordCount);
+		}
+	}
+
+	// A linked file has the same terms as its source
+	public static void copyDocument(Connection conn, int fileId, int sourceFileId) throws SQLException {
+		String copyQuery = "INSERT INTO file_terms (fileId, termId, termCount) "
+				+ "SELECT ?, termId, termCount FROM file_terms WHERE fileId = ?";
+		String termQuery = "UPDATE terms t JOIN file_terms ft ON ft.termId = t.termId "
+				+ "SET t.documentFrequency = t.documentFrequency + 1, t.corpusFrequency = t.corpusFrequency + ft.termCount "
+				+ "WHERE ft.fileId = ?";
+		try (PreparedStatement copyStmt = conn.prepareStatement(copyQuery);
+				PreparedStatement termStmt = conn.prepareStatement(termQuery)) {
+			copyStmt.setInt(1, fileId);
+			copyStmt.setInt(2, sourceFileId);
+			copyStmt.executeUpdate();
+			termStmt.setInt(1, fileId);
+			termStmt.executeUpdate();
+		}
+		int wordCount = getWordCount(conn, sourceFileId);
+		try (PreparedStatement lengthStmt = conn
+				.prepareStatement("INSERT INTO file_lengths (fileId, wordCount) VALUES (?, ?)")) {
+			lengthStmt.setInt(1, fileId);
+			lengthStmt.setInt(2, wordCount);
+			lengthStmt.executeUpdate();
+		}
+		updateDocumentCount(conn, 1, wordCount);
+	}
+
+	// The stored term counts of a file; empty for a file that is not indexed
+	public static Map<String, Integer> getTermCounts(Connection conn, int fileId) throws SQLException {
+		Map<String, Integer> termCounts = new HashMap<>();
+		try (PreparedStatement stmt = conn.prepareStatement(
+				"SELECT t.term, ft.termCount FROM file_terms ft JOIN terms t ON t.termId = ft.termId WHERE ft.fileId = ?")) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					termCounts.put(rs.getString("term"), rs.getInt("termCount"));
+				}
+			}
+		}
+		return termCounts;
+	}
+
+	// Words of a file counted in file_terms, 0 for a file that is not indexed
+	public static int getWordCount(Connection conn, int fileId) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT wordCount FROM file_lengths WHERE fileId = ?")) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? rs.getInt("wordCount") : 0;
+			}
+		}
+	}
+
+	private static void updateDocumentCount(Connection conn, int change, long wordChange) throws SQLException {
+		String query = "UPDATE corpus_stats SET documentCount = documentCount + ?, totalWords = totalWords + ?, "
+				+ "version = version + 1 WHERE statId = 1";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, change);
+			stmt.setLong(2, wordChange);
+			stmt.executeUpdate();
+		}
+	}
+
+	// TF-IDF score of a stored file against the other files, as TFIDFCalculator scores it at import but
+	// taken from the file's file_terms rows, so no page is read
+	public static double scoreDocument(Connection conn, int fileId) throws SQLException {
+		int documentCount = getDocumentCount(conn);
+		String query = "SELECT ft.termCount, t.documentFrequency FROM file_terms ft "
+				+ "JOIN terms t ON t.termId = ft.termId WHERE ft.fileId = ? AND t.term <> ''";
+		long totalWords = 0;
+		double weightedCount = 0.0;
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					int termCount = rs.getInt("termCount");
+					weightedCount += termCount
+							* TFIDFCalculator.otherFileIdf(rs.getInt("documentFrequency"), documentCount);
+					totalWords += termCount;
+				}
+			}
+		}
+		return totalWords == 0 ? 0.0 : weightedCount / totalWords / totalWords;
+	}
+
+	// Term counts of a stored file, read one page at a time
+	public static TermCounter countTerms(Connection conn, int fileId) throws SQLException {
+		TermCounter counter = new TermCounter();
+		try (PreparedStatement stmt = conn
+				.prepareStatement("SELECT pageContent FROM pages WHERE fileId = ? ORDER BY pageNumber")) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					counter.accept(rs.getString("pageContent"));
+				}
+			}
+		}
+		return counter;
+	}
+}
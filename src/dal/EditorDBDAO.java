@@ -1,230 +1,451 @@
 package dal;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import dto.Documents;
+import dto.ImportResult;
 import dto.Pages;
+import dto.RecomputeSummary;
+import dto.SearchResult;
+import dto.SimilarFile;
 import pl.EditorPO;
 
 public class EditorDBDAO implements IEditorDBDAO {
 	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+	private static final String[][] LEGACY_ANALYTICS = { { "pos", "word, pos" }, { "lemmatization", "word, lemma" },
+			{ "rootextraction", "word, root" }, { "wordsegementation", "word, segment" }, { "stemmation", "word, stem" } };
 	Connection conn = null;
+	// The editor asks for POS, lemma, root, stem and segments of the same page back to back
+	private String lastAnalyzedText;
+	private Map<String, MorphologyAnalysis> lastMorphology;
+	// Rebuilt on the first similarity query after the corpus changes
+	private SimilarityIndex similarityIndex;
+	private long similarityIndexVersion = -1;
+	// Built on the first collocation query, then kept current as files are stored, edited and deleted
+	private volatile CollocationIndex collocationIndex;
+	private long collocationIndexVersion = -1;
+	// Imports run on DAOs of their own, each with its own connection, so files are stored in parallel and
+	// the editor's connection stays free; they keep their owner's collocation counts current
+	private final EditorDBDAO owner;
+	private final BlockingQueue<EditorDBDAO> idleImportSessions = new LinkedBlockingQueue<>();
+	private int importSessionCount = 0;
 
 	public EditorDBDAO() {
 		this.conn = DatabaseConnection.getInstance().getConnection();
+		this.owner = this;
+	}
 
+	private EditorDBDAO(Connection conn, EditorDBDAO owner) {
+		this.conn = conn;
+		this.owner = owner;
 	}
 
+	// Files created in the editor are stored whatever is already in the database
 	@Override
 	public synchronized boolean createFileInDB(String nameOfFile, String content) {
-		String hash = null;
-		List<Pages> pages = null;
+		if (content == null) {
+			LOGGER.error("No content for " + nameOfFile);
+			return false;
+		}
+		try {
+			return createFileInDB(nameOfFile, new PageStream(content), false).isStored();
+		} catch (NoSuchAlgorithmException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return false;
+		}
+	}
 
-		String insertQuery = "INSERT INTO files (fileName, fileHash) VALUES (?, ?)";
-		String pageQuery = "INSERT INTO pages (fileId, pageNumber, pageContent) VALUES (?, ?, ?)";
-		String transliterateQuery = "INSERT INTO transliteratedpages (pageId, transliteratedText) VALUES (?, ?)";
-		;
-		String posQuery = "INSERT INTO pos (pageId, word, pos) VALUES (?, ?, ?)";
-		String lemmaQuery = "INSERT INTO lemmatization (pageId, word, lemma) VALUES (?, ?, ?)";
-		String rootQuery = "INSERT INTO rootextraction (pageId, word, root) VALUES (?, ?, ?)";
-		String stemQuery = "INSERT INTO stemmation (pageId, word, stem) VALUES (?, ?, ?)";
-		String segmentQuery = "INSERT INTO wordsegementation (pageId, word, segment) VALUES (?, ?, ?)";
-		String tfidfQuery = "INSERT INTO tfidf (fileId, tfidfScore) VALUES (?, ?)";
-		String pklQuery = "INSERT INTO pkl (pageId, word, pklScore) VALUES (?, ?, ?)";
-		String pmiQuery = "INSERT INTO pmi (pageId, word, pmiScore) VALUES (?, ?, ?)";
-		Map<String, String> analyticsMap = new HashMap<>();
-		Map<String, Double> scoreMap = new HashMap<>();
+	// Imported files go through import.duplicatePolicy when their content is already stored. Up to
+	// import.threads files are stored at once; they are only stored on the editor's connection when no
+	// other connection could be opened.
+	@Override
+	public ImportResult createFileInDB(String nameOfFile, Reader contentReader) {
+		EditorDBDAO session = borrowImportSession();
+		if (session == null) {
+			synchronized (this) {
+				return importFile(nameOfFile, contentReader);
+			}
+		}
+		try {
+			synchronized (session) {
+				return session.importFile(nameOfFile, contentReader);
+			}
+		} finally {
+			idleImportSessions.offer(session);
+		}
+	}
 
-//		PreparedStatement fileStmt = null;
-//		PreparedStatement transliteratetStmt = null;
-//		PreparedStatement posStmt = null;
-//		PreparedStatement lemmaStmt = null;
-//		PreparedStatement rootStmt = null;
-//		PreparedStatement segmentStmt = null;
-//		PreparedStatement stemStmt = null;
-//		PreparedStatement pklStmt = null;
-//		PreparedStatement pmiStmt = null;
-//		PreparedStatement tfidfStmt = null;
+	// Null when no connection could be opened for another session
+	private EditorDBDAO borrowImportSession() {
+		EditorDBDAO session = idleImportSessions.poll();
+		if (session != null) {
+			return session;
+		}
+		synchronized (idleImportSessions) {
+			if (importSessionCount < Math.max(1, Config.getInt("import.threads", 4))) {
+				try {
+					session = new EditorDBDAO(DatabaseConnection.getInstance().openConnection(), this);
+					importSessionCount++;
+					return session;
+				} catch (SQLException e) {
+					e.printStackTrace();
+					LOGGER.error(e.getMessage());
+					return null;
+				}
+			}
+		}
 		try {
+			return idleImportSessions.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
 
-			hash = HashCalculator.calculateHash(content);
-			pages = PaginationDAO.paginate(content);
-		} catch (Exception e) {
+	private ImportResult importFile(String nameOfFile, Reader contentReader) {
+		try {
+			return createFileInDB(nameOfFile, new PageStream(contentReader, true), true);
+		} catch (NoSuchAlgorithmException e) {
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
+			return ImportResult.failed();
+		} finally {
+			try {
+				contentReader.close();
+			} catch (IOException e) {
+				LOGGER.error(e.getMessage());
+			}
+			// Ends whatever was read after the commit, so the next import does not see the corpus as it was then
+			try {
+				conn.setAutoCommit(true);
+			} catch (SQLException e) {
+				LOGGER.error(e.getMessage());
+			}
 		}
+	}
+
+	// Only one chunk of pages is held in memory; the hash and term counts are accumulated as the text streams by
+	private ImportResult createFileInDB(String nameOfFile, PageStream stream, boolean applyDuplicatePolicy) {
+		String insertQuery = "INSERT INTO files (fileName, fileHash) VALUES (?, ?)";
+		String hashQuery = "UPDATE files SET fileHash = ? WHERE fileId = ?";
+		String pageQuery = "INSERT INTO pages (fileId, pageNumber, pageContent, pageHash, analysisStatus) "
+				+ "VALUES (?, ?, ?, ?, ?)";
+		String tfidfQuery = "INSERT INTO tfidf (fileId, tfidfScore) VALUES (?, ?)";
+		AnalyticsProcessor processor = AnalyticsProcessor.getInstance();
+		boolean async = AnalyticsProcessor.isAsync();
 
 		try (PreparedStatement fileStmt = conn.prepareStatement(insertQuery, PreparedStatement.RETURN_GENERATED_KEYS);
-				PreparedStatement pageStmt = conn.prepareStatement(pageQuery, PreparedStatement.RETURN_GENERATED_KEYS);
-				PreparedStatement transliteratetStmt = conn.prepareStatement(transliterateQuery);
-				PreparedStatement posStmt = conn.prepareStatement(posQuery);
-				PreparedStatement lemmaStmt = conn.prepareStatement(lemmaQuery);
-				PreparedStatement rootStmt = conn.prepareStatement(rootQuery);
-				PreparedStatement segmentStmt = conn.prepareStatement(segmentQuery);
-				PreparedStatement stemStmt = conn.prepareStatement(stemQuery);
-				PreparedStatement pklStmt = conn.prepareStatement(pklQuery);
-				PreparedStatement pmiStmt = conn.prepareStatement(pmiQuery);
+				PreparedStatement hashStmt = conn.prepareStatement(hashQuery);
+				PreparedStatement pageStmt = conn.prepareStatement(pageQuery);
 				PreparedStatement tfidfStmt = conn.prepareStatement(tfidfQuery)) {
-			conn = DatabaseConnection.getInstance().getConnection();
-			double tfidf = performTFIDF(getAllExistingFilesContent(conn), content);
+			long startTime = System.nanoTime();
+			int chunkPages = Math.max(1, Config.getInt("import.chunkPages", 1000));
+
+			DocumentFrequencyIndex.ensureBuilt(conn);
+			NearDuplicateIndex.ensureBuilt(conn);
 			conn.setAutoCommit(false);
 
-			// Insert into files table
-//			fileStmt = conn.prepareStatement(insertQuery, PreparedStatement.RETURN_GENERATED_KEYS);
+			// The hash is only known once the whole file has been read
 			fileStmt.setString(1, nameOfFile);
-			fileStmt.setString(2, hash);
+			fileStmt.setString(2, "");
 			fileStmt.executeUpdate();
 
 			ResultSet fileRS = fileStmt.getGeneratedKeys();
 			fileRS.next();
 			int fileID = fileRS.getInt(1);
 
-			for (Pages page : pages) {
-				// Insert into pages table
-//				pageStmt = conn.prepareStatement(pageQuery, PreparedStatement.RETURN_GENERATED_KEYS);
-				pageStmt.setInt(1, fileID);
-				pageStmt.setInt(2, page.getPageNumber());
-				pageStmt.setString(3, page.getPageContent());
-				pageStmt.executeUpdate();
-
-				ResultSet pageRS = pageStmt.getGeneratedKeys();
-				pageRS.next();
-				int pageId = pageRS.getInt(1);
-
-				// Transliteration
-				String transliteratedText = Transliteration.transliterate(page.getPageContent());
-//				transliteratetStmt = conn.prepareStatement(transliterateQuery);
-				transliteratetStmt.setInt(1, pageId);
-				transliteratetStmt.setString(2, transliteratedText);
-				transliteratetStmt.executeUpdate();
-
-				// POS Tagging
-				Map<String, List<String>> posTagsMap = POSTagger.extractPOS(page.getPageContent());
-
-//				posStmt = conn.prepareStatement(posQuery);
-
-				for (Map.Entry<String, List<String>> entry : posTagsMap.entrySet()) {
-					String word = entry.getKey();
-					List<String> posTags = entry.getValue();
-					String posTagString = String.join("|", posTags);
-
-					posStmt.setInt(1, pageId);
-					posStmt.setString(2, word);
-					posStmt.setString(3, posTagString);
-					posStmt.addBatch();
+			// Pages are stored as pending; their analytics are computed by an ingest job with checkpoints
+			BatchWriter writer = new BatchWriter();
+			writer.register(pageStmt);
+			int pageCount = 0;
+			List<Pages> pages;
+			while (!(pages = stream.nextPages(chunkPages)).isEmpty()) {
+				for (Pages page : pages) {
+					pageStmt.setInt(1, fileID);
+					pageStmt.setInt(2, page.getPageNumber());
+					pageStmt.setString(3, page.getPageContent());
+					pageStmt.setString(4, HashCalculator.calculateHash(page.getPageContent()));
+					pageStmt.setString(5, "pending");
+					writer.add(pageStmt, page.getPageContent().length() * 2 + 40);
 				}
-				posStmt.executeBatch();
-
-				analyticsMap = Lemmatization.lemmatizeWords(page.getPageContent());
-
-//				lemmaStmt = conn.prepareStatement(lemmaQuery);
-
-				for (Map.Entry<String, String> entry : analyticsMap.entrySet()) {
-					String word = entry.getKey();
-					String lemma = entry.getValue();
-					String lemmaString = String.join("|", lemma);
+				pageCount += pages.size();
+			}
 
-					lemmaStmt.setInt(1, pageId);
-					lemmaStmt.setString(2, word);
-					lemmaStmt.setString(3, lemmaString);
-					lemmaStmt.addBatch();
+			hashStmt.setString(1, stream.getHash());
+			hashStmt.setInt(2, fileID);
+			hashStmt.executeUpdate();
+
+			writer.flush();
+
+			// Stored files with the same content are only known once the hash is; whatever the policy decides
+			// happens in this transaction, so a failed overwrite leaves the stored copies in place. Files
+			// imported at the same time are checked against each other too, as the version lock orders them.
+			long oldVersion = DocumentFrequencyIndex.lockCorpusVersion(conn);
+			ImportResult.Status status = ImportResult.Status.STORED;
+			SimilarFile identical = null;
+			Map<String, Integer> removedTermCounts = null;
+			List<SimilarFile> identicalFiles = applyDuplicatePolicy ? findFilesByHash(stream.getHash(), fileID)
+					: new ArrayList<>();
+			if (!identicalFiles.isEmpty()) {
+				identical = identicalFiles.get(0);
+				String policy = Config.getString("import.duplicatePolicy", "skip");
+				if (policy.equalsIgnoreCase("link")) {
+					conn.rollback();
+					return linkFileInDB(nameOfFile, identical.getId())
+							? new ImportResult(ImportResult.Status.LINKED, identical)
+							: ImportResult.failed();
 				}
-				lemmaStmt.executeBatch();
-				analyticsMap = RootExtraction.extractRoots(page.getPageContent());
-
-//				rootStmt = conn.prepareStatement(rootQuery);
-
-				for (Map.Entry<String, String> entry : analyticsMap.entrySet()) {
-					String word = entry.getKey();
-					String root = entry.getValue();
-					String rootString = String.join("|", root);
-
-					rootStmt.setInt(1, pageId);
-					rootStmt.setString(2, word);
-					rootStmt.setString(3, rootString);
-					rootStmt.addBatch();
+				if (!policy.equalsIgnoreCase("overwrite")) {
+					conn.rollback();
+					LOGGER.info(nameOfFile + " is identical to file " + identical.getId() + ", skipped");
+					return new ImportResult(ImportResult.Status.SKIPPED, identical);
+				}
+				removedTermCounts = CorpusDistribution.isLoaded() ? new HashMap<>() : null;
+				for (SimilarFile replaced : identicalFiles) {
+					if (removedTermCounts != null) {
+						for (Map.Entry<String, Integer> entry : DocumentFrequencyIndex
+								.getTermCounts(conn, replaced.getId()).entrySet()) {
+							removedTermCounts.merge(entry.getKey(), entry.getValue(), Integer::sum);
+						}
+					}
+					removeCollocations(replaced.getId());
+					DocumentFrequencyIndex.removeDocument(conn, replaced.getId());
+					try (PreparedStatement deleteStmt = conn.prepareStatement("DELETE FROM files WHERE fileId = ?")) {
+						deleteStmt.setInt(1, replaced.getId());
+						deleteStmt.executeUpdate();
+					}
 				}
-				rootStmt.executeBatch();
+				LOGGER.info(nameOfFile + " replaces " + identicalFiles.size() + " identical file(s), first "
+						+ identical.getId());
+				status = ImportResult.Status.REPLACED;
+			}
 
-				analyticsMap = WordSegmentation.extractSegments(page.getPageContent());
-//				segmentStmt = conn.prepareStatement(segmentQuery);
+			// A lightly edited copy of a stored file keeps its own pages; the analytics of the pages it did not
+			// change are copied by page hash instead of being computed again
+			int[] signature = stream.getSignature();
+			SimilarFile original = NearDuplicateIndex.findNearDuplicate(conn, signature, fileID,
+					NearDuplicateIndex.getThreshold());
+			if (original != null) {
+				String match = String.format("%s is a near-duplicate of file %d (similarity %.2f)", nameOfFile,
+						original.getId(), original.getSimilarity());
+				if (applyDuplicatePolicy
+						&& Config.getString("import.nearDuplicatePolicy", "keep").equalsIgnoreCase("skip")) {
+					conn.rollback();
+					if (status == ImportResult.Status.REPLACED) {
+						collocationIndex = null;
+					}
+					LOGGER.info(match + ", skipped");
+					return new ImportResult(ImportResult.Status.SKIPPED, original);
+				}
+				LOGGER.info(match);
+				NearDuplicateIndex.recordNearDuplicate(conn, fileID, original);
+			}
+			NearDuplicateIndex.addFile(conn, fileID, signature);
 
-				for (Map.Entry<String, String> entry : analyticsMap.entrySet()) {
-					String word = entry.getKey();
-					String segment = entry.getValue();
-					String segmentString = String.join("|", segment);
+			// The file is scored against the corpus before it joins it
+			Map<String, Integer> termCounts = stream.getTermCounts();
+			TFIDFCalculator tfidfCalculator = new TFIDFCalculator(DocumentFrequencyIndex.getDocumentCount(conn),
+					DocumentFrequencyIndex.getDocumentFrequencies(conn, termCounts.keySet()));
+			tfidfStmt.setInt(1, fileID);
+			tfidfStmt.setDouble(2, tfidfCalculator.calculateDocumentTfIdf(termCounts, stream.getWordCount()));
+			tfidfStmt.executeUpdate();
+			DocumentFrequencyIndex.addDocument(conn, fileID, termCounts);
 
-					segmentStmt.setInt(1, pageId);
-					segmentStmt.setString(2, word);
-					segmentStmt.setString(3, segmentString);
-					segmentStmt.addBatch();
-				}
-				segmentStmt.executeBatch();
+			IngestJob job = null;
+			if (async) {
+				IngestJobQueue.enqueue(conn, fileID);
+			} else {
+				job = IngestJobQueue.enqueueClaimed(conn, fileID, processor.getInlineWorkerId());
+			}
+			long newVersion = DocumentFrequencyIndex.getCorpusVersion(conn);
+			conn.commit();
+			CorpusDistribution.apply(removedTermCounts, termCounts, oldVersion, newVersion);
+			if (status == ImportResult.Status.REPLACED && owner != this) {
+				// Only the owner's counts are kept; the replaced files' words were not taken out of them
+				owner.dropCollocations();
+			} else {
+				owner.followCollocations(conn, fileID, oldVersion, newVersion);
+			}
 
-				analyticsMap = Stemmation.stemWords(page.getPageContent());
-//				stemStmt = conn.prepareStatement(stemQuery);
+			long rows = 2 + writer.getRowCount();
+			double seconds = Math.max(1e-9, (System.nanoTime() - startTime) / 1e9);
+			LOGGER.info(String.format("Stored %s: %d pages, %d rows in %d batches, %.2f s (%.0f rows/sec)",
+					nameOfFile, pageCount, rows, writer.getRoundTrips(), seconds, rows / seconds));
 
-				for (Map.Entry<String, String> entry : analyticsMap.entrySet()) {
-					String word = entry.getKey();
-					String stem = entry.getValue();
-					String stemString = String.join("|", stem);
+			if (async) {
+				processor.wakeUp();
+				return new ImportResult(status, identical);
+			}
+			// Analytics that fail now leave the committed file stored, with its job released for a retry
+			return new ImportResult(status, identical, !processInline(processor, job, nameOfFile));
 
-					stemStmt.setInt(1, pageId);
-					stemStmt.setString(2, word);
-					stemStmt.setString(3, stemString);
-					stemStmt.addBatch();
-				}
-				stemStmt.executeBatch();
+		} catch (Exception e) {
+			// The collocation counts may already have lost the words this transaction took out
+			collocationIndex = null;
+			try {
+				conn.rollback();
+			} catch (SQLException e1) {
+				e1.printStackTrace();
+				LOGGER.error(e1.getMessage());
+			}
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+		}
 
-				scoreMap = performPKL(page.getPageContent());
-//				pklStmt = conn.prepareStatement(pklQuery);
+		return ImportResult.failed();
+	}
 
-				for (Map.Entry<String, Double> entry : scoreMap.entrySet()) {
-					String word = entry.getKey();
-					Double pkl = entry.getValue();
+	// Analyzes the pages of a committed file before the import returns. A job that fails is released, and is
+	// resumed by the async workers or by the next import in sync mode.
+	private boolean processInline(AnalyticsProcessor processor, IngestJob job, String nameOfFile) {
+		boolean succeeded;
+		try {
+			succeeded = processor.processJob(conn, job);
+		} catch (Exception e) {
+			try {
+				conn.rollback();
+				IngestJobQueue.release(conn, job);
+			} catch (SQLException e1) {
+				e1.printStackTrace();
+				LOGGER.error(e1.getMessage());
+			}
+			e.printStackTrace();
+			LOGGER.error(nameOfFile + " was stored, but its analytics failed: " + e.getMessage());
+			return false;
+		}
+		try {
+			processor.processOpenJobs(conn, job.getWorkerId());
+		} catch (Exception e) {
+			try {
+				conn.rollback();
+			} catch (SQLException e1) {
+				LOGGER.error(e1.getMessage());
+			}
+			LOGGER.error("Resuming open ingest jobs failed: " + e.getMessage());
+		}
+		LOGGER.info("Morphology cache: " + MorphologyCache.getCache());
+		LOGGER.info("Text cache: " + TextCache.getCache());
+		return succeeded;
+	}
 
-					pklStmt.setInt(1, pageId);
-					pklStmt.setString(2, word);
-					pklStmt.setDouble(3, pkl);
-					pklStmt.addBatch();
+	// Stored files with this content, oldest first, other than excludeFileId
+	private List<SimilarFile> findFilesByHash(String fileHash, int excludeFileId) throws SQLException {
+		List<SimilarFile> files = new ArrayList<>();
+		String query = "SELECT fileId, fileName FROM files WHERE fileHash = ? AND fileId <> ? ORDER BY fileId";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setString(1, fileHash);
+			stmt.setInt(2, excludeFileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					files.add(new SimilarFile(rs.getInt("fileId"), rs.getString("fileName"), 1.0));
 				}
-				pklStmt.executeBatch();
+			}
+		}
+		return files;
+	}
 
-				scoreMap = performPMI(page.getPageContent());
-//				pmiStmt = conn.prepareStatement(pmiQuery);
+	// Copies the pages and every analytics row of an identical file server-side, without analyzing anything
+	private boolean linkFileInDB(String nameOfFile, int sourceFileId) {
+		String fileQuery = "INSERT INTO files (fileName, fileHash) SELECT ?, fileHash FROM files WHERE fileId = ?";
+		String pageQuery = "INSERT INTO pages (fileId, pageNumber, pageContent, pageHash, analysisStatus) "
+				+ "SELECT ?, pageNumber, pageContent, pageHash, analysisStatus FROM pages WHERE fileId = ?";
+		String tfidfQuery = "INSERT INTO tfidf (fileId, tfidfScore) SELECT ?, tfidfScore FROM tfidf WHERE fileId = ?";
 
-				for (Map.Entry<String, Double> entry : scoreMap.entrySet()) {
-					String word = entry.getKey();
-					Double pmi = entry.getValue();
+		try (PreparedStatement fileStmt = conn.prepareStatement(fileQuery, PreparedStatement.RETURN_GENERATED_KEYS);
+				PreparedStatement pageStmt = conn.prepareStatement(pageQuery);
+				PreparedStatement tfidfStmt = conn.prepareStatement(tfidfQuery)) {
+			DocumentFrequencyIndex.ensureBuilt(conn);
+			NearDuplicateIndex.ensureBuilt(conn);
+			conn.setAutoCommit(false);
 
-					pmiStmt.setInt(1, pageId);
-					pmiStmt.setString(2, word);
-					pmiStmt.setDouble(3, pmi);
-					pmiStmt.addBatch();
-				}
-				pmiStmt.executeBatch();
+			fileStmt.setString(1, nameOfFile);
+			fileStmt.setInt(2, sourceFileId);
+			if (fileStmt.executeUpdate() == 0) {
+				throw new SQLException("File " + sourceFileId + " does not exist");
+			}
+			ResultSet fileRS = fileStmt.getGeneratedKeys();
+			fileRS.next();
+			int fileID = fileRS.getInt(1);
 
+			pageStmt.setInt(1, fileID);
+			pageStmt.setInt(2, sourceFileId);
+			int pageCount = pageStmt.executeUpdate();
+
+			List<String[]> tables = new ArrayList<>(Arrays.asList(PageAnalyticsWriter.PAGE_ANALYTICS));
+			tables.addAll(Arrays.asList(LEGACY_ANALYTICS));
+			for (String[] table : tables) {
+				String columns = "a." + table[1].replace(", ", ", a.");
+				String copyQuery = "INSERT INTO " + table[0] + " (pageId, " + table[1] + ") SELECT np.pageId, "
+						+ columns + " FROM pages sp JOIN pages np ON np.fileId = ? AND np.pageNumber = sp.pageNumber "
+						+ "JOIN " + table[0] + " a ON a.pageId = sp.pageId WHERE sp.fileId = ?";
+				try (PreparedStatement copyStmt = conn.prepareStatement(copyQuery)) {
+					copyStmt.setInt(1, fileID);
+					copyStmt.setInt(2, sourceFileId);
+					copyStmt.executeUpdate();
+				}
 			}
 
-//			tfidfStmt = conn.prepareStatement(tfidfQuery);
 			tfidfStmt.setInt(1, fileID);
-			tfidfStmt.setDouble(2, tfidf);
+			tfidfStmt.setInt(2, sourceFileId);
 			tfidfStmt.executeUpdate();
+			long oldVersion = DocumentFrequencyIndex.lockCorpusVersion(conn);
+			DocumentFrequencyIndex.copyDocument(conn, fileID, sourceFileId);
+			NearDuplicateIndex.copyFile(conn, fileID, sourceFileId);
+
+			// Pages the source file was still waiting on are analyzed for the copy by a job of its own
+			boolean pendingPages;
+			try (PreparedStatement pendingStmt = conn
+					.prepareStatement("SELECT 1 FROM pages WHERE fileId = ? AND analysisStatus = 'pending' LIMIT 1")) {
+				pendingStmt.setInt(1, fileID);
+				try (ResultSet pendingRS = pendingStmt.executeQuery()) {
+					pendingPages = pendingRS.next();
+				}
+			}
+			if (pendingPages) {
+				IngestJobQueue.enqueue(conn, fileID);
+			}
 
+			long newVersion = DocumentFrequencyIndex.getCorpusVersion(conn);
 			conn.commit();
+			if (CorpusDistribution.isLoaded()) {
+				CorpusDistribution.apply(null, DocumentFrequencyIndex.getTermCounts(conn, fileID), oldVersion,
+						newVersion);
+			}
+			owner.followCollocations(conn, fileID, oldVersion, newVersion);
+			if (pendingPages && AnalyticsProcessor.isAsync()) {
+				AnalyticsProcessor.getInstance().wakeUp();
+			} else if (pendingPages) {
+				AnalyticsProcessor processor = AnalyticsProcessor.getInstance();
+				try {
+					processor.processOpenJobs(conn, processor.getInlineWorkerId());
+				} catch (Exception e) {
+					try {
+						conn.rollback();
+					} catch (SQLException e1) {
+						LOGGER.error(e1.getMessage());
+					}
+					LOGGER.error("Analytics for linked file " + fileID + " failed: " + e.getMessage());
+				}
+			}
+			LOGGER.info("Linked " + nameOfFile + " to identical file " + sourceFileId + " (" + pageCount + " pages)");
 			return true;
-
 		} catch (Exception e) {
 			try {
 				conn.rollback();
@@ -235,28 +456,27 @@ public class EditorDBDAO implements IEditorDBDAO {
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
 		}
-
 		return false;
 	}
 
 	@Override
-	public boolean updateFileInDB(int fileId, String fileName, int pageNumber, String content) {
+	public synchronized boolean updateFileInDB(int fileId, String fileName, int pageNumber, String content) {
 
 		PreparedStatement fileStmt = null;
 		PreparedStatement pageStmt = null;
 		// PreparedStatement transliterateStmt = null;
-		PreparedStatement posStmt = null;
-		PreparedStatement lemmaStmt = null;
-		PreparedStatement rootStmt = null;
-		PreparedStatement segmentStmt = null;
-		PreparedStatement stemStmt = null;
-		PreparedStatement pklStmt = null;
+		PreparedStatement pageWordStmt = null;
 		PreparedStatement pmiStmt = null;
 		PreparedStatement tfidfStmt = null;
 
+		Map<String, Integer> uncommittedWordIds = new HashMap<>();
+
 		try {
 
+			DocumentFrequencyIndex.ensureBuilt(conn);
+			NearDuplicateIndex.ensureBuilt(conn);
 			conn.setAutoCommit(false);
+			removeCollocations(fileId);
 
 			// Update file information
 			String fileQuery = "UPDATE files SET fileName = ?, lastModified = CURRENT_TIMESTAMP() WHERE fileId = ?";
@@ -266,13 +486,38 @@ public class EditorDBDAO implements IEditorDBDAO {
 			fileStmt.executeUpdate();
 
 			// Update page content
-			String pageQuery = "UPDATE pages SET pageContent = ? WHERE fileId = ? AND pageNumber = ?";
+			String pageQuery = "UPDATE pages SET pageContent = ?, pageHash = ?, analysisStatus = 'done' "
+					+ "WHERE fileId = ? AND pageNumber = ?";
 			pageStmt = conn.prepareStatement(pageQuery);
 			pageStmt.setString(1, content);
-			pageStmt.setInt(2, fileId);
-			pageStmt.setInt(3, pageNumber);
+			pageStmt.setString(2, HashCalculator.calculateHash(content));
+			pageStmt.setInt(3, fileId);
+			pageStmt.setInt(4, pageNumber);
 			pageStmt.executeUpdate();
 
+			// The file hash and term counts cover every page, so they are recomputed page by page
+			StreamingHash fileHash = new StreamingHash();
+			TermCounter fileTerms = new TermCounter();
+			MinHash.Sketch fileSignature = MinHash.getDefault().newSketch();
+			try (PreparedStatement contentStmt = conn
+					.prepareStatement("SELECT pageContent FROM pages WHERE fileId = ? ORDER BY pageNumber")) {
+				contentStmt.setInt(1, fileId);
+				try (ResultSet contentRS = contentStmt.executeQuery()) {
+					while (contentRS.next()) {
+						String pageContent = contentRS.getString("pageContent");
+						fileHash.update(pageContent);
+						fileTerms.accept(pageContent);
+						fileSignature.accept(pageContent);
+					}
+				}
+			}
+			try (PreparedStatement hashStmt = conn.prepareStatement("UPDATE files SET fileHash = ? WHERE fileId = ?")) {
+				hashStmt.setString(1, fileHash.digest());
+				hashStmt.setInt(2, fileId);
+				hashStmt.executeUpdate();
+			}
+			NearDuplicateIndex.addFile(conn, fileId, fileSignature.finish());
+
 			// Get the pageId of the updated page
 			String pageIdQuery = "SELECT pageId FROM pages WHERE fileId = ? AND pageNumber = ?";
 			PreparedStatement pageIdStmt = conn.prepareStatement(pageIdQuery);
@@ -284,117 +529,41 @@ public class EditorDBDAO implements IEditorDBDAO {
 			}
 			int pageId = pageIdRS.getInt("pageId");
 
-//	        // Update transliteration
-//	        String transliteratedText = Transliteration.transliterate(content);
-//	        String transliterateQuery = "UPDATE transliteratedpages SET transliteratedText = ? WHERE pageId = ?";
-//	        transliterateStmt = conn.prepareStatement(transliterateQuery);
-//	        transliterateStmt.setString(1, transliteratedText);
-//	        transliterateStmt.setInt(2, pageId);
-//	        transliterateStmt.executeUpdate();
-
-			// Update POS tagging
-			Map<String, List<String>> posTagsMap = POSTagger.extractPOS(content);
-			String deletePosQuery = "DELETE FROM pos WHERE pageId = ?";
-			posStmt = conn.prepareStatement(deletePosQuery);
-			posStmt.setInt(1, pageId);
-			posStmt.executeUpdate();
-
-			String insertPosQuery = "INSERT INTO pos (pageId, word, pos) VALUES (?, ?, ?)";
-			posStmt = conn.prepareStatement(insertPosQuery);
-			for (Map.Entry<String, List<String>> entry : posTagsMap.entrySet()) {
-				String word = entry.getKey();
-				String posTags = String.join("|", entry.getValue());
-				posStmt.setInt(1, pageId);
-				posStmt.setString(2, word);
-				posStmt.setString(3, posTags);
-				posStmt.addBatch();
-			}
-			posStmt.executeBatch();
-
-			// Update lemmatization
-			Map<String, String> lemmaMap = Lemmatization.lemmatizeWords(content);
-			String deleteLemmaQuery = "DELETE FROM lemmatization WHERE pageId = ?";
-			lemmaStmt = conn.prepareStatement(deleteLemmaQuery);
-			lemmaStmt.setInt(1, pageId);
-			lemmaStmt.executeUpdate();
-
-			String insertLemmaQuery = "INSERT INTO lemmatization (pageId, word, lemma) VALUES (?, ?, ?)";
-			lemmaStmt = conn.prepareStatement(insertLemmaQuery);
-			for (Map.Entry<String, String> entry : lemmaMap.entrySet()) {
-				lemmaStmt.setInt(1, pageId);
-				lemmaStmt.setString(2, entry.getKey());
-				lemmaStmt.setString(3, entry.getValue());
-				lemmaStmt.addBatch();
-			}
-			lemmaStmt.executeBatch();
-
-			// Update root extraction
-			Map<String, String> rootMap = RootExtraction.extractRoots(content);
-			String deleteRootQuery = "DELETE FROM rootextraction WHERE pageId = ?";
-			rootStmt = conn.prepareStatement(deleteRootQuery);
-			rootStmt.setInt(1, pageId);
-			rootStmt.executeUpdate();
-
-			String insertRootQuery = "INSERT INTO rootextraction (pageId, word, root) VALUES (?, ?, ?)";
-			rootStmt = conn.prepareStatement(insertRootQuery);
-			for (Map.Entry<String, String> entry : rootMap.entrySet()) {
-				rootStmt.setInt(1, pageId);
-				rootStmt.setString(2, entry.getKey());
-				rootStmt.setString(3, entry.getValue());
-				rootStmt.addBatch();
-			}
-			rootStmt.executeBatch();
-
-			// Update word segmentation
-			Map<String, String> segmentMap = WordSegmentation.extractSegments(content);
-			String deleteSegmentQuery = "DELETE FROM wordsegementation WHERE pageId = ?";
-			segmentStmt = conn.prepareStatement(deleteSegmentQuery);
-			segmentStmt.setInt(1, pageId);
-			segmentStmt.executeUpdate();
-
-			String insertSegmentQuery = "INSERT INTO wordsegementation (pageId, word, segment) VALUES (?, ?, ?)";
-			segmentStmt = conn.prepareStatement(insertSegmentQuery);
-			for (Map.Entry<String, String> entry : segmentMap.entrySet()) {
-				segmentStmt.setInt(1, pageId);
-				segmentStmt.setString(2, entry.getKey());
-				segmentStmt.setString(3, entry.getValue());
-				segmentStmt.addBatch();
-			}
-			segmentStmt.executeBatch();
-
-			// Update stemming
-			Map<String, String> stemMap = Stemmation.stemWords(content);
-			String deleteStemQuery = "DELETE FROM stemmation WHERE pageId = ?";
-			stemStmt = conn.prepareStatement(deleteStemQuery);
-			stemStmt.setInt(1, pageId);
-			stemStmt.executeUpdate();
-
-			String insertStemQuery = "INSERT INTO stemmation (pageId, word, stem) VALUES (?, ?, ?)";
-			stemStmt = conn.prepareStatement(insertStemQuery);
-			for (Map.Entry<String, String> entry : stemMap.entrySet()) {
-				stemStmt.setInt(1, pageId);
-				stemStmt.setString(2, entry.getKey());
-				stemStmt.setString(3, entry.getValue());
-				stemStmt.addBatch();
-			}
-			stemStmt.executeBatch();
-
-			// Update PKL
-			Map<String, Double> pklMap = performPKL(content);
-			String deletePklQuery = "DELETE FROM pkl WHERE pageId = ?";
-			pklStmt = conn.prepareStatement(deletePklQuery);
-			pklStmt.setInt(1, pageId);
-			pklStmt.executeUpdate();
-
-			String insertPklQuery = "INSERT INTO pkl (pageId, word, pklScore) VALUES (?, ?, ?)";
-			pklStmt = conn.prepareStatement(insertPklQuery);
-			for (Map.Entry<String, Double> entry : pklMap.entrySet()) {
+			// Update transliteration, since the page hash now vouches for it when other files reuse this page
+			String transliterateQuery = "INSERT INTO transliteratedpages (pageId, transliteratedText) VALUES (?, ?) "
+					+ "ON DUPLICATE KEY UPDATE transliteratedText = VALUES(transliteratedText)";
+			try (PreparedStatement transliterateStmt = conn.prepareStatement(transliterateQuery)) {
+				transliterateStmt.setInt(1, pageId);
+				transliterateStmt.setString(2, Transliteration.transliterate(content));
+				transliterateStmt.executeUpdate();
+			}
+
+			// Update word references; words new to the lexicon are analyzed here
+			for (String[] table : LEGACY_ANALYTICS) {
+				try (PreparedStatement legacyStmt = conn.prepareStatement("DELETE FROM " + table[0] + " WHERE pageId = ?")) {
+					legacyStmt.setInt(1, pageId);
+					legacyStmt.executeUpdate();
+				}
+			}
+
+			String deletePageWordsQuery = "DELETE FROM page_words WHERE pageId = ?";
+			pageWordStmt = conn.prepareStatement(deletePageWordsQuery);
+			pageWordStmt.setInt(1, pageId);
+			pageWordStmt.executeUpdate();
+
+			String insertPageWordQuery = "INSERT INTO page_words (pageId, wordId, frequency) VALUES (?, ?, ?)";
+			pageWordStmt = conn.prepareStatement(insertPageWordQuery);
+			BatchWriter writer = new BatchWriter();
+			writer.register(pageWordStmt);
+			PageAnalyticsWriter.addPageWordBatch(conn, writer, pageWordStmt, pageId, WordLexicon.countWords(content),
+					new HashMap<>(), uncommittedWordIds);
+			writer.flush();
+
+			// PKL moves with the corpus, so it is scored by performPKL on request; stored rows are dropped
+			try (PreparedStatement pklStmt = conn.prepareStatement("DELETE FROM pkl WHERE pageId = ?")) {
 				pklStmt.setInt(1, pageId);
-				pklStmt.setString(2, entry.getKey());
-				pklStmt.setDouble(3, entry.getValue());
-				pklStmt.addBatch();
+				pklStmt.executeUpdate();
 			}
-			pklStmt.executeBatch();
 
 			// Update PMI
 			Map<String, Double> pmiMap = performPMI(content);
@@ -413,17 +582,32 @@ public class EditorDBDAO implements IEditorDBDAO {
 			}
 			pmiStmt.executeBatch();
 
-			// Update TF-IDF
-			double tfidf = performTFIDF(getAllExistingFilesContent(conn), content);
+			// Update TF-IDF; the file is scored against the other files, as when it was created
+			long oldVersion = DocumentFrequencyIndex.lockCorpusVersion(conn);
+			Map<String, Integer> oldTermCounts = CorpusDistribution.isLoaded()
+					? DocumentFrequencyIndex.getTermCounts(conn, fileId)
+					: null;
+			DocumentFrequencyIndex.removeDocument(conn, fileId);
+			Map<String, Integer> termCounts = fileTerms.getTermCounts();
+			TFIDFCalculator tfidfCalculator = new TFIDFCalculator(DocumentFrequencyIndex.getDocumentCount(conn),
+					DocumentFrequencyIndex.getDocumentFrequencies(conn, termCounts.keySet()));
+			double tfidf = tfidfCalculator.calculateDocumentTfIdf(termCounts, fileTerms.getWordCount());
+			DocumentFrequencyIndex.addDocument(conn, fileId, termCounts);
 			String tfidfQuery = "UPDATE tfidf SET tfidfScore = ? WHERE fileId = ?";
 			tfidfStmt = conn.prepareStatement(tfidfQuery);
 			tfidfStmt.setDouble(1, tfidf);
 			tfidfStmt.setInt(2, fileId);
 			tfidfStmt.executeUpdate();
 
+			long newVersion = DocumentFrequencyIndex.getCorpusVersion(conn);
 			conn.commit();
+			CorpusDistribution.apply(oldTermCounts, termCounts, oldVersion, newVersion);
+			followCollocations(conn, fileId, oldVersion, newVersion);
+			WordLexicon.commit(uncommittedWordIds);
 			return true;
 		} catch (Exception e) {
+			// The collocation counts may already have lost the words this transaction took out
+			collocationIndex = null;
 			try {
 
 				conn.rollback();
@@ -439,22 +623,46 @@ public class EditorDBDAO implements IEditorDBDAO {
 	}
 
 	@Override
-	public boolean deleteFileInDB(int id) {
+	public synchronized boolean deleteFileInDB(int id) {
 		String query = "DELETE FROM FILES WHERE fileId = ?";
 		try (PreparedStatement fileStmt = conn.prepareStatement(query)) {
+			DocumentFrequencyIndex.ensureBuilt(conn);
+			conn.setAutoCommit(false);
 
+			// The file's terms leave the document frequencies in the same transaction
+			long oldVersion = DocumentFrequencyIndex.lockCorpusVersion(conn);
+			Map<String, Integer> removedTermCounts = CorpusDistribution.isLoaded()
+					? DocumentFrequencyIndex.getTermCounts(conn, id)
+					: null;
+			DocumentFrequencyIndex.removeDocument(conn, id);
+			removeCollocations(id);
 			fileStmt.setInt(1, id);
 			int rowsAffected = fileStmt.executeUpdate();
-
-			return rowsAffected > 0;
+			if (rowsAffected == 0) {
+				conn.rollback();
+				return false;
+			}
+			long newVersion = DocumentFrequencyIndex.getCorpusVersion(conn);
+			conn.commit();
+			CorpusDistribution.apply(removedTermCounts, null, oldVersion, newVersion);
+			followCollocations(conn, 0, oldVersion, newVersion);
+			return true;
 
 		} catch (SQLException e) {
+			// The collocation counts may already have lost the words this transaction took out
+			collocationIndex = null;
+			try {
+				conn.rollback();
+			} catch (SQLException rollbackEx) {
+				rollbackEx.printStackTrace();
+				LOGGER.error(rollbackEx.getMessage());
+			}
 			e.printStackTrace();
 			LOGGER.error(e.getMessage());
 			return false;
 		}
 	}
-//	public boolean deleteFileInDB(int id) {
+//	public synchronized boolean deleteFileInDB(int id) {
 //		String query = "DELETE FROM FILES WHERE fileId = ?";
 //
 //		PreparedStatement fileStmt = null;
@@ -474,7 +682,7 @@ public class EditorDBDAO implements IEditorDBDAO {
 //	}
 
 	@Override
-	public List<Documents> getFilesFromDB() {
+	public synchronized List<Documents> getFilesFromDB() {
 		List<Documents> documents = new ArrayList<>();
 
 		PreparedStatement stmt = null;
@@ -495,15 +703,17 @@ public class EditorDBDAO implements IEditorDBDAO {
 				String lastModified = rs.getString("lastModified");
 				String dateCreated = rs.getString("dateCreated");
 
-				String query1 = "SELECT pageId, fileId, pageNumber, pageContent FROM pages where fileId = ?";
+				String query1 = "SELECT pageId, fileId, pageNumber, pageContent, analysisStatus FROM pages where fileId = ?";
 				PreparedStatement stmt1 = conn.prepareStatement(query1);
 				stmt1.setInt(1, id);
 				ResultSet rs1 = stmt1.executeQuery();
 				List<Pages> pages = new ArrayList<Pages>();
 
 				while (rs1.next()) {
-					pages.add(new Pages(rs1.getInt("pageId"), rs1.getInt("fileId"), rs1.getInt("pageNumber"),
-							rs1.getString("pageContent")));
+					Pages page = new Pages(rs1.getInt("pageId"), rs1.getInt("fileId"), rs1.getInt("pageNumber"),
+							rs1.getString("pageContent"));
+					page.setAnalysisStatus(rs1.getString("analysisStatus"));
+					pages.add(page);
 				}
 
 				documents.add(new Documents(id, name, hash, lastModified, dateCreated, pages));
@@ -522,7 +732,7 @@ public class EditorDBDAO implements IEditorDBDAO {
 	}
 
 	@Override
-	public String transliterateInDB(int pageId, String arabicText) {
+	public synchronized String transliterateInDB(int pageId, String arabicText) {
 		String content;
 		String deleteQuery = "DELETE FROM transliteratedpages WHERE pageId = ?";
 		String insertQuery = "INSERT INTO transliteratedpages (pageId, transliteratedText) VALUES (?, ?)";
@@ -566,35 +776,31 @@ public class EditorDBDAO implements IEditorDBDAO {
 		}
 	}
 
-	private List<String> getAllExistingFilesContent(Connection conn) throws SQLException {
-		List<String> allFilesContent = new ArrayList<>();
-		String query = "SELECT f.fileId, GROUP_CONCAT(p.pageContent ORDER BY p.pageNumber SEPARATOR '') AS fileContent "
-				+ "FROM files f " + "JOIN pages p ON f.fileId = p.fileId " + "GROUP BY f.fileId";
-
-		try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
-			while (rs.next()) {
-				allFilesContent.add(rs.getString("fileContent"));
-			}
+	private Map<String, MorphologyAnalysis> analyzeMorphology(String text) {
+		PreprocessedText preprocessed = TextCache.get(text);
+		if (lastMorphology == null || !preprocessed.getText().equals(lastAnalyzedText)) {
+			lastMorphology = MorphologyAnalysis.analyzeWords(preprocessed.getDistinctWords());
+			lastAnalyzedText = preprocessed.getText();
 		}
-		return allFilesContent;
+		return lastMorphology;
 	}
 
 	@Override
 	public synchronized Map<String, String> lemmatizeWords(String text) {
 		// TODO Auto-generated method stub
-		return Lemmatization.lemmatizeWords(PreProcessText.preprocessText(text));
+		return Lemmatization.lemmatizeWords(analyzeMorphology(text));
 	}
 
 	@Override
 	public synchronized Map<String, List<String>> extractPOS(String text) {
 		// TODO Auto-generated method stub
-		return POSTagger.extractPOS(PreProcessText.preprocessText(text));
+		return POSTagger.extractPOS(analyzeMorphology(text));
 	}
 
 	@Override
 	public synchronized Map<String, String> extractRoots(String text) {
 		// TODO Auto-generated method stub
-		return RootExtraction.extractRoots(PreProcessText.preprocessText(text));
+		return RootExtraction.extractRoots(analyzeMorphology(text));
 	}
 
 	@Override
@@ -606,6 +812,252 @@ public class EditorDBDAO implements IEditorDBDAO {
 		return tfidf.calculateDocumentTfIdf(selectedDocContent);
 	}
 
+	// Null when the keywords could not be read
+	@Override
+	public synchronized Map<String, Double> getTopKeywords(int fileId, int k) {
+		try {
+			DocumentFrequencyIndex.ensureBuilt(conn);
+			conn.setAutoCommit(false);
+			Map<String, Double> keywords = TermVectorStore.getTopTerms(conn, fileId, k);
+			conn.commit();
+			return keywords;
+		} catch (SQLException e) {
+			try {
+				conn.rollback();
+			} catch (SQLException rollbackEx) {
+				rollbackEx.printStackTrace();
+				LOGGER.error(rollbackEx.getMessage());
+			}
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
+	// Null when the file could not be scored
+	@Override
+	public synchronized Double calculateFileTfIdf(int fileId) {
+		try {
+			DocumentFrequencyIndex.ensureBuilt(conn);
+			conn.setAutoCommit(false);
+			double score = DocumentFrequencyIndex.scoreDocument(conn, fileId);
+			conn.commit();
+			return score;
+		} catch (SQLException e) {
+			try {
+				conn.rollback();
+			} catch (SQLException rollbackEx) {
+				rollbackEx.printStackTrace();
+				LOGGER.error(rollbackEx.getMessage());
+			}
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
+	// -1 when the version could not be read
+	@Override
+	public synchronized long getCorpusVersion() {
+		try {
+			DocumentFrequencyIndex.ensureBuilt(conn);
+			return DocumentFrequencyIndex.getCorpusVersion(conn);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return -1;
+		}
+	}
+
+	// Null when the similar files could not be found
+	@Override
+	public synchronized List<SimilarFile> findSimilarFiles(int fileId, int k) {
+		try {
+			DocumentFrequencyIndex.ensureBuilt(conn);
+			conn.setAutoCommit(false);
+			long version = DocumentFrequencyIndex.getCorpusVersion(conn);
+			if (similarityIndex == null || similarityIndexVersion != version) {
+				long startTime = System.nanoTime();
+				similarityIndex = null;
+				similarityIndex = SimilarityIndex.build(conn);
+				similarityIndexVersion = version;
+				LOGGER.info(String.format("Built the similarity index for %d files in %.2f s",
+						similarityIndex.getDocumentCount(), (System.nanoTime() - startTime) / 1e9));
+			}
+			Map<Integer, Double> similarities = similarityIndex.searchSimilar(conn, fileId, k);
+
+			Map<Integer, String> names = new HashMap<>();
+			if (!similarities.isEmpty()) {
+				StringBuilder query = new StringBuilder("SELECT fileId, fileName FROM files WHERE fileId IN (");
+				for (int i = 0; i < similarities.size(); i++) {
+					query.append(i == 0 ? "?" : ", ?");
+				}
+				query.append(")");
+				try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+					int parameter = 1;
+					for (int similarFileId : similarities.keySet()) {
+						stmt.setInt(parameter++, similarFileId);
+					}
+					try (ResultSet rs = stmt.executeQuery()) {
+						while (rs.next()) {
+							names.put(rs.getInt("fileId"), rs.getString("fileName"));
+						}
+					}
+				}
+			}
+			conn.commit();
+
+			List<SimilarFile> similarFiles = new ArrayList<>();
+			for (Map.Entry<Integer, Double> entry : similarities.entrySet()) {
+				String name = names.get(entry.getKey());
+				if (name != null) {
+					similarFiles.add(new SimilarFile(entry.getKey(), name, entry.getValue()));
+				}
+			}
+			return similarFiles;
+		} catch (SQLException e) {
+			try {
+				conn.rollback();
+			} catch (SQLException rollbackEx) {
+				rollbackEx.printStackTrace();
+				LOGGER.error(rollbackEx.getMessage());
+			}
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
+	// Null when the file was not found to nearly duplicate another one at import, or on error
+	@Override
+	public synchronized SimilarFile getNearDuplicateOf(int fileId) {
+		try {
+			return NearDuplicateIndex.getNearDuplicate(conn, fileId);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
+	// Null when the search failed
+	@Override
+	public synchronized List<SearchResult> searchDocuments(String query, int k) {
+		try {
+			DocumentFrequencyIndex.ensureBuilt(conn);
+			conn.setAutoCommit(false);
+			List<SearchResult> results = Bm25Search.search(conn, query, k);
+			conn.commit();
+			return results;
+		} catch (SQLException e) {
+			try {
+				conn.rollback();
+			} catch (SQLException rollbackEx) {
+				rollbackEx.printStackTrace();
+				LOGGER.error(rollbackEx.getMessage());
+			}
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
+	// Takes a stored file's words out of the collocation counts, if they have been built, inside the
+	// transaction that changes or deletes the file; a transaction that fails then drops the counts
+	private void removeCollocations(int fileId) throws SQLException {
+		CollocationIndex index = collocationIndex;
+		if (index != null) {
+			index.addFile(conn, fileId, -1);
+		}
+	}
+
+	// Moves the collocation counts, if they have been built, from oldVersion to the newVersion a change
+	// committed on source, adding the words of fileId unless it is 0. Counts that missed a change committed
+	// elsewhere, that cannot be read now, or that mostly hold words and pairs no longer in the corpus are
+	// counted again later.
+	private synchronized void followCollocations(Connection source, int fileId, long oldVersion, long newVersion) {
+		CollocationIndex index = collocationIndex;
+		if (index == null || collocationIndexVersion == newVersion) {
+			return;
+		}
+		if (collocationIndexVersion != oldVersion) {
+			collocationIndex = null;
+			return;
+		}
+		try {
+			if (fileId > 0) {
+				index.addFile(source, fileId, 1);
+			}
+			collocationIndexVersion = newVersion;
+			if (index.shouldRebuild()) {
+				collocationIndex = null;
+			}
+		} catch (SQLException e) {
+			LOGGER.error(e.getMessage());
+			collocationIndex = null;
+		}
+	}
+
+	private synchronized void dropCollocations() {
+		collocationIndex = null;
+	}
+
+	private CollocationIndex getCollocationIndex() throws SQLException {
+		conn.setAutoCommit(false);
+		long version = DocumentFrequencyIndex.getCorpusVersion(conn);
+		if (collocationIndex == null || collocationIndexVersion != version) {
+			long startTime = System.nanoTime();
+			collocationIndex = null;
+			CollocationIndex index = CollocationIndex.build(conn);
+			LOGGER.info(String.format("Counted %d words for collocations in %.2f s%s", index.getWordCount(),
+					(System.nanoTime() - startTime) / 1e9,
+					index.isApproximate() ? String.format(", pair counts within +%.0f", index.getBigramErrorBound()) : ""));
+			collocationIndex = index;
+			collocationIndexVersion = version;
+		}
+		// The counts were read in the same snapshot as the version; a later query reads the latest one
+		conn.commit();
+		return collocationIndex;
+	}
+
+	// Null on error
+	@Override
+	public synchronized Map<String, Double> getTopCollocations(int n, int minCount) {
+		try {
+			return getCollocationIndex().topCollocations(n, minCount);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
+	// Null on error; negative infinity when the words never occur together
+	@Override
+	public synchronized Double getCorpusPMI(String word1, String word2) {
+		try {
+			return getCollocationIndex().pmi(word1, word2);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
+	// Null when the scores could not be recomputed; nothing is changed then
+	@Override
+	public synchronized RecomputeSummary recomputeTfIdf() {
+		try {
+			// The normalization settings may have changed since the collocations were counted
+			collocationIndex = null;
+			return TfIdfRecomputeJob.run(conn);
+		} catch (Exception e) {
+			e.printStackTrace();
+			LOGGER.error(e.getMessage());
+			return null;
+		}
+	}
+
 	@Override
 	public synchronized Map<String, Double> performPMI(String content) {
 		// TODO Auto-generated method stub
@@ -618,7 +1070,14 @@ public class EditorDBDAO implements IEditorDBDAO {
 	@Override
 	public synchronized Map<String, Double> performPKL(String content) {
 		// TODO Auto-generated method stub
-		PKLCalculator pkl = new PKLCalculator(content);
+		PKLCalculator pkl;
+		try {
+			pkl = new PKLCalculator(TextCache.get(content).getTokens(), CorpusDistribution.get(conn));
+		} catch (SQLException e) {
+			// Without the corpus the words are scored against the page alone
+			LOGGER.error(e.getMessage());
+			pkl = new PKLCalculator(content);
+		}
 		Map<String, Double> pklScores = pkl.calculatePKLForAllWords();
 		return pklScores;
 	}
@@ -626,13 +1085,66 @@ public class EditorDBDAO implements IEditorDBDAO {
 	@Override
 	public synchronized Map<String, String> stemWords(String text) {
 		// TODO Auto-generated method stub
-		return Stemmation.stemWords(PreProcessText.preprocessText(text));
+		return Stemmation.stemWords(analyzeMorphology(text));
 	}
 
 	@Override
 	public synchronized Map<String, String> segmentWords(String text) {
 		// TODO Auto-generated method stub
-		return WordSegmentation.extractSegments(PreProcessText.preprocessText(text));
+		return WordSegmentation.extractSegments(analyzeMorphology(text));
+	}
+
+	@Override
+	public int countWords(String text) {
+		if (text == null) {
+			return 0;
+		}
+		Tokenizer tokens = new Tokenizer().tokenize(text);
+		int wordCount = 0;
+		for (int i = 0; i < tokens.size(); i++) {
+			if (tokens.end(i) > tokens.start(i)) {
+				wordCount++;
+			}
+		}
+		return wordCount;
+	}
+
+	@Override
+	public double calculateAverageWordLength(String text) {
+		if (text == null) {
+			return 0;
+		}
+		Tokenizer tokens = new Tokenizer().tokenize(text);
+		int totalLength = 0;
+		int wordCount = 0;
+		for (int i = 0; i < tokens.size(); i++) {
+			if (tokens.end(i) > tokens.start(i)) {
+				totalLength += tokens.end(i) - tokens.start(i);
+				wordCount++;
+			}
+		}
+		return wordCount == 0 ? 0 : (double) totalLength / wordCount;
+	}
+
+	@Override
+	public String findWordBefore(String text, String keyword) {
+		Tokenizer tokens = new Tokenizer().tokenize(text);
+		for (int i = 0; i < tokens.size(); i++) {
+			if (tokens.token(i).equalsIgnoreCase(keyword)) {
+				return i > 0 ? tokens.token(i - 1) : "";
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String getConfigString(String key, String defaultValue) {
+		return Config.getString(key, defaultValue);
+	}
+
+	@Override
+	public int getConfigInt(String key, int defaultValue) {
+		return Config.getInt(key, defaultValue);
 	}
 
 }
\ No newline at end of file
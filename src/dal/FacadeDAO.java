@@ -1,9 +1,14 @@
 package dal;
 
+import java.io.Reader;
 import java.util.List;
 import java.util.Map;
 
 import dto.Documents;
+import dto.ImportResult;
+import dto.RecomputeSummary;
+import dto.SearchResult;
+import dto.SimilarFile;
 
 public class FacadeDAO implements IFacadeDAO {
 
@@ -18,6 +23,11 @@ public class FacadeDAO implements IFacadeDAO {
 		return mariaDB.createFileInDB(nameOfFile, content);
 	}
 
+	@Override
+	public ImportResult createFileInDB(String nameOfFile, Reader contentReader) {
+		return mariaDB.createFileInDB(nameOfFile, contentReader);
+	}
+
 	@Override
 	public boolean updateFileInDB(int id, String fileName, int pageNumber, String content) {
 		return mariaDB.updateFileInDB(id, fileName, pageNumber, content);
@@ -64,6 +74,51 @@ public class FacadeDAO implements IFacadeDAO {
 		return mariaDB.performTFIDF(unSelectedDocsContent, selectedDocContent);
 	}
 
+	@Override
+	public Map<String, Double> getTopKeywords(int fileId, int k) {
+		return mariaDB.getTopKeywords(fileId, k);
+	}
+
+	@Override
+	public Double calculateFileTfIdf(int fileId) {
+		return mariaDB.calculateFileTfIdf(fileId);
+	}
+
+	@Override
+	public long getCorpusVersion() {
+		return mariaDB.getCorpusVersion();
+	}
+
+	@Override
+	public List<SimilarFile> findSimilarFiles(int fileId, int k) {
+		return mariaDB.findSimilarFiles(fileId, k);
+	}
+
+	@Override
+	public SimilarFile getNearDuplicateOf(int fileId) {
+		return mariaDB.getNearDuplicateOf(fileId);
+	}
+
+	@Override
+	public List<SearchResult> searchDocuments(String query, int k) {
+		return mariaDB.searchDocuments(query, k);
+	}
+
+	@Override
+	public Map<String, Double> getTopCollocations(int n, int minCount) {
+		return mariaDB.getTopCollocations(n, minCount);
+	}
+
+	@Override
+	public Double getCorpusPMI(String word1, String word2) {
+		return mariaDB.getCorpusPMI(word1, word2);
+	}
+
+	@Override
+	public RecomputeSummary recomputeTfIdf() {
+		return mariaDB.recomputeTfIdf();
+	}
+
 	@Override
 	public Map<String, Double> performPMI(String content) {
 		// TODO Auto-generated method stub
@@ -88,6 +143,31 @@ public class FacadeDAO implements IFacadeDAO {
 		return mariaDB.segmentWords(text);
 	}
 
+	@Override
+	public int countWords(String text) {
+		return mariaDB.countWords(text);
+	}
+
+	@Override
+	public double calculateAverageWordLength(String text) {
+		return mariaDB.calculateAverageWordLength(text);
+	}
+
+	@Override
+	public String findWordBefore(String text, String keyword) {
+		return mariaDB.findWordBefore(text, keyword);
+	}
+
+	@Override
+	public String getConfigString(String key, String defaultValue) {
+		return mariaDB.getConfigString(key, defaultValue);
+	}
+
+	@Override
+	public int getConfigInt(String key, int defaultValue) {
+		return mariaDB.getConfigInt(key, defaultValue);
+	}
+
 
 
 }
@@ -1,13 +1,20 @@
 package dal;
 
+import java.io.Reader;
 import java.util.List;
 import java.util.Map;
 
 import dto.Documents;
+import dto.ImportResult;
+import dto.RecomputeSummary;
+import dto.SearchResult;
+import dto.SimilarFile;
 
 public interface IEditorDBDAO {
 	boolean createFileInDB(String nameOfFile, String content);
 
+	ImportResult createFileInDB(String nameOfFile, Reader contentReader);
+
 	boolean updateFileInDB(int id, String fileName, int pageNumber, String content);
 
 	boolean deleteFileInDB(int id);
@@ -24,6 +31,24 @@ public interface IEditorDBDAO {
 
 	double performTFIDF(List<String> unSelectedDocsContent, String selectedDocContent);
 
+	Map<String, Double> getTopKeywords(int fileId, int k);
+
+	Double calculateFileTfIdf(int fileId);
+
+	long getCorpusVersion();
+
+	List<SimilarFile> findSimilarFiles(int fileId, int k);
+
+	SimilarFile getNearDuplicateOf(int fileId);
+
+	List<SearchResult> searchDocuments(String query, int k);
+
+	Map<String, Double> getTopCollocations(int n, int minCount);
+
+	Double getCorpusPMI(String word1, String word2);
+
+	RecomputeSummary recomputeTfIdf();
+
 	Map<String, Double> performPMI(String content);
 
 	Map<String, Double> performPKL(String content);
@@ -32,4 +57,16 @@ public interface IEditorDBDAO {
 
 	Map<String, String> segmentWords(String text);
 
+	int countWords(String text);
+
+	double calculateAverageWordLength(String text);
+
+	// The word before the first whole-word match of keyword, ignoring case; "" when the match comes first
+	// and null when there is none
+	String findWordBefore(String text, String keyword);
+
+	String getConfigString(String key, String defaultValue);
+
+	int getConfigInt(String key, int defaultValue);
+
 }
@@ -0,0 +1,36 @@
+package dal;
+
+public class IngestJob {
+	private int jobId;
+	private int fileId;
+	private int lastCompletedPage;
+	private String workerId;
+
+	public IngestJob(int jobId, int fileId, int lastCompletedPage, String workerId) {
+		this.jobId = jobId;
+		this.fileId = fileId;
+		this.lastCompletedPage = lastCompletedPage;
+		this.workerId = workerId;
+	}
+
+	public int getJobId() {
+		return jobId;
+	}
+
+	public int getFileId() {
+		return fileId;
+	}
+
+	// Pages up to and including this page number have committed analytics
+	public int getLastCompletedPage() {
+		return lastCompletedPage;
+	}
+
+	public void setLastCompletedPage(int lastCompletedPage) {
+		this.lastCompletedPage = lastCompletedPage;
+	}
+
+	public String getWorkerId() {
+		return workerId;
+	}
+}
@@ -0,0 +1,144 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// The ingest_jobs table: one row per file whose page analytics still have to be computed.
+// A worker owns a job only while its lease runs, and every checkpoint both records progress and
+// renews the lease, so a job whose worker died is claimed again and resumes after its last checkpoint.
+public class IngestJobQueue {
+
+	private static int getLeaseSeconds() {
+		return Math.max(10, Config.getInt("analytics.leaseSeconds", 300));
+	}
+
+	private static int getMaxAttempts() {
+		return Math.max(1, Config.getInt("analytics.maxAttempts", 3));
+	}
+
+	// Runs in the caller's transaction, so the job commits together with the pages it covers
+	public static void enqueue(Connection conn, int fileId) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO ingest_jobs (fileId) VALUES (?)")) {
+			stmt.setInt(1, fileId);
+			stmt.executeUpdate();
+		}
+	}
+
+	// Creates a job that is already claimed, for a caller that processes it straight away
+	public static IngestJob enqueueClaimed(Connection conn, int fileId, String workerId) throws SQLException {
+		String query = "INSERT INTO ingest_jobs (fileId, status, claimedBy, leaseExpires, attempts) "
+				+ "VALUES (?, 'running', ?, NOW() + INTERVAL ? SECOND, 1)";
+		try (PreparedStatement stmt = conn.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS)) {
+			stmt.setInt(1, fileId);
+			stmt.setString(2, workerId);
+			stmt.setInt(3, getLeaseSeconds());
+			stmt.executeUpdate();
+			try (ResultSet rs = stmt.getGeneratedKeys()) {
+				rs.next();
+				return new IngestJob(rs.getInt(1), fileId, 0, workerId);
+			}
+		}
+	}
+
+	// Claims the oldest queued job, or a running one whose lease has expired; null when there is none.
+	// The single UPDATE is atomic, so two workers (in this or another installation) never get the same job,
+	// and LAST_INSERT_ID(jobId) hands back the id of the row it claimed on this connection.
+	public static IngestJob claim(Connection conn, String workerId) throws SQLException {
+		String claimQuery = "UPDATE ingest_jobs SET jobId = LAST_INSERT_ID(jobId), status = 'running', claimedBy = ?, "
+				+ "leaseExpires = NOW() + INTERVAL ? SECOND, attempts = attempts + 1 "
+				+ "WHERE (status = 'queued' OR (status = 'running' AND leaseExpires < NOW())) AND attempts < ? "
+				+ "ORDER BY jobId LIMIT 1";
+		String selectQuery = "SELECT jobId, fileId, lastCompletedPage FROM ingest_jobs WHERE jobId = LAST_INSERT_ID()";
+		boolean autoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(true);
+		try (PreparedStatement claimStmt = conn.prepareStatement(claimQuery);
+				PreparedStatement selectStmt = conn.prepareStatement(selectQuery)) {
+			failAbandonedJobs(conn);
+			claimStmt.setString(1, workerId);
+			claimStmt.setInt(2, getLeaseSeconds());
+			claimStmt.setInt(3, getMaxAttempts());
+			if (claimStmt.executeUpdate() == 0) {
+				return null;
+			}
+			try (ResultSet rs = selectStmt.executeQuery()) {
+				return rs.next() ? new IngestJob(rs.getInt("jobId"), rs.getInt("fileId"),
+						rs.getInt("lastCompletedPage"), workerId) : null;
+			}
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+	}
+
+	// A job that has used up analytics.maxAttempts and is no longer held by a live lease will never be
+	// claimed again, so it fails along with the pages it was still waiting on. Runs outside a transaction.
+	public static void failAbandonedJobs(Connection conn) throws SQLException {
+		String abandoned = "j.attempts >= ? AND (j.status = 'queued' OR (j.status = 'running' AND j.leaseExpires < NOW()))";
+		String pageQuery = "UPDATE pages p JOIN ingest_jobs j ON j.fileId = p.fileId SET p.analysisStatus = 'failed' "
+				+ "WHERE p.analysisStatus = 'pending' AND " + abandoned;
+		String jobQuery = "UPDATE ingest_jobs j SET j.status = 'failed', j.claimedBy = NULL, j.leaseExpires = NULL "
+				+ "WHERE " + abandoned;
+		for (String query : new String[] { pageQuery, jobQuery }) {
+			try (PreparedStatement stmt = conn.prepareStatement(query)) {
+				stmt.setInt(1, getMaxAttempts());
+				stmt.executeUpdate();
+			}
+		}
+	}
+
+	// Runs in the transaction that wrote the pages' analytics; false means the lease was lost to another
+	// worker, and the caller must roll back
+	public static boolean checkpoint(Connection conn, IngestJob job, int lastCompletedPage) throws SQLException {
+		String query = "UPDATE ingest_jobs SET lastCompletedPage = ?, leaseExpires = NOW() + INTERVAL ? SECOND "
+				+ "WHERE jobId = ? AND claimedBy = ? AND status = 'running'";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, lastCompletedPage);
+			stmt.setInt(2, getLeaseSeconds());
+			stmt.setInt(3, job.getJobId());
+			stmt.setString(4, job.getWorkerId());
+			if (stmt.executeUpdate() == 0) {
+				return false;
+			}
+		}
+		job.setLastCompletedPage(lastCompletedPage);
+		return true;
+	}
+
+	public static void complete(Connection conn, IngestJob job, boolean succeeded) throws SQLException {
+		String query = "UPDATE ingest_jobs SET status = ?, claimedBy = NULL, leaseExpires = NULL "
+				+ "WHERE jobId = ? AND claimedBy = ?";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setString(1, succeeded ? "done" : "failed");
+			stmt.setInt(2, job.getJobId());
+			stmt.setString(3, job.getWorkerId());
+			stmt.executeUpdate();
+		}
+		conn.commit();
+	}
+
+	// Gives a job that failed with an exception back to the queue, keeping its checkpoint and attempts
+	public static void release(Connection conn, IngestJob job) throws SQLException {
+		String query = "UPDATE ingest_jobs SET status = 'queued', claimedBy = NULL, leaseExpires = NULL "
+				+ "WHERE jobId = ? AND claimedBy = ? AND status = 'running'";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, job.getJobId());
+			stmt.setString(2, job.getWorkerId());
+			stmt.executeUpdate();
+		}
+		conn.commit();
+	}
+
+	public static int countOpenJobs(Connection conn) throws SQLException {
+		String query = "SELECT COUNT(*) FROM ingest_jobs WHERE status IN ('queued', 'running')";
+		boolean autoCommit = conn.getAutoCommit();
+		// Outside a transaction, so repeated polls are not stuck on one snapshot
+		conn.setAutoCommit(true);
+		try (PreparedStatement stmt = conn.prepareStatement(query); ResultSet rs = stmt.executeQuery()) {
+			rs.next();
+			return rs.getInt(1);
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package dal;
+
+import java.util.Arrays;
+
+// Open-addressed map from non-negative int keys to int values, without boxing. Entries can be read by
+// position from 0 to size() - 1 in insertion order.
+public class IntIntMap {
+	private int[] slots;
+	private int[] keys;
+	private int[] values;
+	private int size = 0;
+
+	public IntIntMap() {
+		this(16);
+	}
+
+	public IntIntMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+		slots = new int[capacity];
+		keys = new int[Math.max(4, expectedSize)];
+		values = new int[keys.length];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int keyAt(int index) {
+		return keys[index];
+	}
+
+	public int valueAt(int index) {
+		return values[index];
+	}
+
+	// 0 when the key is absent
+	public int get(int key) {
+		int slot = findSlot(key);
+		return slots[slot] == 0 ? 0 : values[slots[slot] - 1];
+	}
+
+	public boolean containsKey(int key) {
+		return slots[findSlot(key)] != 0;
+	}
+
+	public void put(int key, int value) {
+		int slot = findSlot(key);
+		if (slots[slot] != 0) {
+			values[slots[slot] - 1] = value;
+		} else {
+			insert(slot, key, value);
+		}
+	}
+
+	// Returns the new value
+	public int increment(int key, int delta) {
+		int slot = findSlot(key);
+		if (slots[slot] != 0) {
+			return values[slots[slot] - 1] += delta;
+		}
+		insert(slot, key, delta);
+		return delta;
+	}
+
+	public void clear() {
+		Arrays.fill(slots, 0);
+		size = 0;
+	}
+
+	private void insert(int slot, int key, int value) {
+		if (key < 0) {
+			throw new IllegalArgumentException("Keys must not be negative: " + key);
+		}
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		keys[size] = key;
+		values[size] = value;
+		slots[slot] = ++size;
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+	}
+
+	private int findSlot(int key) {
+		int mask = slots.length - 1;
+		int slot = mix(key) & mask;
+		while (slots[slot] != 0 && keys[slots[slot] - 1] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int index = 0; index < size; index++) {
+			int slot = mix(keys[index]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = index + 1;
+		}
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
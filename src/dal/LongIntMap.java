@@ -0,0 +1,108 @@
+package dal;
+
+import java.util.Arrays;
+
+// Open-addressed map from long keys to int values, without boxing; IntIntMap for keys that pack two ints.
+// Entries can be read by position from 0 to size() - 1 in insertion order.
+public class LongIntMap {
+	private int[] slots;
+	private long[] keys;
+	private int[] values;
+	private int size = 0;
+
+	public LongIntMap() {
+		this(16);
+	}
+
+	public LongIntMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+		slots = new int[capacity];
+		keys = new long[Math.max(4, expectedSize)];
+		values = new int[keys.length];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long keyAt(int index) {
+		return keys[index];
+	}
+
+	public int valueAt(int index) {
+		return values[index];
+	}
+
+	// 0 when the key is absent
+	public int get(long key) {
+		int slot = findSlot(key);
+		return slots[slot] == 0 ? 0 : values[slots[slot] - 1];
+	}
+
+	public boolean containsKey(long key) {
+		return slots[findSlot(key)] != 0;
+	}
+
+	public void put(long key, int value) {
+		int slot = findSlot(key);
+		if (slots[slot] != 0) {
+			values[slots[slot] - 1] = value;
+		} else {
+			insert(slot, key, value);
+		}
+	}
+
+	// Returns the new value
+	public int increment(long key, int delta) {
+		int slot = findSlot(key);
+		if (slots[slot] != 0) {
+			return values[slots[slot] - 1] += delta;
+		}
+		insert(slot, key, delta);
+		return delta;
+	}
+
+	public void clear() {
+		Arrays.fill(slots, 0);
+		size = 0;
+	}
+
+	private void insert(int slot, long key, int value) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		keys[size] = key;
+		values[size] = value;
+		slots[slot] = ++size;
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+	}
+
+	private int findSlot(long key) {
+		int mask = slots.length - 1;
+		int slot = mix(key) & mask;
+		while (slots[slot] != 0 && keys[slots[slot] - 1] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int index = 0; index < size; index++) {
+			int slot = mix(keys[index]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = index + 1;
+		}
+	}
+
+	private static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
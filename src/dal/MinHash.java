@@ -0,0 +1,178 @@
+package dal;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+// MinHash signatures over shingles of consecutive preprocessed words. The share of positions where two
+// signatures agree estimates the Jaccard similarity of the texts' shingle sets, so lightly edited copies of
+// a text score close to 1 while the MD5 in HashCalculator tells them apart. Words are hashed as they
+// stream past, so a file's signature is built page by page without holding its text.
+public class MinHash {
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	// Fixed so that signatures stored in the database stay comparable across runs
+	private static final long SEED = 0x5DEECE66DL;
+	private static final MinHash DEFAULT = new MinHash(Config.getInt("minhash.hashes", 128),
+			Config.getInt("minhash.shingleSize", 3));
+
+	private final long[] multipliers;
+	private final long[] increments;
+	private final int shingleSize;
+
+	public MinHash(int hashCount, int shingleSize) {
+		if (hashCount < 1 || shingleSize < 1) {
+			throw new IllegalArgumentException("Hash count and shingle size must be positive");
+		}
+		this.shingleSize = shingleSize;
+		multipliers = new long[hashCount];
+		increments = new long[hashCount];
+		Random random = new Random(SEED);
+		for (int i = 0; i < hashCount; i++) {
+			multipliers[i] = random.nextLong() | 1;
+			increments[i] = random.nextLong();
+		}
+	}
+
+	public static MinHash getDefault() {
+		return DEFAULT;
+	}
+
+	public int getHashCount() {
+		return multipliers.length;
+	}
+
+	public Sketch newSketch() {
+		return new Sketch();
+	}
+
+	public int[] signature(CharSequence text) {
+		Sketch sketch = new Sketch();
+		sketch.accept(text);
+		return sketch.finish();
+	}
+
+	// Estimated Jaccard similarity; texts without words are similar to nothing
+	public static double similarity(int[] a, int[] b) {
+		if (a.length != b.length) {
+			throw new IllegalArgumentException("Signatures of " + a.length + " and " + b.length + " hashes");
+		}
+		int agreeing = 0;
+		for (int i = 0; i < a.length; i++) {
+			if (a[i] == b[i] && a[i] != Integer.MAX_VALUE) {
+				agreeing++;
+			}
+		}
+		return (double) agreeing / a.length;
+	}
+
+	public static byte[] encode(int[] signature) {
+		ByteBuffer buffer = ByteBuffer.allocate(signature.length * 4);
+		buffer.asIntBuffer().put(signature);
+		return buffer.array();
+	}
+
+	public static int[] decode(byte[] bytes) {
+		int[] signature = new int[bytes.length / 4];
+		ByteBuffer.wrap(bytes).asIntBuffer().get(signature);
+		return signature;
+	}
+
+	// Mixes a shingle hash so that nearby values spread over the whole range (the splitmix64 finalizer)
+	private static long mix(long hash) {
+		hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+		return hash ^ (hash >>> 31);
+	}
+
+	// Accumulates the signature of a text that arrives in pieces. A word split across pieces is hashed whole.
+	public class Sketch {
+		private final ArabicNormalizer normalizer = PreProcessText.getNormalizer();
+		private final int[] minimums = new int[multipliers.length];
+		// Hashes of the last shingleSize words, oldest first at position wordCount % shingleSize
+		private final long[] recentWords = new long[shingleSize];
+		private long wordCount = 0;
+		private long currentWord = FNV_OFFSET;
+		private boolean inWord = false;
+		private char pendingHighSurrogate = 0;
+
+		private Sketch() {
+			// MAX_VALUE marks a position no shingle has reached
+			Arrays.fill(minimums, Integer.MAX_VALUE);
+		}
+
+		public void accept(CharSequence text) {
+			for (int i = 0; i < text.length(); i++) {
+				char ch = text.charAt(i);
+				if (pendingHighSurrogate != 0) {
+					char high = pendingHighSurrogate;
+					pendingHighSurrogate = 0;
+					if (Character.isLowSurrogate(ch)) {
+						acceptCodePoint(Character.toCodePoint(high, ch));
+						continue;
+					}
+					acceptCodePoint(high);
+				}
+				if (Character.isHighSurrogate(ch)) {
+					pendingHighSurrogate = ch;
+				} else {
+					acceptCodePoint(ch);
+				}
+			}
+		}
+
+		private void acceptCodePoint(int codePoint) {
+			codePoint = normalizer.map(codePoint);
+			if (codePoint < 0) {
+				return;
+			}
+			if (PreProcessText.isWhitespace(codePoint)) {
+				endWord();
+			} else {
+				currentWord = (currentWord ^ codePoint) * FNV_PRIME;
+				inWord = true;
+			}
+		}
+
+		private void endWord() {
+			if (!inWord) {
+				return;
+			}
+			recentWords[(int) (wordCount % shingleSize)] = currentWord;
+			wordCount++;
+			currentWord = FNV_OFFSET;
+			inWord = false;
+			if (wordCount >= shingleSize) {
+				addShingle(shingleSize);
+			}
+		}
+
+		private void addShingle(int words) {
+			long hash = 0;
+			for (int i = 0; i < words; i++) {
+				hash = (hash ^ recentWords[(int) ((wordCount - words + i) % shingleSize)]) * FNV_PRIME;
+			}
+			hash = mix(hash);
+			for (int i = 0; i < minimums.length; i++) {
+				int value = (int) ((multipliers[i] * hash + increments[i]) >>> 32);
+				if (value < minimums[i]) {
+					minimums[i] = value;
+				}
+			}
+		}
+
+		// A text shorter than one shingle is signed by the words it has
+		public int[] finish() {
+			if (pendingHighSurrogate != 0) {
+				char high = pendingHighSurrogate;
+				pendingHighSurrogate = 0;
+				acceptCodePoint(high);
+			}
+			endWord();
+			if (wordCount > 0 && wordCount < shingleSize) {
+				addShingle((int) wordCount);
+			}
+			return minimums.clone();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package dal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.oujda_nlp_team.AlKhalil2Analyzer;
+import net.oujda_nlp_team.entity.Result;
+import net.oujda_nlp_team.entity.ResultList;
+import pl.EditorPO;
+
+public class MorphologyAnalysis {
+	private List<String> posTags;
+	private String lemma;
+	private String root;
+	private String stem;
+	private String segment;
+
+	public MorphologyAnalysis(List<String> posTags, String lemma, String root, String stem, String segment) {
+		this.posTags = posTags;
+		this.lemma = lemma;
+		this.root = root;
+		this.stem = stem;
+		this.segment = segment;
+	}
+
+	public List<String> getPosTags() {
+		return posTags;
+	}
+
+	public String getLemma() {
+		return lemma;
+	}
+
+	public String getRoot() {
+		return root;
+	}
+
+	public String getStem() {
+		return stem;
+	}
+
+	public String getSegment() {
+		return segment;
+	}
+
+	// One processToken call per word, shared by the POS, lemma, root, stem and segment views
+	public static MorphologyAnalysis analyze(AlKhalil2Analyzer analyzer, String word) {
+		ResultList resultList = analyzer.processToken(word);
+		List<Result> results = resultList.getAllResults();
+
+		List<String> posTags = new ArrayList<>();
+		String segment;
+		if (results != null && !results.isEmpty()) {
+			Result firstResult = results.get(0);
+			for (String tag : firstResult.getPartOfSpeech().split("\\|")) {
+				posTags.add(tag);
+			}
+			segment = WordSegmentation.buildSegment(word, firstResult.getStem());
+		} else {
+			posTags.add("None");
+			segment = "None";
+		}
+
+		return new MorphologyAnalysis(posTags, orNotFound(resultList.getAllLemmasString()),
+				orNotFound(resultList.getAllRootString()), orNotFound(resultList.getAllStemString()), segment);
+	}
+
+	public static Map<String, MorphologyAnalysis> analyzeText(String text) {
+		Tokenizer tokens = new Tokenizer().tokenize(text);
+		List<String> words = new ArrayList<>(tokens.getDistinctCount());
+		for (int id = 0; id < tokens.getDistinctCount(); id++) {
+			words.add(tokens.distinctToken(id));
+		}
+		return analyzeWords(words);
+	}
+
+	public static Map<String, MorphologyAnalysis> analyzeWords(Collection<String> words) {
+		final Logger logger = LogManager.getLogger(EditorPO.class);
+		Map<String, MorphologyAnalysis> analyses = new LinkedHashMap<>();
+
+		AlKhalil2Analyzer analyzer = null;
+		try {
+			analyzer = AlKhalil2Analyzer.getInstance();
+		} catch (Exception e) {
+			logger.error("Error while initializing AlKhalil2Analyzer: " + e.getMessage());
+		}
+		if (analyzer == null) {
+			System.err.println("Failed to initialize AlKhalil2Analyzer.");
+			logger.error("Failed to initialize AlKhalil2Analyzer.");
+			return analyses;
+		}
+
+		// A word the analyzer fails on is left out, so the others still get their analyses
+		for (String word : words) {
+			if (analyses.containsKey(word)) {
+				continue;
+			}
+			try {
+				analyses.put(word, MorphologyCache.analyze(analyzer, word));
+			} catch (Exception e) {
+				System.err.println("Error while analyzing " + word + ": " + e.getMessage());
+				logger.error("Error while analyzing " + word + ": " + e.getMessage());
+			}
+		}
+		return analyses;
+	}
+
+	private static String orNotFound(String value) {
+		if (value != null && !value.isEmpty()) {
+			return PreProcessText.preprocessText(value);
+		}
+		return "Not found";
+	}
+}
@@ -0,0 +1,25 @@
+package dal;
+
+import net.oujda_nlp_team.AlKhalil2Analyzer;
+
+public class MorphologyCache {
+	private static BoundedCache<String, MorphologyAnalysis> cache;
+
+	public static synchronized BoundedCache<String, MorphologyAnalysis> getCache() {
+		if (cache == null) {
+			cache = new BoundedCache<>(Config.getInt("morphology.cacheSize", 50000), 64);
+		}
+		return cache;
+	}
+
+	// Words are cached and analyzed by their normalized surface form, so "الكتابَ" and "الكتاب،"
+	// share one entry; tokens without any Arabic letters are looked up as written
+	public static String normalize(String word) {
+		String key = PreProcessText.preprocessText(word);
+		return key.isEmpty() ? word : key;
+	}
+
+	public static MorphologyAnalysis analyze(AlKhalil2Analyzer analyzer, String word) {
+		return getCache().get(normalize(word), normalizedWord -> MorphologyAnalysis.analyze(analyzer, normalizedWord));
+	}
+}
@@ -0,0 +1,236 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dto.SimilarFile;
+import pl.EditorPO;
+
+// LSH banding over the MinHash signatures in file_signatures. Each signature is cut into bands of
+// consecutive hashes and every band is stored as one bucket in file_signature_bands, so the files that
+// agree with a signature on a whole band are found by index lookups and only their signatures are
+// compared. With b bands of r hashes, files of Jaccard similarity s share a bucket with probability
+// 1 - (1 - s^r)^b: all but certain at s = 0.8 and about 0.05 at s = 0.2 for the default 32 bands of 4.
+public class NearDuplicateIndex {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+	private static final int LOOKUP_CHUNK = 500;
+	private static boolean built = false;
+
+	public static double getThreshold() {
+		return Double.parseDouble(Config.getString("minhash.threshold", "0.8"));
+	}
+
+	private static int getBandCount(int hashCount) {
+		return Math.max(1, Math.min(hashCount, Config.getInt("minhash.bands", 32)));
+	}
+
+	// Signs the files stored before signatures existed, once
+	public static synchronized void ensureBuilt(Connection conn) throws SQLException {
+		if (built) {
+			return;
+		}
+		List<Integer> fileIds = new ArrayList<>();
+		try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(
+				"SELECT f.fileId FROM files f LEFT JOIN file_signatures s ON s.fileId = f.fileId WHERE s.fileId IS NULL")) {
+			while (rs.next()) {
+				fileIds.add(rs.getInt("fileId"));
+			}
+		}
+		if (fileIds.isEmpty()) {
+			built = true;
+			return;
+		}
+
+		long startTime = System.nanoTime();
+		boolean autoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(false);
+		try {
+			for (int fileId : fileIds) {
+				addFile(conn, fileId, signFile(conn, fileId));
+			}
+			conn.commit();
+			built = true;
+			LOGGER.info(String.format("Signed %d files for near-duplicate detection in %.2f s", fileIds.size(),
+					(System.nanoTime() - startTime) / 1e9));
+		} catch (SQLException e) {
+			conn.rollback();
+			throw e;
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+	}
+
+	// Signature of a stored file, read one page at a time
+	public static int[] signFile(Connection conn, int fileId) throws SQLException {
+		MinHash.Sketch sketch = MinHash.getDefault().newSketch();
+		try (PreparedStatement stmt = conn
+				.prepareStatement("SELECT pageContent FROM pages WHERE fileId = ? ORDER BY pageNumber")) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					sketch.accept(rs.getString("pageContent"));
+				}
+			}
+		}
+		return sketch.finish();
+	}
+
+	// Runs in the caller's transaction and replaces any signature the file had
+	public static void addFile(Connection conn, int fileId, int[] signature) throws SQLException {
+		String signatureQuery = "INSERT INTO file_signatures (fileId, signature) VALUES (?, ?) "
+				+ "ON DUPLICATE KEY UPDATE signature = VALUES(signature)";
+		try (PreparedStatement signatureStmt = conn.prepareStatement(signatureQuery);
+				PreparedStatement deleteStmt = conn.prepareStatement("DELETE FROM file_signature_bands WHERE fileId = ?");
+				PreparedStatement bandStmt = conn
+						.prepareStatement("INSERT INTO file_signature_bands (band, bucket, fileId) VALUES (?, ?, ?)")) {
+			signatureStmt.setInt(1, fileId);
+			signatureStmt.setBytes(2, MinHash.encode(signature));
+			signatureStmt.executeUpdate();
+			deleteStmt.setInt(1, fileId);
+			deleteStmt.executeUpdate();
+
+			// A file without words would share every bucket with every other such file
+			if (isEmpty(signature)) {
+				return;
+			}
+			long[] buckets = buckets(signature);
+			for (int band = 0; band < buckets.length; band++) {
+				bandStmt.setInt(1, band);
+				bandStmt.setLong(2, buckets[band]);
+				bandStmt.setInt(3, fileId);
+				bandStmt.addBatch();
+			}
+			bandStmt.executeBatch();
+		}
+	}
+
+	// A linked file has the signatures of its source
+	public static void copyFile(Connection conn, int fileId, int sourceFileId) throws SQLException {
+		String signatureQuery = "INSERT INTO file_signatures (fileId, signature) "
+				+ "SELECT ?, signature FROM file_signatures WHERE fileId = ?";
+		String bandQuery = "INSERT INTO file_signature_bands (band, bucket, fileId) "
+				+ "SELECT band, bucket, ? FROM file_signature_bands WHERE fileId = ?";
+		for (String query : new String[] { signatureQuery, bandQuery }) {
+			try (PreparedStatement stmt = conn.prepareStatement(query)) {
+				stmt.setInt(1, fileId);
+				stmt.setInt(2, sourceFileId);
+				stmt.executeUpdate();
+			}
+		}
+	}
+
+	// The stored file most similar to the signature, other than excludeFileId, when its estimated
+	// similarity reaches the threshold; null otherwise
+	public static SimilarFile findNearDuplicate(Connection conn, int[] signature, int excludeFileId, double threshold)
+			throws SQLException {
+		if (isEmpty(signature)) {
+			return null;
+		}
+		long[] buckets = buckets(signature);
+		StringBuilder query = new StringBuilder("SELECT DISTINCT fileId FROM file_signature_bands WHERE fileId <> ? AND (");
+		for (int band = 0; band < buckets.length; band++) {
+			query.append(band == 0 ? "(band = ? AND bucket = ?)" : " OR (band = ? AND bucket = ?)");
+		}
+		query.append(")");
+		List<Integer> candidates = new ArrayList<>();
+		try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+			stmt.setInt(1, excludeFileId);
+			for (int band = 0; band < buckets.length; band++) {
+				stmt.setInt(2 + band * 2, band);
+				stmt.setLong(3 + band * 2, buckets[band]);
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					candidates.add(rs.getInt("fileId"));
+				}
+			}
+		}
+
+		SimilarFile best = null;
+		for (int start = 0; start < candidates.size(); start += LOOKUP_CHUNK) {
+			List<Integer> chunk = candidates.subList(start, Math.min(candidates.size(), start + LOOKUP_CHUNK));
+			StringBuilder signatureQuery = new StringBuilder("SELECT s.fileId, f.fileName, s.signature "
+					+ "FROM file_signatures s JOIN files f ON f.fileId = s.fileId WHERE s.fileId IN (");
+			for (int i = 0; i < chunk.size(); i++) {
+				signatureQuery.append(i == 0 ? "?" : ", ?");
+			}
+			signatureQuery.append(") ORDER BY s.fileId");
+			try (PreparedStatement stmt = conn.prepareStatement(signatureQuery.toString())) {
+				for (int i = 0; i < chunk.size(); i++) {
+					stmt.setInt(i + 1, chunk.get(i));
+				}
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						int[] candidate = MinHash.decode(rs.getBytes("signature"));
+						if (candidate.length != signature.length) {
+							// Signed under another minhash.hashes setting
+							continue;
+						}
+						double similarity = MinHash.similarity(signature, candidate);
+						if (similarity >= threshold && (best == null || similarity > best.getSimilarity())) {
+							best = new SimilarFile(rs.getInt("fileId"), rs.getString("fileName"), similarity);
+						}
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	public static void recordNearDuplicate(Connection conn, int fileId, SimilarFile original) throws SQLException {
+		String query = "INSERT INTO near_duplicates (fileId, duplicateOfFileId, similarity) VALUES (?, ?, ?)";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, fileId);
+			stmt.setInt(2, original.getId());
+			stmt.setDouble(3, original.getSimilarity());
+			stmt.executeUpdate();
+		}
+	}
+
+	// The file this one was found to nearly duplicate when it was imported, or null
+	public static SimilarFile getNearDuplicate(Connection conn, int fileId) throws SQLException {
+		String query = "SELECT n.duplicateOfFileId, f.fileName, n.similarity FROM near_duplicates n "
+				+ "JOIN files f ON f.fileId = n.duplicateOfFileId WHERE n.fileId = ?";
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next()
+						? new SimilarFile(rs.getInt("duplicateOfFileId"), rs.getString("fileName"), rs.getDouble("similarity"))
+						: null;
+			}
+		}
+	}
+
+	private static boolean isEmpty(int[] signature) {
+		for (int value : signature) {
+			if (value != Integer.MAX_VALUE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// One bucket per band; the last band takes the hashes left over when the count does not divide evenly
+	static long[] buckets(int[] signature) {
+		int bandCount = getBandCount(signature.length);
+		int rows = signature.length / bandCount;
+		long[] buckets = new long[bandCount];
+		for (int band = 0; band < bandCount; band++) {
+			int end = band == bandCount - 1 ? signature.length : (band + 1) * rows;
+			long bucket = 0xcbf29ce484222325L;
+			for (int i = band * rows; i < end; i++) {
+				bucket = (bucket ^ signature[i]) * 0x100000001b3L;
+			}
+			buckets[band] = bucket;
+		}
+		return buckets;
+	}
+}
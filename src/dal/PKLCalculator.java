@@ -5,35 +5,56 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class PKLCalculator {
-    private String document;
+    private Tokenizer tokens;
     private Map<String, Integer> wordFreq;
     private int totalWords;
+    private CorpusDistribution background;
+    // Word probabilities by distinct token id
+    private double[] probabilities;
 
     public PKLCalculator(String document) {
-        this.document = PreProcessText.preprocessText(document);
+        this(TextCache.get(document).getTokens());
+    }
+
+    // Takes the tokens of already preprocessed text, so one tokenization can be shared with PMICalculator
+    public PKLCalculator(Tokenizer tokens) {
+        this.tokens = tokens;
         this.wordFreq = new HashMap<>();
         this.totalWords = 0;
         computeWordFrequencies();
     }
 
+    // Scores against the corpus-wide distribution rather than the page's own word counts, which a page of a
+    // hundred characters is too short to estimate; the page is not counted at all
+    public PKLCalculator(Tokenizer tokens, CorpusDistribution background) {
+        this.tokens = tokens;
+        this.background = background;
+        this.probabilities = background.probabilities(tokens);
+    }
+
     private void computeWordFrequencies() {
-        String[] words = document.split("\\s+");
-        totalWords = words.length;
+        totalWords = tokens.size();
 
-        for (String word : words) {
-            wordFreq.put(word, wordFreq.getOrDefault(word, 0) + 1);
+        int[] counts = tokens.countDistinct(null);
+        probabilities = new double[counts.length];
+        for (int id = 0; id < tokens.getDistinctCount(); id++) {
+            wordFreq.put(tokens.distinctToken(id), counts[id]);
+            probabilities[id] = (double) counts[id] / totalWords;
         }
     }
 
     private double calculateWordProbability(String word) {
+        if (background != null) {
+            return background.probability(word);
+        }
         return (double) wordFreq.getOrDefault(word, 0) / totalWords;
     }
 
     public double calculatePKL(String v, String ul, String ur) {
-        double pV = calculateWordProbability(v);
-        double pUl = calculateWordProbability(ul);
-        double pUr = calculateWordProbability(ur);
+        return calculatePKL(calculateWordProbability(v), calculateWordProbability(ul), calculateWordProbability(ur));
+    }
 
+    private static double calculatePKL(double pV, double pUl, double pUr) {
         if (pV == 0 || pUl == 0 || pUr == 0) {
             return 0.0;
         }
@@ -43,15 +64,10 @@ public class PKLCalculator {
 
     public Map<String, Double> calculatePKLForAllWords() {
         Map<String, Double> pklScores = new LinkedHashMap<>();
-        String[] words = document.split("\\s+");
-
-        for (int i = 1; i < words.length - 1; i++) {
-            String ul = words[i - 1];
-            String v = words[i];
-            String ur = words[i + 1];
-
-            double pkl = calculatePKL(v, ul, ur);
-            pklScores.put(v + " (" + ul + ", " + ur + ")", pkl);
+        for (int i = 1; i < tokens.size() - 1; i++) {
+            double pkl = calculatePKL(probabilities[tokens.id(i)], probabilities[tokens.id(i - 1)],
+                    probabilities[tokens.id(i + 1)]);
+            pklScores.put(tokens.token(i) + " (" + tokens.token(i - 1) + ", " + tokens.token(i + 1) + ")", pkl);
         }
 
         return pklScores;
@@ -5,46 +5,60 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class PMICalculator {
-    private String document;
-    private Map<String, Integer> wordFreq;
-    private Map<String, Integer> bigramFreq;
+    private Tokenizer tokens;
+    private Map<String, Integer> wordIds;
+    private int[] wordFreq;
+    // Bigrams are keyed by the ids of their two words rather than by a concatenated string
+    private LongIntMap bigramFreq;
     private int totalWords;
 
     public PMICalculator(String document) {
-        this.document = PreProcessText.preprocessText(document);
-        this.wordFreq = new HashMap<>();
-        this.bigramFreq = new HashMap<>();
+        this(TextCache.get(document).getTokens());
+    }
+
+    // Takes the tokens of already preprocessed text, so one tokenization can be shared with PKLCalculator
+    public PMICalculator(Tokenizer tokens) {
+        this.tokens = tokens;
+        this.wordIds = new HashMap<>();
+        this.bigramFreq = new LongIntMap();
         this.totalWords = 0;
         computeWordAndBigramFrequencies();
     }
 
     private void computeWordAndBigramFrequencies() {
-        String[] words = document.split("\\s+");
-        totalWords = words.length;
+        totalWords = tokens.size();
 
-        for (String word : words) {
-            wordFreq.put(word, wordFreq.getOrDefault(word, 0) + 1);
+        wordFreq = tokens.countDistinct(null);
+        for (int id = 0; id < tokens.getDistinctCount(); id++) {
+            wordIds.put(tokens.distinctToken(id), id);
         }
 
-        for (int i = 0; i < words.length - 1; i++) {
-            String bigram = words[i] + " " + words[i + 1];
-            bigramFreq.put(bigram, bigramFreq.getOrDefault(bigram, 0) + 1);
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            bigramFreq.increment(bigramKey(tokens.id(i), tokens.id(i + 1)), 1);
         }
     }
 
-    private double calculateWordProbability(String word) {
-        return (double) wordFreq.getOrDefault(word, 0) / totalWords;
+    private static long bigramKey(int id1, int id2) {
+        return ((long) id1 << 32) | (id2 & 0xFFFFFFFFL);
     }
 
-    private double calculateBigramProbability(String word1, String word2) {
-        String bigram = word1 + " " + word2;
-        return (double) bigramFreq.getOrDefault(bigram, 0) / totalWords;
+    private double calculateWordProbability(Integer id) {
+        return id == null ? 0.0 : (double) wordFreq[id] / totalWords;
+    }
+
+    private double calculateBigramProbability(Integer id1, Integer id2) {
+        if (id1 == null || id2 == null) {
+            return 0.0;
+        }
+        return (double) bigramFreq.get(bigramKey(id1, id2)) / totalWords;
     }
 
     public double calculatePMI(String word1, String word2) {
-        double probWord1 = calculateWordProbability(word1);
-        double probWord2 = calculateWordProbability(word2);
-        double probBigram = calculateBigramProbability(word1, word2);
+        Integer id1 = wordIds.get(word1);
+        Integer id2 = wordIds.get(word2);
+        double probWord1 = calculateWordProbability(id1);
+        double probWord2 = calculateWordProbability(id2);
+        double probBigram = calculateBigramProbability(id1, id2);
 
         if (probWord1 == 0 || probWord2 == 0 || probBigram == 0) {
             return Double.NEGATIVE_INFINITY;
@@ -53,17 +67,22 @@ public class PMICalculator {
         return Math.log(probBigram / (probWord1 * probWord2)) / Math.log(2);
     }
 
+    // Each distinct bigram is scored once, in the order it first occurs
     public Map<String, Double> calculatePMIForAllBigrams() {
         Map<String, Double> pmiScores = new LinkedHashMap<>();
-        String[] words = document.split("\\s+");
-
-        for (int i = 0; i < words.length - 1; i++) {
-            String word1 = words[i];
-            String word2 = words[i + 1];
-            String bigram = word1 + " " + word2;
-
-            double pmiScore = calculatePMI(word1, word2);
-            pmiScores.put(bigram, pmiScore);
+        LongIntMap scored = new LongIntMap(bigramFreq.size());
+
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            int id1 = tokens.id(i);
+            int id2 = tokens.id(i + 1);
+            long bigram = bigramKey(id1, id2);
+            if (scored.containsKey(bigram)) {
+                continue;
+            }
+            scored.put(bigram, 1);
+            double pmiScore = Math.log(calculateBigramProbability(id1, id2)
+                    / (calculateWordProbability(id1) * calculateWordProbability(id2))) / Math.log(2);
+            pmiScores.put(tokens.token(i) + " " + tokens.token(i + 1), pmiScore);
         }
 
         return pmiScores;
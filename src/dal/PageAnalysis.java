@@ -0,0 +1,36 @@
+package dal;
+
+import java.util.Map;
+
+public class PageAnalysis {
+	private String transliteratedText;
+	private Map<String, Integer> wordCounts;
+	private Map<String, MorphologyAnalysis> newWords;
+	private Map<String, Double> pmiScores;
+
+	public PageAnalysis(String transliteratedText, Map<String, Integer> wordCounts,
+			Map<String, MorphologyAnalysis> newWords, Map<String, Double> pmiScores) {
+		this.transliteratedText = transliteratedText;
+		this.wordCounts = wordCounts;
+		this.newWords = newWords;
+		this.pmiScores = pmiScores;
+	}
+
+	public String getTransliteratedText() {
+		return transliteratedText;
+	}
+
+	// Normalized word -> occurrences on the page
+	public Map<String, Integer> getWordCounts() {
+		return wordCounts;
+	}
+
+	// Analyses for the words that were not yet in the lexicon when the page was analyzed
+	public Map<String, MorphologyAnalysis> getNewWords() {
+		return newWords;
+	}
+
+	public Map<String, Double> getPmiScores() {
+		return pmiScores;
+	}
+}
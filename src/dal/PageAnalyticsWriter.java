@@ -0,0 +1,188 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+
+import dto.Pages;
+
+// Analyzes pages and batches their transliteration, page_words and pmi rows on one connection
+public class PageAnalyticsWriter implements AutoCloseable {
+	// Per-page analytics tables and the columns copied when a page is reused
+	static final String[][] PAGE_ANALYTICS = { { "transliteratedpages", "transliteratedText" },
+			{ "page_words", "wordId, frequency" }, { "pmi", "word, pmiScore" } };
+	private static final int HASH_LOOKUP_CHUNK = 500;
+
+	private final Connection conn;
+	private final BatchWriter writer = new BatchWriter();
+	private final List<PreparedStatement> statements = new ArrayList<>();
+	private final List<PreparedStatement> copyStmts = new ArrayList<>();
+	private final PreparedStatement transliterateStmt;
+	private final PreparedStatement pageWordStmt;
+	private final PreparedStatement pmiStmt;
+	private int reusedPageCount = 0;
+
+	public PageAnalyticsWriter(Connection conn) throws SQLException {
+		this.conn = conn;
+		try {
+			transliterateStmt = prepare("INSERT INTO transliteratedpages (pageId, transliteratedText) VALUES (?, ?)");
+			pageWordStmt = prepare("INSERT INTO page_words (pageId, wordId, frequency) VALUES (?, ?, ?)");
+			pmiStmt = prepare("INSERT INTO pmi (pageId, word, pmiScore) VALUES (?, ?, ?)");
+			for (String[] table : PAGE_ANALYTICS) {
+				copyStmts.add(prepare("INSERT INTO " + table[0] + " (pageId, " + table[1] + ") SELECT ?, " + table[1]
+						+ " FROM " + table[0] + " WHERE pageId = ?"));
+			}
+		} catch (SQLException e) {
+			close();
+			throw e;
+		}
+	}
+
+	private PreparedStatement prepare(String query) throws SQLException {
+		PreparedStatement stmt = conn.prepareStatement(query);
+		statements.add(stmt);
+		return writer.register(stmt);
+	}
+
+	// Statements registered here are flushed after the page analytics
+	public BatchWriter getWriter() {
+		return writer;
+	}
+
+	// Pages whose hash matches an analyzed page of another file copy that page's rows instead of being analyzed
+	public void write(int fileId, List<Pages> pages, Map<Integer, Integer> pageIds, Map<Integer, String> pageHashes,
+			Map<String, Integer> uncommittedWordIds) throws Exception {
+		Map<String, Integer> analyzedPages = findAnalyzedPages(fileId, pageHashes.values());
+		List<Pages> toAnalyze = new ArrayList<>();
+		for (Pages page : pages) {
+			if (!analyzedPages.containsKey(pageHashes.get(page.getPageNumber()))) {
+				toAnalyze.add(page);
+			}
+		}
+
+		// Pages are analyzed on the fork-join pool while this thread writes them in order
+		Deque<ForkJoinTask<PageAnalysis>> pending = new ArrayDeque<>();
+		int windowSize = PageAnalyzer.getWindowSize();
+		int nextPage = 0;
+
+		try {
+			for (Pages page : pages) {
+				int pageId = pageIds.get(page.getPageNumber());
+				Integer sourcePageId = analyzedPages.get(pageHashes.get(page.getPageNumber()));
+				if (sourcePageId != null) {
+					for (PreparedStatement copyStmt : copyStmts) {
+						copyStmt.setInt(1, pageId);
+						copyStmt.setInt(2, sourcePageId);
+						writer.add(copyStmt, 8);
+					}
+					reusedPageCount++;
+					continue;
+				}
+
+				while (nextPage < toAnalyze.size() && pending.size() < windowSize) {
+					pending.addLast(PageAnalyzer.submit(toAnalyze.get(nextPage).getPageContent()));
+					nextPage++;
+				}
+				PageAnalysis analysis = pending.removeFirst().get();
+
+				// Transliteration
+				transliterateStmt.setInt(1, pageId);
+				transliterateStmt.setString(2, analysis.getTransliteratedText());
+				writer.add(transliterateStmt, analysis.getTransliteratedText().length() * 2);
+
+				// POS, lemma, root, stem and segment are shared through the word lexicon
+				addPageWordBatch(conn, writer, pageWordStmt, pageId, analysis.getWordCounts(), analysis.getNewWords(),
+						uncommittedWordIds);
+				addScoreBatch(writer, pmiStmt, pageId, analysis.getPmiScores());
+			}
+		} finally {
+			for (ForkJoinTask<PageAnalysis> task : pending) {
+				task.cancel(true);
+			}
+		}
+	}
+
+	public void flush() throws SQLException {
+		writer.flush();
+	}
+
+	public int getReusedPageCount() {
+		return reusedPageCount;
+	}
+
+	// Maps each page hash to a fully analyzed page of another file with that content
+	private Map<String, Integer> findAnalyzedPages(int fileId, Collection<String> pageHashes) throws SQLException {
+		Map<String, Integer> analyzedPages = new HashMap<>();
+		List<String> hashes = new ArrayList<>(new HashSet<>(pageHashes));
+		hashes.remove(null);
+		for (int start = 0; start < hashes.size(); start += HASH_LOOKUP_CHUNK) {
+			List<String> chunk = hashes.subList(start, Math.min(hashes.size(), start + HASH_LOOKUP_CHUNK));
+			StringBuilder query = new StringBuilder("SELECT pageHash, MIN(pageId) AS pageId FROM pages "
+					+ "WHERE fileId <> ? AND analysisStatus = 'done' AND pageHash IN (");
+			for (int i = 0; i < chunk.size(); i++) {
+				query.append(i == 0 ? "?" : ", ?");
+			}
+			query.append(") GROUP BY pageHash");
+
+			try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+				stmt.setInt(1, fileId);
+				for (int i = 0; i < chunk.size(); i++) {
+					stmt.setString(i + 2, chunk.get(i));
+				}
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						analyzedPages.put(rs.getString("pageHash"), rs.getInt("pageId"));
+					}
+				}
+			}
+		}
+		return analyzedPages;
+	}
+
+	static void addPageWordBatch(Connection conn, BatchWriter writer, PreparedStatement stmt, int pageId,
+			Map<String, Integer> wordCounts, Map<String, MorphologyAnalysis> newWords,
+			Map<String, Integer> uncommittedWordIds) throws SQLException {
+		Map<String, Integer> wordIds = WordLexicon.resolve(conn, wordCounts.keySet(), newWords, uncommittedWordIds);
+		for (Map.Entry<String, Integer> entry : wordCounts.entrySet()) {
+			Integer wordId = wordIds.get(entry.getKey());
+			if (wordId == null) {
+				continue;
+			}
+			stmt.setInt(1, pageId);
+			stmt.setInt(2, wordId);
+			stmt.setInt(3, entry.getValue());
+			writer.add(stmt, 12);
+		}
+	}
+
+	private static void addScoreBatch(BatchWriter writer, PreparedStatement stmt, int pageId,
+			Map<String, Double> scoreMap) throws SQLException {
+		for (Map.Entry<String, Double> entry : scoreMap.entrySet()) {
+			stmt.setInt(1, pageId);
+			stmt.setString(2, entry.getKey());
+			stmt.setDouble(3, entry.getValue());
+			writer.add(stmt, 12 + entry.getKey().length() * 2);
+		}
+	}
+
+	@Override
+	public void close() {
+		for (PreparedStatement stmt : statements) {
+			try {
+				stmt.close();
+			} catch (SQLException e) {
+				// The statement is being discarded either way
+			}
+		}
+	}
+}
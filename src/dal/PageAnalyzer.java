@@ -0,0 +1,47 @@
+package dal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class PageAnalyzer {
+	private static ForkJoinPool pool;
+
+	public static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			int threads = Config.getInt("analysis.threads", Runtime.getRuntime().availableProcessors());
+			pool = new ForkJoinPool(Math.max(1, threads));
+		}
+		return pool;
+	}
+
+	// Pages the writer may have queued ahead of the one it is currently persisting
+	public static int getWindowSize() {
+		return Math.max(1, Config.getInt("analysis.window", getPool().getParallelism() * 2));
+	}
+
+	public static ForkJoinTask<PageAnalysis> submit(String pageContent) {
+		return getPool().submit(() -> analyze(pageContent));
+	}
+
+	// PKL is not stored with the page: it depends on the whole corpus, so performPKL scores it when asked
+	public static PageAnalysis analyze(String pageContent) {
+		String transliteratedText = Transliteration.transliterate(pageContent);
+
+		Map<String, Integer> wordCounts = WordLexicon.countWords(pageContent);
+		List<String> unknownWords = new ArrayList<>();
+		for (String word : wordCounts.keySet()) {
+			if (!WordLexicon.isKnown(word)) {
+				unknownWords.add(word);
+			}
+		}
+		Map<String, MorphologyAnalysis> newWords = MorphologyAnalysis.analyzeWords(unknownWords);
+
+		Tokenizer tokens = TextCache.get(pageContent).getTokens();
+		Map<String, Double> pmiScores = new PMICalculator(tokens).calculatePMIForAllBigrams();
+
+		return new PageAnalysis(transliteratedText, wordCounts, newWords, pmiScores);
+	}
+}
@@ -0,0 +1,171 @@
+package dal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import dto.Pages;
+
+// Splits text from a Reader into pages like PaginationDAO.paginateViews, hashing and counting
+// terms as it goes so the full text never has to be held in memory. Text that is already in memory is
+// cut by paginateViews itself, and each page is copied out of it once, as the content that is stored.
+public class PageStream {
+	private final Reader reader;
+	private final boolean normalizeLineEndings;
+	private final int pageSize;
+	private final boolean alignToWords;
+	private final char[] buffer = new char[8192];
+	private final StringBuilder page;
+	private final StreamingHash hash;
+	private final TermCounter termCounter = new TermCounter();
+	private final MinHash.Sketch signature = MinHash.getDefault().newSketch();
+	private int bufferLength = 0;
+	private int bufferPosition = 0;
+	private boolean endOfInput = false;
+	private boolean previousWasCarriageReturn = false;
+	private char lastCharacter = 0;
+	private long characterCount = 0;
+	private int pageNumber = 1;
+	private boolean emittedPage = false;
+	// Set when the pages are views of in-memory text instead of characters read from the reader
+	private Iterator<PageView> views;
+
+	// With normalizeLineEndings the text reads as BufferedReader.readLine() lines joined by "\n",
+	// each followed by "\n", which is how imported files have always been stored
+	public PageStream(Reader reader, boolean normalizeLineEndings) throws NoSuchAlgorithmException {
+		this(reader, normalizeLineEndings, PaginationDAO.getPageSize(), PaginationDAO.isAlignedToWords());
+	}
+
+	public PageStream(Reader reader, boolean normalizeLineEndings, int pageSize, boolean alignToWords)
+			throws NoSuchAlgorithmException {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+		}
+		this.reader = reader;
+		this.normalizeLineEndings = normalizeLineEndings;
+		this.pageSize = pageSize;
+		this.alignToWords = alignToWords;
+		this.page = new StringBuilder(pageSize + 1);
+		this.hash = new StreamingHash();
+	}
+
+	public PageStream(CharSequence content) throws NoSuchAlgorithmException {
+		this(content, PaginationDAO.getPageSize(), PaginationDAO.isAlignedToWords());
+	}
+
+	public PageStream(CharSequence content, int pageSize, boolean alignToWords) throws NoSuchAlgorithmException {
+		this(null, false, pageSize, alignToWords);
+		this.views = PaginationDAO.paginateViews(content, pageSize, alignToWords).iterator();
+	}
+
+	// Returns up to maxPages further pages; an empty list means the text is exhausted
+	public List<Pages> nextPages(int maxPages) throws IOException {
+		List<Pages> pages = new ArrayList<>();
+		while (pages.size() < maxPages) {
+			Pages next = nextPage();
+			if (next == null) {
+				break;
+			}
+			pages.add(next);
+		}
+		return pages;
+	}
+
+	public Pages nextPage() throws IOException {
+		String pageContent = views != null ? nextView() : nextReadPage();
+		if (pageContent == null) {
+			return null;
+		}
+		hash.update(pageContent);
+		termCounter.accept(pageContent);
+		signature.accept(pageContent);
+		emittedPage = true;
+		return new Pages(0, 0, pageNumber++, pageContent);
+	}
+
+	private String nextView() {
+		return views.hasNext() ? views.next().toString() : null;
+	}
+
+	private String nextReadPage() throws IOException {
+		// Aligning to words needs one character past the page to tell whether the cut splits a word
+		int target = alignToWords ? pageSize + 1 : pageSize;
+		while (page.length() < target) {
+			int ch = read();
+			if (ch < 0) {
+				break;
+			}
+			page.append((char) ch);
+		}
+		if (page.length() == 0 && emittedPage) {
+			return null;
+		}
+		int end = page.length() > pageSize ? PaginationDAO.alignedEnd(page, 0, pageSize) : page.length();
+		String pageContent = page.substring(0, end);
+		page.delete(0, end);
+		return pageContent;
+	}
+
+	private int read() throws IOException {
+		int ch = readRaw();
+		if (!normalizeLineEndings) {
+			return ch;
+		}
+		while (ch == '\n' && previousWasCarriageReturn) {
+			previousWasCarriageReturn = false;
+			ch = readRaw();
+		}
+		previousWasCarriageReturn = (ch == '\r');
+		if (ch == '\r') {
+			ch = '\n';
+		}
+		if (ch < 0) {
+			// Every line, including an unterminated last one, ends with "\n"
+			if (characterCount > 0 && lastCharacter != '\n') {
+				ch = '\n';
+			} else {
+				return -1;
+			}
+		}
+		lastCharacter = (char) ch;
+		characterCount++;
+		return ch;
+	}
+
+	private int readRaw() throws IOException {
+		if (bufferPosition == bufferLength) {
+			if (endOfInput) {
+				return -1;
+			}
+			bufferLength = reader.read(buffer, 0, buffer.length);
+			bufferPosition = 0;
+			if (bufferLength <= 0) {
+				bufferLength = 0;
+				endOfInput = true;
+				return -1;
+			}
+		}
+		return buffer[bufferPosition++];
+	}
+
+	public String getHash() throws IOException {
+		return hash.digest();
+	}
+
+	public Map<String, Integer> getTermCounts() {
+		return termCounter.getTermCounts();
+	}
+
+	public int getWordCount() {
+		return termCounter.getWordCount();
+	}
+
+	// MinHash signature of the whole text, read once every page has been emitted
+	public int[] getSignature() {
+		return signature.finish();
+	}
+}
@@ -0,0 +1,59 @@
+package dal;
+
+import dto.Pages;
+
+// A page as a range of the source text; the characters are only copied when the page is materialized
+public class PageView implements CharSequence {
+	private final CharSequence source;
+	private final int start;
+	private final int end;
+	private final int pageNumber;
+
+	public PageView(CharSequence source, int start, int end, int pageNumber) {
+		if (start < 0 || end < start || end > source.length()) {
+			throw new IndexOutOfBoundsException("Page range " + start + ".." + end + " of " + source.length());
+		}
+		this.source = source;
+		this.start = start;
+		this.end = end;
+		this.pageNumber = pageNumber;
+	}
+
+	public int getPageNumber() {
+		return pageNumber;
+	}
+
+	public int getOffset() {
+		return start;
+	}
+
+	@Override
+	public int length() {
+		return end - start;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length()) {
+			throw new IndexOutOfBoundsException("Index " + index + " of " + length());
+		}
+		return source.charAt(start + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int from, int to) {
+		if (from < 0 || to < from || to > length()) {
+			throw new IndexOutOfBoundsException("Range " + from + ".." + to + " of " + length());
+		}
+		return new PageView(source, start + from, start + to, pageNumber);
+	}
+
+	@Override
+	public String toString() {
+		return source.subSequence(start, end).toString();
+	}
+
+	public Pages toPages() {
+		return new Pages(0, 0, pageNumber, toString());
+	}
+}
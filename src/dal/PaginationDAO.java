@@ -7,26 +7,58 @@ import dto.Pages;
 
 public class PaginationDAO {
 
-	
-	static List<Pages> paginate(String fileContent){
-		int pageSize = 100;
-		int pageNumber = 1;
-		String pageContent = "";
+	public static int getPageSize() {
+		return Math.max(1, Config.getInt("pagination.pageSize", 100));
+	}
+
+	public static boolean isAlignedToWords() {
+		return Boolean.parseBoolean(Config.getString("pagination.alignToWords", "false"));
+	}
+
+	public static List<Pages> paginate(String fileContent) {
 		List<Pages> pages = new ArrayList<Pages>();
-		if(fileContent==null || fileContent.isEmpty())
-		{
-			pages.add(new Pages(0, 0, pageNumber, pageContent.toString()));
+		for (PageView view : paginateViews(fileContent == null ? "" : fileContent, getPageSize(), isAlignedToWords())) {
+			pages.add(view.toPages());
+		}
+		return pages;
+	}
+
+	// One pass over the text; empty text still yields a single empty page
+	public static List<PageView> paginateViews(CharSequence content, int pageSize, boolean alignToWords) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+		}
+		List<PageView> pages = new ArrayList<>(content.length() / pageSize + 1);
+		int pageNumber = 1;
+		if (content.length() == 0) {
+			pages.add(new PageView(content, 0, 0, pageNumber));
 			return pages;
 		}
-		for(int i = 0; i < fileContent.length(); i++)
-		{
-			pageContent += fileContent.charAt(i);
-			if (pageContent.length() == pageSize || i == fileContent.length() - 1){
-				pages.add(new Pages(0, 0, pageNumber, pageContent));
-				pageNumber++;
-				pageContent = "";
+		int start = 0;
+		while (start < content.length()) {
+			int end = start + pageSize;
+			if (end >= content.length()) {
+				end = content.length();
+			} else if (alignToWords) {
+				end = alignedEnd(content, start, end);
 			}
+			pages.add(new PageView(content, start, end, pageNumber++));
+			start = end;
 		}
 		return pages;
-	} 
+	}
+
+	// Moves a cut that would split a word back to just after the last whitespace on the page.
+	// text must extend past end; a page with no whitespace is cut at end.
+	static int alignedEnd(CharSequence text, int start, int end) {
+		if (PreProcessText.isWhitespace(text.charAt(end - 1)) || PreProcessText.isWhitespace(text.charAt(end))) {
+			return end;
+		}
+		for (int i = end - 1; i > start; i--) {
+			if (PreProcessText.isWhitespace(text.charAt(i - 1))) {
+				return i;
+			}
+		}
+		return end;
+	}
 }
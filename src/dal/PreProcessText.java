@@ -23,8 +23,23 @@ public class PreProcessText {
 	}
 
 	public static String preprocessText(String text) {
-		text = removeHarakat(text);
-		text = removeNonArabicCharacters(text);
-		return text.toLowerCase();
+		return getNormalizer().normalize(text);
+	}
+
+	// Configured through the normalize.* keys; with none set it reproduces the original removeHarakat,
+	// removeNonArabicCharacters and toLowerCase passes
+	public static ArabicNormalizer getNormalizer() {
+		return NormalizerHolder.NORMALIZER;
+	}
+
+	// Built on first use by the class loader, so reading it never takes a lock
+	private static class NormalizerHolder {
+		private static final ArabicNormalizer NORMALIZER = ArabicNormalizer.fromConfig();
+	}
+
+	// The characters matched by \s
+	public static boolean isWhitespace(int codePoint) {
+		return codePoint == ' ' || codePoint == '\t' || codePoint == '\n' || codePoint == 0x0B || codePoint == '\f'
+				|| codePoint == '\r';
 	}
 }
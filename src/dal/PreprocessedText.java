@@ -0,0 +1,36 @@
+package dal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// A text after PreProcessText.preprocessText together with its tokens. Instances are shared through
+// TextCache, so the tokenizer is frozen: it cannot be handed another text and never writes when read.
+public class PreprocessedText {
+	private final String text;
+	private final Tokenizer tokens;
+	private final List<String> distinctWords;
+
+	public PreprocessedText(String content) {
+		this.text = PreProcessText.preprocessText(content);
+		this.tokens = new Tokenizer().tokenize(text).freeze();
+		List<String> words = new ArrayList<>(tokens.getDistinctCount());
+		for (int id = 0; id < tokens.getDistinctCount(); id++) {
+			words.add(tokens.distinctToken(id));
+		}
+		this.distinctWords = Collections.unmodifiableList(words);
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public Tokenizer getTokens() {
+		return tokens;
+	}
+
+	// In order of first appearance, indexed by token id
+	public List<String> getDistinctWords() {
+		return distinctWords;
+	}
+}
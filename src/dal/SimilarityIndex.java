@@ -0,0 +1,277 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// In-memory inverted index of unit-length TF-IDF vectors for cosine "more like this" queries. Each term
+// keeps its documents in insertion order with their weights and the largest of those weights, so queries
+// follow MaxScore: the terms whose combined best case cannot lift a document into the current top k only
+// probe documents the other terms found, and the documents they alone contain are never scored.
+// Terms are weighted with the same idf as the stored TF-IDF vectors, taken over the other files; terms
+// whose idf is <= 0 get no weight. Not thread-safe.
+public class SimilarityIndex {
+	private final double[] idf;
+	private int[] fileIds = new int[1024];
+	private int documentCount = 0;
+	private int[][] postingDocuments;
+	private float[][] postingWeights;
+	private int[] postingSizes;
+	private float[] maxWeights;
+
+	// idf by term id
+	public SimilarityIndex(double[] idf) {
+		this.idf = idf;
+		postingDocuments = new int[idf.length][];
+		postingWeights = new float[idf.length][];
+		postingSizes = new int[idf.length];
+		maxWeights = new float[idf.length];
+	}
+
+	// Reads file_terms in one pass. Runs in the caller's transaction so the counts and the document
+	// frequencies come from one snapshot.
+	public static SimilarityIndex build(Connection conn) throws SQLException {
+		int documentCount = DocumentFrequencyIndex.getDocumentCount(conn);
+		int maxTermId = 0;
+		try (Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(termId), 0) FROM terms")) {
+			if (rs.next()) {
+				maxTermId = rs.getInt(1);
+			}
+		}
+		double[] idf = new double[maxTermId + 1];
+		try (Statement stmt = conn.createStatement(); ResultSet rs = stmt
+				.executeQuery("SELECT termId, documentFrequency FROM terms WHERE term <> '' AND documentFrequency > 0")) {
+			while (rs.next()) {
+				idf[rs.getInt("termId")] = TFIDFCalculator.otherFileIdf(rs.getInt("documentFrequency"), documentCount);
+			}
+		}
+
+		SimilarityIndex index = new SimilarityIndex(idf);
+		int[] termIds = new int[256];
+		int[] termCounts = new int[256];
+		int length = 0;
+		int currentFileId = -1;
+		try (PreparedStatement stmt = conn
+				.prepareStatement("SELECT fileId, termId, termCount FROM file_terms ORDER BY fileId")) {
+			stmt.setFetchSize(10000);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					int fileId = rs.getInt("fileId");
+					if (fileId != currentFileId) {
+						if (length > 0) {
+							index.addDocument(currentFileId, termIds, termCounts, length);
+						}
+						currentFileId = fileId;
+						length = 0;
+					}
+					if (length == termIds.length) {
+						termIds = Arrays.copyOf(termIds, length * 2);
+						termCounts = Arrays.copyOf(termCounts, length * 2);
+					}
+					termIds[length] = rs.getInt("termId");
+					termCounts[length] = rs.getInt("termCount");
+					length++;
+				}
+			}
+		}
+		if (length > 0) {
+			index.addDocument(currentFileId, termIds, termCounts, length);
+		}
+		return index;
+	}
+
+	public int getDocumentCount() {
+		return documentCount;
+	}
+
+	// Term ids outside the idf table are ignored
+	public void addDocument(int fileId, int[] termIds, int[] termCounts, int length) {
+		double norm = norm(termIds, termCounts, length);
+		if (norm == 0) {
+			return;
+		}
+		if (documentCount == fileIds.length) {
+			fileIds = Arrays.copyOf(fileIds, documentCount * 2);
+		}
+		int document = documentCount++;
+		fileIds[document] = fileId;
+		for (int i = 0; i < length; i++) {
+			double weight = weight(termIds[i], termCounts[i]);
+			if (weight == 0) {
+				continue;
+			}
+			int termId = termIds[i];
+			int size = postingSizes[termId];
+			if (postingDocuments[termId] == null) {
+				postingDocuments[termId] = new int[4];
+				postingWeights[termId] = new float[4];
+			} else if (size == postingDocuments[termId].length) {
+				postingDocuments[termId] = Arrays.copyOf(postingDocuments[termId], size * 2);
+				postingWeights[termId] = Arrays.copyOf(postingWeights[termId], size * 2);
+			}
+			float unitWeight = (float) (weight / norm);
+			postingDocuments[termId][size] = document;
+			postingWeights[termId][size] = unitWeight;
+			postingSizes[termId] = size + 1;
+			maxWeights[termId] = Math.max(maxWeights[termId], unitWeight);
+		}
+	}
+
+	private double weight(int termId, int termCount) {
+		if (termId < 0 || termId >= idf.length) {
+			return 0;
+		}
+		return termCount * Math.max(0, idf[termId]);
+	}
+
+	private double norm(int[] termIds, int[] termCounts, int length) {
+		double sum = 0;
+		for (int i = 0; i < length; i++) {
+			double weight = weight(termIds[i], termCounts[i]);
+			sum += weight * weight;
+		}
+		return Math.sqrt(sum);
+	}
+
+	// The files closest to a stored file other than the file itself
+	public Map<Integer, Double> searchSimilar(Connection conn, int fileId, int k) throws SQLException {
+		int[] termIds = new int[256];
+		int[] termCounts = new int[256];
+		int length = 0;
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT termId, termCount FROM file_terms WHERE fileId = ?")) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					if (length == termIds.length) {
+						termIds = Arrays.copyOf(termIds, length * 2);
+						termCounts = Arrays.copyOf(termCounts, length * 2);
+					}
+					termIds[length] = rs.getInt("termId");
+					termCounts[length] = rs.getInt("termCount");
+					length++;
+				}
+			}
+		}
+		return search(termIds, termCounts, length, k, fileId);
+	}
+
+	// File id -> cosine similarity of the k files closest to the query, best first. Files sharing no
+	// weighted term with the query are never returned.
+	public Map<Integer, Double> search(int[] termIds, int[] termCounts, int length, int k, int excludeFileId) {
+		Map<Integer, Double> results = new LinkedHashMap<>();
+		double queryNorm = norm(termIds, termCounts, length);
+		if (queryNorm == 0 || k <= 0) {
+			return results;
+		}
+
+		// Query terms present in the index, ordered by the most they can add to a score
+		Integer[] order = new Integer[length];
+		double[] bounds = new double[length];
+		int termCount = 0;
+		for (int i = 0; i < length; i++) {
+			int termId = termIds[i];
+			if (weight(termId, termCounts[i]) > 0 && postingSizes[termId] > 0) {
+				bounds[i] = weight(termId, termCounts[i]) / queryNorm * maxWeights[termId];
+				order[termCount++] = i;
+			}
+		}
+		Arrays.sort(order, 0, termCount, (a, b) -> Double.compare(bounds[a], bounds[b]));
+
+		int[][] documents = new int[termCount][];
+		float[][] weights = new float[termCount][];
+		int[] sizes = new int[termCount];
+		double[] queryWeights = new double[termCount];
+		// Best case of the terms up to and including each position
+		double[] prefixBounds = new double[termCount];
+		int[] cursors = new int[termCount];
+		for (int i = 0; i < termCount; i++) {
+			int termId = termIds[order[i]];
+			documents[i] = postingDocuments[termId];
+			weights[i] = postingWeights[termId];
+			sizes[i] = postingSizes[termId];
+			queryWeights[i] = weight(termId, termCounts[order[i]]) / queryNorm;
+			prefixBounds[i] = bounds[order[i]] + (i == 0 ? 0 : prefixBounds[i - 1]);
+		}
+
+		PriorityQueue<Candidate> topK = new PriorityQueue<>(k + 1);
+		double threshold = 0;
+		// Terms before this one cannot make a document beat the threshold on their own
+		int firstEssential = 0;
+		while (firstEssential < termCount && prefixBounds[firstEssential] <= threshold) {
+			firstEssential++;
+		}
+		while (true) {
+			int document = Integer.MAX_VALUE;
+			for (int i = firstEssential; i < termCount; i++) {
+				if (cursors[i] < sizes[i]) {
+					document = Math.min(document, documents[i][cursors[i]]);
+				}
+			}
+			if (document == Integer.MAX_VALUE) {
+				break;
+			}
+
+			double score = 0;
+			for (int i = firstEssential; i < termCount; i++) {
+				if (cursors[i] < sizes[i] && documents[i][cursors[i]] == document) {
+					score += queryWeights[i] * weights[i][cursors[i]];
+					cursors[i]++;
+				}
+			}
+			for (int i = firstEssential - 1; i >= 0 && score + prefixBounds[i] > threshold; i--) {
+				int found = Arrays.binarySearch(documents[i], cursors[i], sizes[i], document);
+				if (found >= 0) {
+					score += queryWeights[i] * weights[i][found];
+					cursors[i] = found + 1;
+				} else {
+					cursors[i] = -found - 1;
+				}
+			}
+
+			if (score > threshold && fileIds[document] != excludeFileId) {
+				topK.add(new Candidate(fileIds[document], score));
+				if (topK.size() > k) {
+					topK.poll();
+				}
+				if (topK.size() == k) {
+					threshold = topK.peek().score;
+					while (firstEssential < termCount && prefixBounds[firstEssential] <= threshold) {
+						firstEssential++;
+					}
+				}
+			}
+		}
+
+		Candidate[] best = topK.toArray(new Candidate[0]);
+		Arrays.sort(best, (a, b) -> b.compareTo(a));
+		for (Candidate candidate : best) {
+			// Rounding can leave a document's own cosine a hair above 1
+			results.put(candidate.fileId, Math.min(1.0, candidate.score));
+		}
+		return results;
+	}
+
+	// Orders worst first: lower score, then higher file id
+	private static class Candidate implements Comparable<Candidate> {
+		private final int fileId;
+		private final double score;
+
+		Candidate(int fileId, double score) {
+			this.fileId = fileId;
+			this.score = score;
+		}
+
+		@Override
+		public int compareTo(Candidate other) {
+			int byScore = Double.compare(score, other.score);
+			return byScore != 0 ? byScore : Integer.compare(other.fileId, fileId);
+		}
+	}
+}
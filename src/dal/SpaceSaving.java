@@ -0,0 +1,184 @@
+package dal;
+
+// The SpaceSaving heavy-hitters summary of long keys: at most capacity keys are monitored, and an
+// unmonitored key takes over the slot of the smallest count, inheriting that count as its possible
+// overestimate. Every key seen more than total / capacity times is monitored, and a monitored count
+// exceeds the true count by at most its error. Slots form a min-heap on count.
+public class SpaceSaving {
+	private final int capacity;
+	private final long[] keys;
+	private final int[] counts;
+	private final int[] errors;
+	private int size = 0;
+	// Open-addressed key -> heap position + 1, with backward-shift deletion
+	private final long[] tableKeys;
+	private final int[] tablePositions;
+	private final int mask;
+
+	public SpaceSaving(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		this.capacity = capacity;
+		keys = new long[capacity];
+		counts = new int[capacity];
+		errors = new int[capacity];
+		int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+		tableKeys = new long[tableSize];
+		tablePositions = new int[tableSize];
+		mask = tableSize - 1;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long keyAt(int index) {
+		return keys[index];
+	}
+
+	public int countAt(int index) {
+		return counts[index];
+	}
+
+	// How much countAt(index) may exceed the key's true count
+	public int errorAt(int index) {
+		return errors[index];
+	}
+
+	public long getMemoryBytes() {
+		return capacity * 16L + tableKeys.length * 12L;
+	}
+
+	public void add(long key, int delta) {
+		if (delta <= 0) {
+			if (delta < 0) {
+				subtract(key, -delta);
+			}
+			return;
+		}
+		int position = position(key);
+		if (position >= 0) {
+			counts[position] += delta;
+			siftDown(position);
+		} else if (size < capacity) {
+			keys[size] = key;
+			counts[size] = delta;
+			errors[size] = 0;
+			tablePut(key, size);
+			siftUp(size++);
+		} else {
+			// The smallest count is at the root
+			tableRemove(keys[0]);
+			errors[0] = counts[0];
+			keys[0] = key;
+			counts[0] += delta;
+			tablePut(key, 0);
+			siftDown(0);
+		}
+	}
+
+	// Only monitored keys can be taken away from; the count and its error never go below 0
+	private void subtract(long key, int delta) {
+		int position = position(key);
+		if (position < 0) {
+			return;
+		}
+		counts[position] = Math.max(0, counts[position] - delta);
+		errors[position] = Math.min(errors[position], counts[position]);
+		siftUp(position);
+	}
+
+	private void siftUp(int position) {
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (counts[parent] <= counts[position]) {
+				break;
+			}
+			swap(position, parent);
+			position = parent;
+		}
+	}
+
+	private void siftDown(int position) {
+		while (true) {
+			int smallest = position;
+			int left = position * 2 + 1;
+			if (left < size && counts[left] < counts[smallest]) {
+				smallest = left;
+			}
+			if (left + 1 < size && counts[left + 1] < counts[smallest]) {
+				smallest = left + 1;
+			}
+			if (smallest == position) {
+				return;
+			}
+			swap(position, smallest);
+			position = smallest;
+		}
+	}
+
+	private void swap(int a, int b) {
+		long key = keys[a];
+		keys[a] = keys[b];
+		keys[b] = key;
+		int count = counts[a];
+		counts[a] = counts[b];
+		counts[b] = count;
+		int error = errors[a];
+		errors[a] = errors[b];
+		errors[b] = error;
+		tablePut(keys[a], a);
+		tablePut(keys[b], b);
+	}
+
+	// -1 when the key is not monitored
+	private int position(long key) {
+		int slot = slot(key);
+		return tablePositions[slot] - 1;
+	}
+
+	private int slot(long key) {
+		int slot = mix(key) & mask;
+		while (tablePositions[slot] != 0 && tableKeys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void tablePut(long key, int position) {
+		int slot = slot(key);
+		tableKeys[slot] = key;
+		tablePositions[slot] = position + 1;
+	}
+
+	private void tableRemove(long key) {
+		int slot = slot(key);
+		if (tablePositions[slot] == 0) {
+			return;
+		}
+		tablePositions[slot] = 0;
+		// Entries after the gap move back into it when their home slot allows
+		int next = (slot + 1) & mask;
+		while (tablePositions[next] != 0) {
+			int home = mix(tableKeys[next]) & mask;
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				tableKeys[slot] = tableKeys[next];
+				tablePositions[slot] = tablePositions[next];
+				tablePositions[next] = 0;
+				slot = next;
+			}
+			next = (next + 1) & mask;
+		}
+	}
+
+	private static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+}
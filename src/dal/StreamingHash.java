@@ -0,0 +1,53 @@
+package dal;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// Produces the same value as HashCalculator.calculateHash for text that is fed in pieces
+public class StreamingHash {
+	private final MessageDigest md;
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private char pendingHighSurrogate = 0;
+
+	public StreamingHash() throws NoSuchAlgorithmException {
+		md = MessageDigest.getInstance("MD5");
+	}
+
+	public void update(CharSequence text) throws CharacterCodingException {
+		if (text.length() == 0) {
+			return;
+		}
+		StringBuilder chunk = new StringBuilder(text.length() + 1);
+		if (pendingHighSurrogate != 0) {
+			chunk.append(pendingHighSurrogate);
+			pendingHighSurrogate = 0;
+		}
+		chunk.append(text);
+		// Keep a trailing high surrogate until its low half arrives
+		if (Character.isHighSurrogate(chunk.charAt(chunk.length() - 1))) {
+			pendingHighSurrogate = chunk.charAt(chunk.length() - 1);
+			chunk.setLength(chunk.length() - 1);
+		}
+		encode(chunk);
+	}
+
+	private void encode(CharSequence text) throws CharacterCodingException {
+		ByteBuffer bytes = encoder.encode(CharBuffer.wrap(text));
+		md.update(bytes);
+	}
+
+	public String digest() throws CharacterCodingException {
+		if (pendingHighSurrogate != 0) {
+			encode(String.valueOf(pendingHighSurrogate));
+			pendingHighSurrogate = 0;
+		}
+		return HashCalculator.bytesToHex(md.digest());
+	}
+}
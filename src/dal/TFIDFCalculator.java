@@ -1,71 +1,80 @@
 package dal;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 public class TFIDFCalculator {
 
-	private List<String> corpus = new ArrayList<>();
+	// Used while corpus documents are added one by one
+	private TfIdfEngine engine = new TfIdfEngine();
+	// Set instead when the document frequencies come from DocumentFrequencyIndex
+	private Map<String, Integer> documentFrequencies;
+	private int documentCount;
 
-	public void addDocumentToCorpus(String document) {
-		corpus.add(PreProcessText.preprocessText(document));
+	public TFIDFCalculator() {
 	}
 
-	public double calculateDocumentTfIdf(String document) {
-		String preprocessedDoc = PreProcessText.preprocessText(document);
-		String[] words = preprocessedDoc.split("\\s+");
-		List<String> wordList = Arrays.asList(words);
-
-		Map<String, Double> tf = calculateTermFrequency(wordList);
-		Map<String, Double> idf = calculateInverseDocumentFrequency();
+	public TFIDFCalculator(int documentCount, Map<String, Integer> documentFrequencies) {
+		this.engine = null;
+		this.documentCount = documentCount;
+		this.documentFrequencies = documentFrequencies;
+	}
 
-		double totalTfIdf = 0.0;
-		for (String word : tf.keySet()) {
-			double tfValue = tf.get(word);
-			double idfValue = idf.getOrDefault(word, Math.log(corpus.size() + 1));
-			totalTfIdf += tfValue * idfValue;
+	public void addDocumentToCorpus(String document) {
+		if (engine == null) {
+			throw new IllegalStateException("Document frequencies were given up front");
 		}
-
-		return totalTfIdf / wordList.size();
+		engine.addDocument(document);
 	}
 
-	private Map<String, Double> calculateTermFrequency(List<String> wordList) {
-		Map<String, Double> tf = new HashMap<>();
-		double totalWords = wordList.size();
-
-		for (String word : wordList) {
-			tf.put(word, tf.getOrDefault(word, 0.0) + 1);
+	public double calculateDocumentTfIdf(String document) {
+		if (engine != null) {
+			return engine.score(document);
 		}
-
-		for (String word : tf.keySet()) {
-			tf.put(word, tf.get(word) / totalWords);
+		PreprocessedText preprocessed = TextCache.get(document);
+		Tokenizer tokens = preprocessed.getTokens();
+		int[] counts = tokens.countDistinct(null);
+		Map<String, Integer> termCounts = new HashMap<>();
+		for (int id = 0; id < tokens.getDistinctCount(); id++) {
+			termCounts.put(tokens.distinctToken(id), counts[id]);
 		}
-
-		return tf;
+		return calculateDocumentTfIdf(termCounts, tokens.size());
 	}
 
-	private Map<String, Double> calculateInverseDocumentFrequency() {
-		Map<String, Double> idf = new HashMap<>();
-		int totalDocs = corpus.size();
+	// The empty term that split() yields for leading whitespace is not a word. A document without words scores 0.
+	public double calculateDocumentTfIdf(Map<String, Integer> termCounts, int totalWords) {
+		if (engine != null) {
+			throw new IllegalStateException("Term counts can only be scored against given document frequencies");
+		}
+		totalWords -= termCounts.getOrDefault("", 0);
+		if (totalWords <= 0) {
+			return 0.0;
+		}
 
-		for (String doc : corpus) {
-			Set<String> uniqueWords = Arrays.stream(doc.split("\\s+")).collect(Collectors.toSet());
-			for (String word : uniqueWords) {
-				idf.put(word, idf.getOrDefault(word, 0.0) + 1);
+		double totalTfIdf = 0.0;
+		for (Map.Entry<String, Integer> entry : termCounts.entrySet()) {
+			if (entry.getKey().isEmpty()) {
+				continue;
 			}
+			double tfValue = (double) entry.getValue() / totalWords;
+			Integer frequency = documentFrequencies.get(entry.getKey());
+			double idfValue = inverseDocumentFrequency(frequency == null ? 0 : frequency, documentCount);
+			totalTfIdf += tfValue * idfValue;
 		}
 
-		for (String word : idf.keySet()) {
-			idf.put(word, Math.log((double) totalDocs / (1 + idf.get(word))));
-		}
+		return totalTfIdf / totalWords;
+	}
+
+	// documentFrequency and documentCount describe the corpus the document is scored against
+	public static double inverseDocumentFrequency(int documentFrequency, int documentCount) {
+		return documentFrequency == 0 ? Math.log(documentCount + 1)
+				: Math.log((double) documentCount / (1 + documentFrequency));
+	}
 
-		return idf;
+	// idf of a term for a file that is itself stored, taken over the other files: documentFrequency and
+	// documentCount are the corpus-wide counts, which include the file
+	public static double otherFileIdf(int documentFrequency, int documentCount) {
+		return inverseDocumentFrequency(Math.max(0, documentFrequency - 1), Math.max(0, documentCount - 1));
 	}
 
 //    public static void main(String[] args) {
@@ -0,0 +1,105 @@
+package dal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Counts the words of PreProcessText.preprocessText(text).split("\\s+") while the text arrives in pieces
+public class TermCounter {
+	private final ArabicNormalizer normalizer = PreProcessText.getNormalizer();
+	private final Map<String, Integer> termCounts = new HashMap<>();
+	private final StringBuilder currentWord = new StringBuilder();
+	private char pendingHighSurrogate = 0;
+	private boolean sawAnyCharacter = false;
+	private boolean startsWithWhitespace = false;
+	private int wordCount = 0;
+	private boolean finished = false;
+	private final Consumer<String> wordListener;
+
+	public TermCounter() {
+		this(null);
+	}
+
+	// The listener sees every word in text order, without the empty term finish() may add
+	public TermCounter(Consumer<String> wordListener) {
+		this.wordListener = wordListener;
+	}
+
+	public void accept(CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			char ch = text.charAt(i);
+			if (pendingHighSurrogate != 0) {
+				char high = pendingHighSurrogate;
+				pendingHighSurrogate = 0;
+				if (Character.isLowSurrogate(ch)) {
+					acceptCodePoint(Character.toCodePoint(high, ch));
+					continue;
+				}
+				acceptCodePoint(high);
+			}
+			if (Character.isHighSurrogate(ch)) {
+				pendingHighSurrogate = ch;
+			} else {
+				acceptCodePoint(ch);
+			}
+		}
+	}
+
+	private void acceptCodePoint(int codePoint) {
+		codePoint = normalizer.map(codePoint);
+		if (codePoint < 0) {
+			return;
+		}
+		if (PreProcessText.isWhitespace(codePoint)) {
+			if (!sawAnyCharacter) {
+				startsWithWhitespace = true;
+			}
+			endWord();
+		} else {
+			currentWord.appendCodePoint(codePoint);
+		}
+		sawAnyCharacter = true;
+	}
+
+	private void endWord() {
+		if (currentWord.length() > 0) {
+			String word = currentWord.toString();
+			addWord(word);
+			if (wordListener != null) {
+				wordListener.accept(word);
+			}
+			currentWord.setLength(0);
+		}
+	}
+
+	private void addWord(String word) {
+		termCounts.put(word, termCounts.getOrDefault(word, 0) + 1);
+		wordCount++;
+	}
+
+	public void finish() {
+		if (finished) {
+			return;
+		}
+		if (pendingHighSurrogate != 0) {
+			acceptCodePoint(pendingHighSurrogate);
+			pendingHighSurrogate = 0;
+		}
+		endWord();
+		// split() yields [""] for empty input and a leading "" when the text starts with whitespace
+		if (!sawAnyCharacter || (startsWithWhitespace && wordCount > 0)) {
+			addWord("");
+		}
+		finished = true;
+	}
+
+	public Map<String, Integer> getTermCounts() {
+		finish();
+		return termCounts;
+	}
+
+	public int getWordCount() {
+		finish();
+		return wordCount;
+	}
+}
@@ -0,0 +1,51 @@
+package dal;
+
+import java.nio.ByteBuffer;
+
+// A document's TF-IDF weights by term id, ordered by descending weight so the top k terms are the first k
+// entries. Stored as a blob of (int termId, float weight) pairs.
+public class TermVector {
+	private static final int ENTRY_BYTES = 8;
+
+	private final int[] termIds;
+	private final float[] weights;
+
+	public TermVector(int[] termIds, float[] weights) {
+		this.termIds = termIds;
+		this.weights = weights;
+	}
+
+	public int size() {
+		return termIds.length;
+	}
+
+	public int getTermId(int index) {
+		return termIds[index];
+	}
+
+	public float getWeight(int index) {
+		return weights[index];
+	}
+
+	public byte[] encode() {
+		ByteBuffer buffer = ByteBuffer.allocate(termIds.length * ENTRY_BYTES);
+		for (int i = 0; i < termIds.length; i++) {
+			buffer.putInt(termIds[i]);
+			buffer.putFloat(weights[i]);
+		}
+		return buffer.array();
+	}
+
+	// Decodes at most limit entries, so a top-k query never reads the whole vector into objects
+	public static TermVector decode(byte[] bytes, int limit) {
+		int size = Math.min(limit, bytes.length / ENTRY_BYTES);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int[] termIds = new int[size];
+		float[] weights = new float[size];
+		for (int i = 0; i < size; i++) {
+			termIds[i] = buffer.getInt();
+			weights[i] = buffer.getFloat();
+		}
+		return new TermVector(termIds, weights);
+	}
+}
@@ -0,0 +1,115 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-file TF-IDF vectors in tfidf_vectors. A vector is recomputed from file_terms and terms only when it is
+// read after the corpus version has moved on, so imports never pay for keeping every vector current.
+// Weights use the same idf as the file's tfidf score, taken over the other files of the corpus.
+public class TermVectorStore {
+
+	// Runs in the caller's transaction so the version and the document frequencies come from one snapshot
+	public static TermVector load(Connection conn, int fileId, int limit) throws SQLException {
+		long version = DocumentFrequencyIndex.getCorpusVersion(conn);
+		try (PreparedStatement stmt = conn
+				.prepareStatement("SELECT corpusVersion, vector FROM tfidf_vectors WHERE fileId = ?")) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (rs.next() && rs.getLong("corpusVersion") == version) {
+					return TermVector.decode(rs.getBytes("vector"), limit);
+				}
+			}
+		}
+
+		TermVector vector = compute(conn, fileId, DocumentFrequencyIndex.getDocumentCount(conn));
+		if (vector.size() > 0) {
+			String query = "INSERT INTO tfidf_vectors (fileId, corpusVersion, vector) VALUES (?, ?, ?) "
+					+ "ON DUPLICATE KEY UPDATE corpusVersion = VALUES(corpusVersion), vector = VALUES(vector)";
+			try (PreparedStatement stmt = conn.prepareStatement(query)) {
+				stmt.setInt(1, fileId);
+				stmt.setLong(2, version);
+				stmt.setBytes(3, vector.encode());
+				stmt.executeUpdate();
+			}
+		}
+		return vector;
+	}
+
+	private static TermVector compute(Connection conn, int fileId, int documentCount) throws SQLException {
+		String query = "SELECT ft.termId, ft.termCount, t.documentFrequency FROM file_terms ft "
+				+ "JOIN terms t ON t.termId = ft.termId WHERE ft.fileId = ? AND t.term <> ''";
+		List<int[]> rows = new ArrayList<>();
+		long totalWords = 0;
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setInt(1, fileId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					int termCount = rs.getInt("termCount");
+					rows.add(new int[] { rs.getInt("termId"), termCount, rs.getInt("documentFrequency") });
+					totalWords += termCount;
+				}
+			}
+		}
+
+		Integer[] order = new Integer[rows.size()];
+		float[] weights = new float[rows.size()];
+		for (int i = 0; i < rows.size(); i++) {
+			int[] row = rows.get(i);
+			double tf = (double) row[1] / totalWords;
+			weights[i] = (float) (tf * TFIDFCalculator.otherFileIdf(row[2], documentCount));
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingDouble((Integer i) -> -weights[i]).thenComparingInt(i -> rows.get(i)[0]));
+
+		int[] sortedIds = new int[order.length];
+		float[] sortedWeights = new float[order.length];
+		for (int i = 0; i < order.length; i++) {
+			sortedIds[i] = rows.get(order[i])[0];
+			sortedWeights[i] = weights[order[i]];
+		}
+		return new TermVector(sortedIds, sortedWeights);
+	}
+
+	// The k highest weighted terms of a file, best first
+	public static Map<String, Double> getTopTerms(Connection conn, int fileId, int k) throws SQLException {
+		TermVector vector = load(conn, fileId, k);
+		int size = Math.min(k, vector.size());
+		Map<String, Double> topTerms = new LinkedHashMap<>();
+		if (size == 0) {
+			return topTerms;
+		}
+
+		StringBuilder query = new StringBuilder("SELECT termId, term FROM terms WHERE termId IN (");
+		for (int i = 0; i < size; i++) {
+			query.append(i == 0 ? "?" : ", ?");
+		}
+		query.append(")");
+		Map<Integer, String> terms = new HashMap<>();
+		try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+			for (int i = 0; i < size; i++) {
+				stmt.setInt(i + 1, vector.getTermId(i));
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					terms.put(rs.getInt("termId"), rs.getString("term"));
+				}
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			String term = terms.get(vector.getTermId(i));
+			if (term != null) {
+				topTerms.put(term, (double) vector.getWeight(i));
+			}
+		}
+		return topTerms;
+	}
+}
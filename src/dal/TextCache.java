@@ -0,0 +1,23 @@
+package dal;
+
+// Preprocessed text and tokens by content, shared by the calculators and the morphology wrappers so a
+// page or document is normalized and tokenized once however many analyses read it. Entries are keyed
+// by the content itself: a hit costs one hash and one comparison, and edited content simply misses.
+public class TextCache {
+	private static BoundedCache<String, PreprocessedText> cache;
+
+	public static synchronized BoundedCache<String, PreprocessedText> getCache() {
+		if (cache == null) {
+			cache = new BoundedCache<>(Config.getInt("textCache.size", 200), 16);
+		}
+		return cache;
+	}
+
+	public static PreprocessedText get(String content) {
+		// Very long texts would pin too much memory; they are preprocessed for the caller alone
+		if (content.length() > Config.getInt("textCache.maxLength", 100000)) {
+			return new PreprocessedText(content);
+		}
+		return getCache().get(content, PreprocessedText::new);
+	}
+}
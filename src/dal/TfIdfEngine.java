@@ -0,0 +1,125 @@
+package dal;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+// In-memory TF-IDF over an interned vocabulary. Adding a document only raises the document frequency of
+// its distinct terms, so the corpus itself is never kept; idf values live in a double[] by term id and are
+// recomputed after the corpus changes. Scores follow TFIDFCalculator: the mean of tf * idf over the
+// document's words, where idf is log(N / (1 + df)), or log(N + 1) for a term no document contains.
+// A document without any words scores 0. Not thread-safe.
+public class TfIdfEngine {
+	private final ArabicNormalizer normalizer = PreProcessText.getNormalizer();
+	private final Vocabulary vocabulary = new Vocabulary();
+	private final Tokenizer tokenizer = new Tokenizer();
+	private char[] buffer = new char[1024];
+	private int[] localCounts = new int[64];
+	private int[] documentFrequencies = new int[1024];
+	private int documentCount = 0;
+	private double[] idf;
+	private int unseenCount;
+	private int wordCount;
+
+	public void addDocument(CharSequence document) {
+		Tokenizer tokens = tokenize(document);
+		localCounts = tokens.countDistinct(localCounts);
+		for (int id = 0; id < tokens.getDistinctCount(); id++) {
+			int first = tokens.firstIndex(id);
+			if (tokens.end(first) == tokens.start(first)) {
+				continue;
+			}
+			int termId = vocabulary.intern(tokens.getText(), tokens.start(first), tokens.end(first));
+			if (termId == documentFrequencies.length) {
+				documentFrequencies = Arrays.copyOf(documentFrequencies, termId * 2);
+			}
+			documentFrequencies[termId]++;
+		}
+		documentCount++;
+		idf = null;
+	}
+
+	public int getDocumentCount() {
+		return documentCount;
+	}
+
+	public Vocabulary getVocabulary() {
+		return vocabulary;
+	}
+
+	public int getDocumentFrequency(int termId) {
+		return termId < vocabulary.size() ? documentFrequencies[termId] : 0;
+	}
+
+	public double getIdf(int termId) {
+		return idfValues()[termId];
+	}
+
+	// The idf of a term no document contains
+	public double getUnseenIdf() {
+		return TFIDFCalculator.inverseDocumentFrequency(0, documentCount);
+	}
+
+	private double[] idfValues() {
+		if (idf == null) {
+			idf = new double[vocabulary.size()];
+			for (int termId = 0; termId < idf.length; termId++) {
+				idf[termId] = TFIDFCalculator.inverseDocumentFrequency(documentFrequencies[termId], documentCount);
+			}
+		}
+		return idf;
+	}
+
+	// Counts by term id of the document's words the vocabulary knows. Words it does not know are left out;
+	// getUnseenCount() and getWordCount() describe the document until the next call.
+	public IntIntMap termCounts(CharSequence document) {
+		Tokenizer tokens = tokenize(document);
+		localCounts = tokens.countDistinct(localCounts);
+		IntIntMap counts = new IntIntMap(tokens.getDistinctCount());
+		unseenCount = 0;
+		wordCount = 0;
+		for (int id = 0; id < tokens.getDistinctCount(); id++) {
+			int first = tokens.firstIndex(id);
+			if (tokens.end(first) == tokens.start(first)) {
+				continue;
+			}
+			wordCount += localCounts[id];
+			int termId = vocabulary.id(tokens.getText(), tokens.start(first), tokens.end(first));
+			if (termId < 0) {
+				unseenCount += localCounts[id];
+			} else {
+				counts.put(termId, localCounts[id]);
+			}
+		}
+		return counts;
+	}
+
+	public int getUnseenCount() {
+		return unseenCount;
+	}
+
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	public double score(CharSequence document) {
+		IntIntMap counts = termCounts(document);
+		if (wordCount == 0) {
+			return 0.0;
+		}
+		double[] idfValues = idfValues();
+		double weightedCount = unseenCount * getUnseenIdf();
+		for (int i = 0; i < counts.size(); i++) {
+			weightedCount += counts.valueAt(i) * idfValues[counts.keyAt(i)];
+		}
+		return weightedCount / wordCount / wordCount;
+	}
+
+	// Normalizes into the reusable buffer; the returned tokens are only valid until the next call
+	private Tokenizer tokenize(CharSequence document) {
+		if (buffer.length < document.length()) {
+			buffer = new char[Math.max(document.length(), buffer.length * 2)];
+		}
+		int length = normalizer.normalize(document, buffer);
+		return tokenizer.tokenize(CharBuffer.wrap(buffer, 0, length));
+	}
+}
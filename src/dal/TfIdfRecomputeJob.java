@@ -0,0 +1,252 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import dto.RecomputeSummary;
+import pl.EditorPO;
+
+// Recomputes every stored tfidf score and rebuilds the document frequency index behind them, for when the
+// normalization settings change or many files were added. The pages are read once in file order while the
+// analysis pool counts the terms of the files already read; the document frequencies are complete once the
+// last file is counted, so every file is then scored in parallel and the results are written back in one
+// transaction of batched statements.
+public class TfIdfRecomputeJob {
+	private static final Logger LOGGER = LogManager.getLogger(EditorPO.class);
+
+	private final Vocabulary vocabulary = new Vocabulary();
+	private int[] documentFrequencies = new int[1024];
+	private int[] corpusFrequencies = new int[1024];
+	private final List<FileTerms> files = new ArrayList<>();
+	private int pageCount = 0;
+
+	private static class FileTerms {
+		private final int fileId;
+		private final int[] termIds;
+		private final int[] termCounts;
+		private final int wordCount;
+		private double score;
+
+		FileTerms(int fileId, int[] termIds, int[] termCounts, int wordCount) {
+			this.fileId = fileId;
+			this.termIds = termIds;
+			this.termCounts = termCounts;
+			this.wordCount = wordCount;
+		}
+	}
+
+	public static RecomputeSummary run(Connection conn) throws Exception {
+		return new TfIdfRecomputeJob().recompute(conn);
+	}
+
+	private RecomputeSummary recompute(Connection conn) throws Exception {
+		long startTime = System.nanoTime();
+		long version = DocumentFrequencyIndex.getCorpusVersion(conn);
+		readCorpus(conn);
+		long readTime = System.nanoTime();
+		scoreFiles();
+		long scoreTime = System.nanoTime();
+		write(conn, version);
+		long endTime = System.nanoTime();
+
+		RecomputeSummary summary = new RecomputeSummary(files.size(), pageCount, vocabulary.size(),
+				(endTime - startTime) / 1000000);
+		LOGGER.info(String.format(
+				"Recomputed TF-IDF for %d files (%d pages, %d terms) in %.2f s, %.0f files/sec: "
+						+ "read %.2f s, score %.2f s, write %.2f s",
+				files.size(), pageCount, vocabulary.size(), (endTime - startTime) / 1e9, summary.getFilesPerSecond(),
+				(readTime - startTime) / 1e9, (scoreTime - readTime) / 1e9, (endTime - scoreTime) / 1e9));
+		return summary;
+	}
+
+	// Files without pages still count as documents, as they do in DocumentFrequencyIndex
+	private void readCorpus(Connection conn) throws Exception {
+		String query = "SELECT f.fileId, p.pageContent FROM files f LEFT JOIN pages p ON p.fileId = f.fileId "
+				+ "ORDER BY f.fileId, p.pageNumber";
+		Deque<ForkJoinTask<TermCounter>> pending = new ArrayDeque<>();
+		Deque<Integer> pendingFileIds = new ArrayDeque<>();
+		int windowSize = PageAnalyzer.getWindowSize();
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			stmt.setFetchSize(1000);
+			try (ResultSet rs = stmt.executeQuery()) {
+				int currentFileId = -1;
+				List<String> pages = new ArrayList<>();
+				boolean more = rs.next();
+				while (more) {
+					currentFileId = rs.getInt("fileId");
+					String pageContent = rs.getString("pageContent");
+					if (pageContent != null) {
+						pages.add(pageContent);
+						pageCount++;
+					}
+					more = rs.next();
+					if (!more || rs.getInt("fileId") != currentFileId) {
+						List<String> filePages = pages;
+						pending.addLast(PageAnalyzer.getPool().submit(() -> countTerms(filePages)));
+						pendingFileIds.addLast(currentFileId);
+						pages = new ArrayList<>();
+						while (pending.size() >= windowSize) {
+							addFile(pendingFileIds.removeFirst(), pending.removeFirst().get());
+						}
+					}
+				}
+			}
+			while (!pending.isEmpty()) {
+				addFile(pendingFileIds.removeFirst(), pending.removeFirst().get());
+			}
+		} finally {
+			for (ForkJoinTask<TermCounter> task : pending) {
+				task.cancel(true);
+			}
+		}
+	}
+
+	private static TermCounter countTerms(List<String> pages) {
+		TermCounter counter = new TermCounter();
+		for (String page : pages) {
+			counter.accept(page);
+		}
+		counter.finish();
+		return counter;
+	}
+
+	// The empty term split() yields for leading whitespace is neither a word nor a term
+	private void addFile(int fileId, TermCounter counter) {
+		Map<String, Integer> termCounts = counter.getTermCounts();
+		int[] termIds = new int[termCounts.size()];
+		int[] counts = new int[termCounts.size()];
+		int size = 0;
+		for (Map.Entry<String, Integer> entry : termCounts.entrySet()) {
+			String term = entry.getKey();
+			if (term.isEmpty()) {
+				continue;
+			}
+			int termId = vocabulary.intern(term, 0, term.length());
+			if (termId == documentFrequencies.length) {
+				documentFrequencies = Arrays.copyOf(documentFrequencies, termId * 2);
+				corpusFrequencies = Arrays.copyOf(corpusFrequencies, termId * 2);
+			}
+			documentFrequencies[termId]++;
+			corpusFrequencies[termId] += entry.getValue();
+			termIds[size] = termId;
+			counts[size] = entry.getValue();
+			size++;
+		}
+		int wordCount = counter.getWordCount() - termCounts.getOrDefault("", 0);
+		files.add(new FileTerms(fileId, Arrays.copyOf(termIds, size), Arrays.copyOf(counts, size), wordCount));
+	}
+
+	// Each file is scored against the other files, as it is when it is created or edited. Terms too long for
+	// the terms table are never found there, so they score as if no other file contained them.
+	private void scoreFiles() throws Exception {
+		double[] idf = new double[vocabulary.size()];
+		for (int termId = 0; termId < idf.length; termId++) {
+			boolean stored = vocabulary.term(termId).length() <= DocumentFrequencyIndex.MAX_TERM_LENGTH;
+			idf[termId] = TFIDFCalculator.otherFileIdf(stored ? documentFrequencies[termId] : 1, files.size());
+		}
+		PageAnalyzer.getPool().submit(() -> IntStream.range(0, files.size()).parallel().forEach(i -> {
+			FileTerms file = files.get(i);
+			if (file.wordCount <= 0) {
+				file.score = 0.0;
+				return;
+			}
+			double weightedCount = 0.0;
+			for (int j = 0; j < file.termIds.length; j++) {
+				weightedCount += file.termCounts[j] * idf[file.termIds[j]];
+			}
+			file.score = weightedCount / file.wordCount / file.wordCount;
+		})).get();
+	}
+
+	private void write(Connection conn, long version) throws SQLException {
+		boolean autoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(false);
+		try (Statement stmt = conn.createStatement();
+				PreparedStatement termStmt = conn
+						.prepareStatement("INSERT INTO terms (termId, term, documentFrequency, corpusFrequency) VALUES (?, ?, ?, ?)");
+				PreparedStatement fileTermStmt = conn
+						.prepareStatement("INSERT INTO file_terms (fileId, termId, termCount) VALUES (?, ?, ?)");
+				PreparedStatement lengthStmt = conn
+						.prepareStatement("INSERT INTO file_lengths (fileId, wordCount) VALUES (?, ?)");
+				PreparedStatement tfidfStmt = conn.prepareStatement("UPDATE tfidf SET tfidfScore = ? WHERE fileId = ?")) {
+			// Files are imported on connections of their own; one stored since the corpus was read would be
+			// left out of the rewritten terms
+			if (DocumentFrequencyIndex.lockCorpusVersion(conn) != version) {
+				throw new SQLException("The corpus changed while TF-IDF was recomputed; try again");
+			}
+			stmt.executeUpdate("DELETE FROM file_terms");
+			stmt.executeUpdate("DELETE FROM file_lengths");
+			stmt.executeUpdate("DELETE FROM terms");
+
+			BatchWriter writer = new BatchWriter();
+			writer.register(termStmt);
+			writer.register(fileTermStmt);
+			writer.register(lengthStmt);
+			writer.register(tfidfStmt);
+			// Stored term ids start at 1, like the auto-increment ones
+			for (int termId = 0; termId < vocabulary.size(); termId++) {
+				String term = vocabulary.term(termId);
+				if (term.length() > DocumentFrequencyIndex.MAX_TERM_LENGTH) {
+					continue;
+				}
+				termStmt.setInt(1, termId + 1);
+				termStmt.setString(2, term);
+				termStmt.setInt(3, documentFrequencies[termId]);
+				termStmt.setInt(4, corpusFrequencies[termId]);
+				writer.add(termStmt, 20 + term.length() * 2);
+			}
+			// File lengths count the stored terms only, as DocumentFrequencyIndex counts them
+			long totalWords = 0;
+			for (FileTerms file : files) {
+				int storedWords = 0;
+				for (int j = 0; j < file.termIds.length; j++) {
+					if (vocabulary.term(file.termIds[j]).length() > DocumentFrequencyIndex.MAX_TERM_LENGTH) {
+						continue;
+					}
+					fileTermStmt.setInt(1, file.fileId);
+					fileTermStmt.setInt(2, file.termIds[j] + 1);
+					fileTermStmt.setInt(3, file.termCounts[j]);
+					writer.add(fileTermStmt, 12);
+					storedWords += file.termCounts[j];
+				}
+				lengthStmt.setInt(1, file.fileId);
+				lengthStmt.setInt(2, storedWords);
+				writer.add(lengthStmt, 8);
+				totalWords += storedWords;
+				tfidfStmt.setDouble(1, file.score);
+				tfidfStmt.setInt(2, file.fileId);
+				writer.add(tfidfStmt, 12);
+			}
+			writer.flush();
+
+			// The version moves on so stored TF-IDF vectors and the similarity index are rebuilt
+			try (PreparedStatement statsStmt = conn.prepareStatement("INSERT INTO corpus_stats "
+					+ "(statId, documentCount, totalWords) VALUES (1, ?, ?) ON DUPLICATE KEY UPDATE "
+					+ "documentCount = VALUES(documentCount), totalWords = VALUES(totalWords), version = version + 1")) {
+				statsStmt.setInt(1, files.size());
+				statsStmt.setLong(2, totalWords);
+				statsStmt.executeUpdate();
+			}
+			conn.commit();
+		} catch (SQLException e) {
+			conn.rollback();
+			throw e;
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+	}
+}
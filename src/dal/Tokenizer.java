@@ -0,0 +1,215 @@
+package dal;
+
+import java.util.Arrays;
+
+// Splits text on whitespace in one pass, recording token offsets in int arrays that are reused by the
+// next call to tokenize(). The tokens are exactly those of text.split("\\s+"): empty text has one empty
+// token, text that starts with whitespace gets an empty first token, and text of only whitespace has none.
+// Equal tokens share an id, and token(i) returns one String per distinct token. A frozen tokenizer keeps
+// its text for good and has every String made, so it only ever reads and can be shared between threads.
+public class Tokenizer {
+	private CharSequence text = "";
+	private int[] starts = new int[64];
+	private int[] ends = new int[64];
+	private int[] ids = new int[64];
+	private int size = 0;
+
+	// Open-addressed table of distinct tokens: slot -> id + 1, and per id its first token and String
+	private int[] slots = new int[128];
+	private int[] firstTokens = new int[64];
+	private int[] hashes = new int[64];
+	private String[] strings = new String[64];
+	private int distinctCount = 0;
+	private boolean frozen = false;
+
+	public Tokenizer tokenize(CharSequence text) {
+		if (frozen) {
+			throw new IllegalStateException("A frozen tokenizer cannot be handed another text");
+		}
+		this.text = text;
+		size = 0;
+		Arrays.fill(slots, 0);
+		Arrays.fill(strings, 0, distinctCount, null);
+		distinctCount = 0;
+
+		int length = text.length();
+		if (length == 0) {
+			addToken(0, 0);
+			return this;
+		}
+		int i = 0;
+		if (PreProcessText.isWhitespace(text.charAt(0))) {
+			while (i < length && PreProcessText.isWhitespace(text.charAt(i))) {
+				i++;
+			}
+			if (i < length) {
+				addToken(0, 0);
+			}
+		}
+		while (i < length) {
+			int start = i;
+			while (i < length && !PreProcessText.isWhitespace(text.charAt(i))) {
+				i++;
+			}
+			addToken(start, i);
+			while (i < length && PreProcessText.isWhitespace(text.charAt(i))) {
+				i++;
+			}
+		}
+		return this;
+	}
+
+	private void addToken(int start, int end) {
+		if (size == starts.length) {
+			starts = Arrays.copyOf(starts, size * 2);
+			ends = Arrays.copyOf(ends, size * 2);
+			ids = Arrays.copyOf(ids, size * 2);
+		}
+		starts[size] = start;
+		ends[size] = end;
+		ids[size] = idOf(start, end, size);
+		size++;
+	}
+
+	private int idOf(int start, int end, int tokenIndex) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + text.charAt(i);
+		}
+		int mask = slots.length - 1;
+		int slot = mix(hash) & mask;
+		while (slots[slot] != 0) {
+			int id = slots[slot] - 1;
+			if (hashes[id] == hash && regionEquals(firstTokens[id], start, end)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (distinctCount == firstTokens.length) {
+			firstTokens = Arrays.copyOf(firstTokens, distinctCount * 2);
+			hashes = Arrays.copyOf(hashes, distinctCount * 2);
+			strings = Arrays.copyOf(strings, distinctCount * 2);
+		}
+		int id = distinctCount++;
+		firstTokens[id] = tokenIndex;
+		hashes[id] = hash;
+		slots[slot] = id + 1;
+		if (distinctCount * 2 > slots.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	private boolean regionEquals(int tokenIndex, int start, int end) {
+		int otherStart = starts[tokenIndex];
+		if (ends[tokenIndex] - otherStart != end - start) {
+			return false;
+		}
+		for (int i = 0; i < end - start; i++) {
+			if (text.charAt(otherStart + i) != text.charAt(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int id = 0; id < distinctCount; id++) {
+			int slot = mix(hashes[id]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id + 1;
+		}
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	// Makes the String of every distinct token and stops the tokenizer from being reused; returns this
+	public Tokenizer freeze() {
+		for (int id = 0; id < distinctCount; id++) {
+			distinctToken(id);
+		}
+		frozen = true;
+		return this;
+	}
+
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	public CharSequence getText() {
+		return text;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int start(int index) {
+		checkIndex(index);
+		return starts[index];
+	}
+
+	public int end(int index) {
+		checkIndex(index);
+		return ends[index];
+	}
+
+	// Ids run from 0 to getDistinctCount() - 1 in order of first appearance
+	public int id(int index) {
+		checkIndex(index);
+		return ids[index];
+	}
+
+	public int getDistinctCount() {
+		return distinctCount;
+	}
+
+	public String token(int index) {
+		return distinctToken(id(index));
+	}
+
+	// Index of the first token with this id, for reading its offsets without creating a String
+	public int firstIndex(int id) {
+		if (id < 0 || id >= distinctCount) {
+			throw new IndexOutOfBoundsException("Token id " + id + " of " + distinctCount);
+		}
+		return firstTokens[id];
+	}
+
+	public String distinctToken(int id) {
+		if (id < 0 || id >= distinctCount) {
+			throw new IndexOutOfBoundsException("Token id " + id + " of " + distinctCount);
+		}
+		if (strings[id] == null) {
+			int tokenIndex = firstTokens[id];
+			strings[id] = text.subSequence(starts[tokenIndex], ends[tokenIndex]).toString();
+		}
+		return strings[id];
+	}
+
+	// Occurrences of each distinct token, indexed by id
+	public int[] countDistinct(int[] counts) {
+		if (counts == null || counts.length < distinctCount) {
+			counts = new int[distinctCount];
+		} else {
+			Arrays.fill(counts, 0, distinctCount, 0);
+		}
+		for (int i = 0; i < size; i++) {
+			counts[ids[i]]++;
+		}
+		return counts;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Token " + index + " of " + size);
+		}
+	}
+}
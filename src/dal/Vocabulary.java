@@ -0,0 +1,104 @@
+package dal;
+
+import java.util.Arrays;
+
+// Interns terms to dense int ids. Lookups take a region of any CharSequence, so a term that is already
+// known is found without creating a String for it.
+public class Vocabulary {
+	private int[] slots = new int[1024];
+	private String[] terms = new String[512];
+	private int[] hashes = new int[512];
+	private int size = 0;
+
+	public int size() {
+		return size;
+	}
+
+	public String term(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("Term id " + id + " of " + size);
+		}
+		return terms[id];
+	}
+
+	public int id(CharSequence term) {
+		return id(term, 0, term.length());
+	}
+
+	// -1 when the term has not been interned
+	public int id(CharSequence text, int start, int end) {
+		int hash = hash(text, start, end);
+		int slot = findSlot(text, start, end, hash);
+		return slots[slot] - 1;
+	}
+
+	public int intern(CharSequence text, int start, int end) {
+		int hash = hash(text, start, end);
+		int slot = findSlot(text, start, end, hash);
+		if (slots[slot] != 0) {
+			return slots[slot] - 1;
+		}
+		if (size == terms.length) {
+			terms = Arrays.copyOf(terms, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		int id = size++;
+		terms[id] = text.subSequence(start, end).toString();
+		hashes[id] = hash;
+		slots[slot] = id + 1;
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	private int findSlot(CharSequence text, int start, int end, int hash) {
+		int mask = slots.length - 1;
+		int slot = mix(hash) & mask;
+		while (slots[slot] != 0) {
+			int id = slots[slot] - 1;
+			if (hashes[id] == hash && regionEquals(terms[id], text, start, end)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static boolean regionEquals(String term, CharSequence text, int start, int end) {
+		if (term.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < term.length(); i++) {
+			if (term.charAt(i) != text.charAt(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = mix(hashes[id]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id + 1;
+		}
+	}
+
+	// Same value as String.hashCode() of the region
+	private static int hash(CharSequence text, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + text.charAt(i);
+		}
+		return hash;
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
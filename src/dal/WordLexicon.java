@@ -0,0 +1,248 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class WordLexicon {
+	private static final int CHUNK_SIZE = 500;
+	// word_analysis.word is a VARCHAR(255)
+	static final int MAX_WORD_LENGTH = 255;
+	private static BoundedCache<String, Integer> wordIds;
+	private static boolean warmedUp = false;
+
+	public static synchronized BoundedCache<String, Integer> getCache() {
+		if (wordIds == null) {
+			wordIds = new BoundedCache<>(Config.getInt("lexicon.cacheSize", 200000), 64);
+		}
+		return wordIds;
+	}
+
+	// Loads committed word ids once so the analysis pool can skip words the lexicon already has analyzed
+	public static synchronized void warmUp(Connection conn) throws SQLException {
+		if (warmedUp) {
+			return;
+		}
+		try (Statement stmt = conn.createStatement()) {
+			stmt.setMaxRows(Config.getInt("lexicon.cacheSize", 200000));
+			try (ResultSet rs = stmt.executeQuery("SELECT wordId, word FROM word_analysis WHERE pos IS NOT NULL")) {
+				while (rs.next()) {
+					getCache().put(rs.getString("word"), rs.getInt("wordId"));
+				}
+			}
+		}
+		warmedUp = true;
+	}
+
+	public static boolean isKnown(String word) {
+		return getCache().get(word) != null;
+	}
+
+	public static Map<String, Integer> countWords(String text) {
+		return countWords(new Tokenizer().tokenize(text));
+	}
+
+	// Each distinct token is normalized once, however often it repeats
+	public static Map<String, Integer> countWords(Tokenizer tokens) {
+		Map<String, Integer> wordCounts = new LinkedHashMap<>();
+		String[] normalizedWords = new String[tokens.getDistinctCount()];
+		for (int i = 0; i < tokens.size(); i++) {
+			int id = tokens.id(i);
+			if (normalizedWords[id] == null) {
+				normalizedWords[id] = MorphologyCache.normalize(tokens.distinctToken(id));
+			}
+			String normalizedWord = normalizedWords[id];
+			if (!normalizedWord.isEmpty()) {
+				wordCounts.put(normalizedWord, wordCounts.getOrDefault(normalizedWord, 0) + 1);
+			}
+		}
+		return wordCounts;
+	}
+
+	// Returns the wordId of every word, inserting analyses for words the lexicon has never seen.
+	// Ids created inside the caller's transaction are collected in uncommittedIds and only
+	// become visible to other callers through commit(). A word the analyzer failed on is stored with a
+	// NULL pos so its pages keep their reference; it is never cached as known and is analyzed again the
+	// next time it is resolved.
+	public static Map<String, Integer> resolve(Connection conn, Collection<String> words,
+			Map<String, MorphologyAnalysis> analyses, Map<String, Integer> uncommittedIds) throws SQLException {
+		Map<String, Integer> resolved = new HashMap<>();
+		List<String> missing = new ArrayList<>();
+
+		for (String word : words) {
+			Integer wordId = uncommittedIds.get(word);
+			if (wordId == null) {
+				wordId = getCache().get(word);
+			}
+			if (wordId != null) {
+				resolved.put(word, wordId);
+			} else {
+				missing.add(word);
+			}
+		}
+		if (missing.isEmpty()) {
+			return resolved;
+		}
+
+		Set<String> unanalyzed = new HashSet<>();
+		Map<String, Integer> existing = selectIds(conn, missing, false, unanalyzed);
+		for (Map.Entry<String, Integer> entry : existing.entrySet()) {
+			if (!unanalyzed.contains(entry.getKey())) {
+				getCache().put(entry.getKey(), entry.getValue());
+			}
+		}
+		resolved.putAll(existing);
+
+		List<String> unseen = new ArrayList<>();
+		for (String word : missing) {
+			if (!existing.containsKey(word)) {
+				unseen.add(word);
+			}
+		}
+		if (unseen.isEmpty() && unanalyzed.isEmpty()) {
+			return resolved;
+		}
+		// Imports and analytics workers add words on connections of their own; rows locked in the same order
+		// cannot deadlock
+		Collections.sort(unseen);
+
+		List<String> toAnalyze = new ArrayList<>();
+		for (String word : missing) {
+			if ((unanalyzed.contains(word) || !existing.containsKey(word)) && analyses.get(word) == null) {
+				toAnalyze.add(word);
+			}
+		}
+		Map<String, MorphologyAnalysis> lateAnalyses = MorphologyAnalysis.analyzeWords(toAnalyze);
+
+		String updateQuery = "UPDATE word_analysis SET pos = ?, lemma = ?, root = ?, stem = ?, segment = ? "
+				+ "WHERE wordId = ? AND pos IS NULL";
+		try (PreparedStatement updateStmt = conn.prepareStatement(updateQuery)) {
+			for (String word : new TreeSet<>(unanalyzed)) {
+				MorphologyAnalysis analysis = analysisOf(word, analyses, lateAnalyses);
+				if (analysis != null) {
+					setAnalysis(updateStmt, 1, analysis);
+					updateStmt.setInt(6, existing.get(word));
+					updateStmt.addBatch();
+					uncommittedIds.put(word, existing.get(word));
+				}
+			}
+			updateStmt.executeBatch();
+		}
+		if (unseen.isEmpty()) {
+			return resolved;
+		}
+
+		String insertQuery = "INSERT IGNORE INTO word_analysis (word, pos, lemma, root, stem, segment) VALUES (?, ?, ?, ?, ?, ?)";
+		try (PreparedStatement insertStmt = conn.prepareStatement(insertQuery)) {
+			for (String word : unseen) {
+				insertStmt.setString(1, storedWord(word));
+				setAnalysis(insertStmt, 2, analysisOf(word, analyses, lateAnalyses));
+				insertStmt.addBatch();
+			}
+			insertStmt.executeBatch();
+		}
+
+		// A word another worker committed after this transaction's snapshot was taken is ignored by the
+		// insert and invisible to a plain read, so the ids are read with a locking read of the latest rows
+		Map<String, Integer> inserted = selectIds(conn, unseen, true, null);
+		for (String word : unseen) {
+			if (!inserted.containsKey(word)) {
+				throw new SQLException("Word could not be added to the lexicon: " + word);
+			}
+			if (analysisOf(word, analyses, lateAnalyses) != null) {
+				uncommittedIds.put(word, inserted.get(word));
+			}
+		}
+		resolved.putAll(inserted);
+		return resolved;
+	}
+
+	private static MorphologyAnalysis analysisOf(String word, Map<String, MorphologyAnalysis> analyses,
+			Map<String, MorphologyAnalysis> lateAnalyses) {
+		MorphologyAnalysis analysis = analyses.get(word);
+		return analysis != null ? analysis : lateAnalyses.get(word);
+	}
+
+	// Sets pos, lemma, root, stem and segment from the given parameter on; all NULL without an analysis
+	private static void setAnalysis(PreparedStatement stmt, int first, MorphologyAnalysis analysis)
+			throws SQLException {
+		stmt.setString(first, analysis == null ? null : String.join("|", analysis.getPosTags()));
+		stmt.setString(first + 1, analysis == null ? null : analysis.getLemma());
+		stmt.setString(first + 2, analysis == null ? null : analysis.getRoot());
+		stmt.setString(first + 3, analysis == null ? null : analysis.getStem());
+		stmt.setString(first + 4, analysis == null ? null : analysis.getSegment());
+	}
+
+	// Words too long for the column are stored as a prefix and the hash of the whole word, so they keep
+	// a lexicon entry of their own instead of being truncated onto another word's
+	static String storedWord(String word) {
+		if (word.length() <= MAX_WORD_LENGTH) {
+			return word;
+		}
+		try {
+			String hash = HashCalculator.calculateHash(word);
+			int prefixLength = MAX_WORD_LENGTH - hash.length() - 1;
+			if (Character.isHighSurrogate(word.charAt(prefixLength - 1))) {
+				prefixLength--;
+			}
+			return word.substring(0, prefixLength) + "#" + hash;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static void commit(Map<String, Integer> uncommittedIds) {
+		for (Map.Entry<String, Integer> entry : uncommittedIds.entrySet()) {
+			getCache().put(entry.getKey(), entry.getValue());
+		}
+		uncommittedIds.clear();
+	}
+
+	// Keyed by the words as given, whatever form they are stored in. Words stored without an analysis are
+	// added to unanalyzed when it is given.
+	private static Map<String, Integer> selectIds(Connection conn, List<String> words, boolean locking,
+			Set<String> unanalyzed) throws SQLException {
+		Map<String, Integer> ids = new HashMap<>();
+		for (int from = 0; from < words.size(); from += CHUNK_SIZE) {
+			List<String> chunk = words.subList(from, Math.min(words.size(), from + CHUNK_SIZE));
+			Map<String, String> wordsByStored = new HashMap<>();
+			StringBuilder query = new StringBuilder(
+					"SELECT wordId, word, pos IS NULL AS unanalyzed FROM word_analysis WHERE word IN (");
+			for (int i = 0; i < chunk.size(); i++) {
+				wordsByStored.put(storedWord(chunk.get(i)), chunk.get(i));
+				query.append(i == 0 ? "?" : ", ?");
+			}
+			query.append(locking ? ") LOCK IN SHARE MODE" : ")");
+
+			try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+				for (int i = 0; i < chunk.size(); i++) {
+					stmt.setString(i + 1, storedWord(chunk.get(i)));
+				}
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						String word = wordsByStored.get(rs.getString("word"));
+						if (word != null) {
+							ids.put(word, rs.getInt("wordId"));
+							if (unanalyzed != null && rs.getBoolean("unanalyzed")) {
+								unanalyzed.add(word);
+							}
+						}
+					}
+				}
+			}
+		}
+		return ids;
+	}
+}
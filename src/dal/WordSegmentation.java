@@ -1,67 +1,35 @@
 package dal;
 
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-
-import net.oujda_nlp_team.AlKhalil2Analyzer;
-import net.oujda_nlp_team.entity.Result;
-import pl.EditorPO;
-
 public class WordSegmentation {
 
 	public static Map<String, String> extractSegments(String text) {
+		return extractSegments(MorphologyAnalysis.analyzeText(text));
+	}
 
+	public static Map<String, String> extractSegments(Map<String, MorphologyAnalysis> analyses) {
 		Map<String, String> wordSegmentMap = new LinkedHashMap<>();
-		final Logger logger = LogManager.getLogger(EditorPO.class);
-
-		String[] words = text.split("\\s+");
-
-		try {
-
-			AlKhalil2Analyzer analyzer = AlKhalil2Analyzer.getInstance();
-
-			if (analyzer != null) {
-				for (String word : words) {
-
-					List<Result> results = analyzer.processToken(word).getAllResults();
-
-					if (results != null && !results.isEmpty()) {
-
-						Result firstResult = results.get(0);
-						String stem = firstResult.getStem();
-
-						String prefix = getPrefix(word);
-						String suffix = getSuffix(word);
-
-						StringBuilder segmentBuilder = new StringBuilder();
-						if (!prefix.isEmpty()) {
-							segmentBuilder.append(prefix).append("-");
-						}
-						segmentBuilder.append(stem);
-						if (!suffix.isEmpty()) {
-							segmentBuilder.append("-").append(suffix);
-						}
+		for (Map.Entry<String, MorphologyAnalysis> entry : analyses.entrySet()) {
+			wordSegmentMap.put(entry.getKey(), entry.getValue().getSegment());
+		}
+		return wordSegmentMap;
+	}
 
-						wordSegmentMap.put(word, segmentBuilder.toString());
-					} else {
+	static String buildSegment(String word, String stem) {
+		String prefix = getPrefix(word);
+		String suffix = getSuffix(word);
 
-						wordSegmentMap.put(word, "None");
-					}
-				}
-			} else {
-				System.err.println("Failed to initialize AlKhalil2Analyzer.");
-				logger.error("Failed to initialize AlKhalil2Analyzer.");
-			}
-		} catch (Exception e) {
-			System.err.println("Error while extracting word segments: " + e.getMessage());
-			logger.error("Error while extracting word segments: " + e.getMessage());
+		StringBuilder segmentBuilder = new StringBuilder();
+		if (!prefix.isEmpty()) {
+			segmentBuilder.append(prefix).append("-");
 		}
-
-		return wordSegmentMap;
+		segmentBuilder.append(stem);
+		if (!suffix.isEmpty()) {
+			segmentBuilder.append("-").append(suffix);
+		}
+		return segmentBuilder.toString();
 	}
 
 	private static String getPrefix(String word) {
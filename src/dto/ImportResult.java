@@ -0,0 +1,44 @@
+package dto;
+
+public class ImportResult {
+	public enum Status {
+		STORED, LINKED, REPLACED, SKIPPED, FAILED
+	}
+
+	private Status status;
+	private SimilarFile duplicateOf;
+	private boolean analyticsFailed;
+
+	public ImportResult(Status status, SimilarFile duplicateOf) {
+		this(status, duplicateOf, false);
+	}
+
+	public ImportResult(Status status, SimilarFile duplicateOf, boolean analyticsFailed) {
+		this.status = status;
+		this.duplicateOf = duplicateOf;
+		this.analyticsFailed = analyticsFailed;
+	}
+
+	public static ImportResult failed() {
+		return new ImportResult(Status.FAILED, null);
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	// Whether the file is now in the database, under its own content or linked to an identical copy
+	public boolean isStored() {
+		return status != Status.SKIPPED && status != Status.FAILED;
+	}
+
+	// The file was stored, but analyzing its pages before the import returned failed
+	public boolean isAnalyticsFailed() {
+		return analyticsFailed;
+	}
+
+	// The stored file this one duplicated and was linked to, replaced or skipped for; null otherwise
+	public SimilarFile getDuplicateOf() {
+		return duplicateOf;
+	}
+}
@@ -0,0 +1,50 @@
+package dto;
+
+import java.util.Map;
+
+public class ImportSummary {
+	private int totalFiles;
+	private int importedFiles;
+	private Map<String, String> skipped;
+	private Map<String, String> failures;
+	private long elapsedMillis;
+
+	public ImportSummary(int totalFiles, int importedFiles, Map<String, String> skipped, Map<String, String> failures,
+			long elapsedMillis) {
+		this.totalFiles = totalFiles;
+		this.importedFiles = importedFiles;
+		this.skipped = skipped;
+		this.failures = failures;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public int getTotalFiles() {
+		return totalFiles;
+	}
+
+	public int getImportedFiles() {
+		return importedFiles;
+	}
+
+	public int getSkippedFiles() {
+		return skipped.size();
+	}
+
+	// File path -> the stored file it duplicates
+	public Map<String, String> getSkipped() {
+		return skipped;
+	}
+
+	public int getFailedFiles() {
+		return failures.size();
+	}
+
+	// File path -> reason the import failed
+	public Map<String, String> getFailures() {
+		return failures;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+}
@@ -6,6 +6,7 @@ public class Pages {
 	int fileId;
 	int pageNumber;
 	String pageContent;
+	String analysisStatus = "done";
 
 	public Pages(int pageId, int fileId, int pageNumber, String pageContent) {
 		this.pageId = pageId;
@@ -30,6 +31,10 @@ public class Pages {
 		return pageContent;
 	}
 
+	public String getAnalysisStatus() {
+		return analysisStatus;
+	}
+
 	public void setPageId(int pageId) {
 		this.pageId = pageId;
 	}
@@ -45,4 +50,8 @@ public class Pages {
 	public void setPageContent(String pageContent) {
 		this.pageContent = pageContent;
 	}
+
+	public void setAnalysisStatus(String analysisStatus) {
+		this.analysisStatus = analysisStatus;
+	}
 }
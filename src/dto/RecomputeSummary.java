@@ -0,0 +1,36 @@
+package dto;
+
+public class RecomputeSummary {
+	private int fileCount;
+	private int pageCount;
+	private int termCount;
+	private long elapsedMillis;
+
+	public RecomputeSummary(int fileCount, int pageCount, int termCount, long elapsedMillis) {
+		this.fileCount = fileCount;
+		this.pageCount = pageCount;
+		this.termCount = termCount;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public int getFileCount() {
+		return fileCount;
+	}
+
+	public int getPageCount() {
+		return pageCount;
+	}
+
+	// Distinct terms across the corpus
+	public int getTermCount() {
+		return termCount;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public double getFilesPerSecond() {
+		return fileCount * 1000.0 / Math.max(1, elapsedMillis);
+	}
+}
@@ -0,0 +1,40 @@
+package dto;
+
+public class SearchResult {
+	private int id;
+	private String name;
+	private double score;
+	private int matchCount;
+	private int bestPageNumber;
+
+	public SearchResult(int id, String name, double score, int matchCount, int bestPageNumber) {
+		this.id = id;
+		this.name = name;
+		this.score = score;
+		this.matchCount = matchCount;
+		this.bestPageNumber = bestPageNumber;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	// BM25 score of the file for the query
+	public double getScore() {
+		return score;
+	}
+
+	// Occurrences of the query terms in the file
+	public int getMatchCount() {
+		return matchCount;
+	}
+
+	// -1 while the file's pages are not analyzed
+	public int getBestPageNumber() {
+		return bestPageNumber;
+	}
+}
@@ -0,0 +1,26 @@
+package dto;
+
+public class SimilarFile {
+	private int id;
+	private String name;
+	private double similarity;
+
+	public SimilarFile(int id, String name, double similarity) {
+		this.id = id;
+		this.name = name;
+		this.similarity = similarity;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	// Cosine similarity of the files' TF-IDF vectors, from 0 to 1
+	public double getSimilarity() {
+		return similarity;
+	}
+}
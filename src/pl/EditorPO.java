@@ -11,8 +11,8 @@ import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.File;
 import java.rmi.RemoteException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,13 +38,18 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import bll.IEditorBO;
+import bll.IImportProgressListener;
 import dto.Documents;
 import dto.Pages;
+import dto.SearchResult;
+import dto.SimilarFile;
 
 public class EditorPO extends JFrame {
 
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = LogManager.getLogger(EditorPO.class);
+	private static final int SIMILAR_FILE_COUNT = 10;
+	private static final int SEARCH_RESULT_COUNT = 20;
 	private IEditorBO businessObj;
 	private DefaultTableModel tableModel;
 	private JPanel mainPanel, editPanel, transliterationPanel;
@@ -57,6 +62,7 @@ public class EditorPO extends JFrame {
 	private JLabel importProgressLabel;
 	private JLabel avgWordLengthLabel;
 	private JLabel totalLineCountLabel;
+	private JLabel analyticsStatusLabel;
 	private Documents doc;
 	private List<Pages> pages;
 	private int currentPage = 1;
@@ -69,8 +75,9 @@ public class EditorPO extends JFrame {
 	private boolean autoSaveRunning = false;
 	private Thread tfidfThread;
 	private int selectedDocFileId;
-	private Documents selectedDoc;
-	private double tfidfScore = 0;
+	private String selectedDocName;
+	private Double tfidfScore;
+	private boolean tfidfPending = false;
 	private Thread pklThread;
 	private Map<String, Double> pklResults = new HashMap<>();
 	private Thread pmiThread;
@@ -204,42 +211,35 @@ public class EditorPO extends JFrame {
 						openEditPanel(fileId);
 					}
 				} else if (event.getClickCount() == 1) {
+					selectedRow = fileTable.getSelectedRow();
+					if (selectedRow == -1) {
+						return;
+					}
+					int fileId = (int) tableModel.getValueAt(selectedRow, 0);
+					synchronized (EditorPO.this) {
+						selectedDocFileId = fileId;
+						selectedDocName = (String) tableModel.getValueAt(selectedRow, 1);
+						tfidfScore = null;
+						tfidfPending = true;
+					}
 					tfidfThread = new Thread(new Runnable() {
 
 						@Override
 						public void run() {
-							selectedDocFileId = (int) tableModel.getValueAt(selectedRow, 0);
-							selectedDoc = null;
-							selectedDoc = businessObj.getFile(selectedDocFileId);
-							pages = selectedDoc.getPages();
-							String selectedDocContent = null;
-							for (int i = 0; i < pages.size(); i++) {
-								selectedDocContent = pages.get(i).getPageContent();
-							}
-
-							List<String> unselectedDocsContent = new ArrayList<String>();
-							for (int row = 0; row < fileTable.getRowCount(); row++) {
-								int unselectedDocFileId = (int) tableModel.getValueAt(row, 0);
-								if (unselectedDocFileId != selectedDocFileId) {
-									Documents unselectedDoc = null;
-									unselectedDoc = businessObj.getFile(unselectedDocFileId);
-									pages = unselectedDoc.getPages();
-									String unselectedDocContent = null;
-									for (int i = 0; i < pages.size(); i++) {
-										unselectedDocContent = pages.get(i).getPageContent();
-									}
-									unselectedDocsContent.add(unselectedDocContent);
+							// Scored from the stored document frequencies, so no file is loaded
+							Double score = businessObj.performTFIDF(fileId);
+							synchronized (EditorPO.this) {
+								// A later click may have selected another file in the meantime
+								if (selectedDocFileId == fileId) {
+									tfidfScore = score;
+									tfidfPending = false;
 								}
 							}
-							tfidfScore = businessObj.performTFIDF(unselectedDocsContent, selectedDocContent);
 						}
 
 					});
 					tfidfThread.start();
 					tfidfButton.setEnabled(true);
-//					totalRows = fileTable.getRowCount();
-					selectedRow = fileTable.getSelectedRow();
-//					unselectedRows = totalRows - selectedRow;
 				}
 			}
 		});
@@ -252,7 +252,24 @@ public class EditorPO extends JFrame {
 					FileImporter fileImporter = new FileImporter(businessObj);
 					importProgressLabel.setText("Importing files, please wait...");
 					importProgressLabel.setVisible(true);
-					fileImporter.importFiles(e);
+					fileImporter.importFiles(e, new IImportProgressListener() {
+
+						@Override
+						public void onProgress(int completedFiles, int totalFiles, int failedFiles) {
+							SwingUtilities.invokeLater(() -> importProgressLabel.setText("Imported " + completedFiles
+									+ " of " + totalFiles + " files (" + failedFiles + " failed)"));
+						}
+
+						@Override
+						public void onSkipped(File file, String reason) {
+							logger.info(file.getName() + " skipped: " + reason);
+						}
+
+						@Override
+						public void onFailure(File file, String reason) {
+							logger.error(file.getName() + " failed to upload: " + reason);
+						}
+					});
 					refreshFileList();
 					importProgressLabel.setText("Import complete!");
 					try {
@@ -280,8 +297,11 @@ public class EditorPO extends JFrame {
 		searchbutton.addActionListener(e -> {
 			String keyword = searchfield.getText();
 			try {
-				List<String> resultFiles = businessObj.searchKeyword(keyword);
-				if (resultFiles.isEmpty()) {
+				List<SearchResult> resultFiles = businessObj.searchDocuments(keyword, SEARCH_RESULT_COUNT);
+				if (resultFiles == null) {
+					JOptionPane.showMessageDialog(this, "Search failed.");
+					logger.error("Search for '" + keyword + "' failed.");
+				} else if (resultFiles.isEmpty()) {
 					JOptionPane.showMessageDialog(this, "No files found while searching.");
 					logger.info("No files found while searching.");
 				} else {
@@ -294,8 +314,23 @@ public class EditorPO extends JFrame {
 		});
 
 		tfidfButton.addActionListener(e -> {
-			JOptionPane.showMessageDialog(null, "TF-IDF Score for '" + selectedDoc.getName() + "' is: " + tfidfScore);
-			logger.info("TF-IDF Score for '" + selectedDoc.getName() + "' is: " + tfidfScore);
+			String name;
+			Double score;
+			boolean pending;
+			synchronized (this) {
+				name = selectedDocName;
+				score = tfidfScore;
+				pending = tfidfPending;
+			}
+			if (pending) {
+				JOptionPane.showMessageDialog(null, "TF-IDF Score is still being calculated.");
+			} else if (score == null) {
+				JOptionPane.showMessageDialog(null, "TF-IDF Score for '" + name + "' could not be calculated.");
+				logger.error("TF-IDF Score for '" + name + "' could not be calculated.");
+			} else {
+				JOptionPane.showMessageDialog(null, "TF-IDF Score for '" + name + "' is: " + score);
+				logger.info("TF-IDF Score for '" + name + "' is: " + score);
+			}
 		});
 	}
 
@@ -319,6 +354,7 @@ public class EditorPO extends JFrame {
 		JButton pklButton = new JButton("Calculate PKL");
 		JButton stemmingButton = new JButton("Stem Content");
 		JButton segmentationButton = new JButton("Segment Content");
+		JButton similarFilesButton = new JButton("Similar Files");
 
 		saveFileButton.setFont(buttonFont);
         backButton.setFont(buttonFont);
@@ -330,6 +366,7 @@ public class EditorPO extends JFrame {
         pklButton.setFont(buttonFont);
         stemmingButton.setFont(buttonFont);
         segmentationButton.setFont(buttonFont);
+        similarFilesButton.setFont(buttonFont);
 
 		nextButton = new JButton("Next Page");
 		previousButton = new JButton("Previous Page");
@@ -341,10 +378,12 @@ public class EditorPO extends JFrame {
 		wordCountLabel = new JLabel("Words: 0");
 		avgWordLengthLabel = new JLabel("(Avg Word Length: 0)");
 		totalLineCountLabel = new JLabel("Lines: 0");
+		analyticsStatusLabel = new JLabel("");
         savingStatusLabel.setFont(buttonFont);
         totalLineCountLabel.setFont(buttonFont);
         wordCountLabel.setFont(buttonFont);
         avgWordLengthLabel.setFont(buttonFont);
+        analyticsStatusLabel.setFont(buttonFont);
 
 		JPanel editButtonPanel = new JPanel(new FlowLayout());
 		
@@ -374,6 +413,8 @@ public class EditorPO extends JFrame {
         stemmingButton.setForeground(Color.BLACK);
         segmentationButton.setBackground(Color.WHITE);
         segmentationButton.setForeground(Color.BLACK);
+        similarFilesButton.setBackground(Color.WHITE);
+        similarFilesButton.setForeground(Color.BLACK);
 
         for (Component button : editButtonPanel.getComponents()) {
             if (button instanceof JButton) {
@@ -389,6 +430,7 @@ public class EditorPO extends JFrame {
 		editButtonPanel.add(pageCountLabel);
 		editButtonPanel.add(nextButton);
 		editButtonPanel.add(savingStatusLabel);
+		editButtonPanel.add(analyticsStatusLabel);
 		editButtonPanel.add(saveFileButton);
 		editButtonPanel.add(backButton);
 		editButtonPanel.add(transliterateButton);
@@ -399,6 +441,7 @@ public class EditorPO extends JFrame {
 		editButtonPanel.add(extractRootsButton);
 		editButtonPanel.add(pmiButton);
 		editButtonPanel.add(pklButton);
+		editButtonPanel.add(similarFilesButton);
 
 		JPanel resultPanel = new JPanel(new BorderLayout());
 		JLabel resultLabel = new JLabel("Results:");
@@ -491,6 +534,28 @@ public class EditorPO extends JFrame {
 		pklButton.addActionListener(e -> {
 			displayAnalyticResults(pklResults, resultTableModel);
 		});
+
+		similarFilesButton.addActionListener(e -> {
+			int fileId = doc.getId();
+			similarFilesButton.setEnabled(false);
+			new Thread(() -> {
+				List<SimilarFile> similarFiles = businessObj.findSimilarFiles(fileId, SIMILAR_FILE_COUNT);
+				SwingUtilities.invokeLater(() -> {
+					similarFilesButton.setEnabled(true);
+					if (similarFiles == null) {
+						JOptionPane.showMessageDialog(this, "Similar files could not be found.");
+						logger.error("Similar files could not be found for file " + fileId);
+					} else if (similarFiles.isEmpty()) {
+						JOptionPane.showMessageDialog(this, "No similar files found.");
+					} else {
+						resultTableModel.setRowCount(0);
+						for (SimilarFile similarFile : similarFiles) {
+							resultTableModel.addRow(new Object[] { similarFile.getName(), similarFile.getSimilarity() });
+						}
+					}
+				});
+			}).start();
+		});
 	}
 
 	private void displayAnalyticResults(Map<String, Double> analyticsScore, DefaultTableModel resultTableModel) {
@@ -616,29 +681,11 @@ public class EditorPO extends JFrame {
 	}
 	
 	private double calculateAvgWordLength(String content) {
-	    if (content == null || content.isEmpty()) {
-	        return 0;
-	    }
-
-	    String[] words = content.split("\\s+");
-	    int totalLength = 0;
-	    int wordCount = 0;
-
-	    for (String word : words) {
-	        if (!word.isEmpty()) {
-	            totalLength += word.length();
-	            wordCount++;
-	        }
-	    }
-
-	    return wordCount == 0 ? 0 : (double) totalLength / wordCount;
+	    return businessObj.calculateAverageWordLength(content);
 	}
 	
 	private int calculateWordCount(String text) {
-	    if (text == null || text.trim().isEmpty()) {
-	        return 0;
-	    }
-	    return text.trim().split("\\s+").length;
+	    return businessObj.countWords(text);
 	}
 	
 	private int calculateLineCount(String content) {
@@ -907,12 +954,22 @@ public class EditorPO extends JFrame {
 
 	private void loadPage(int page) {
 		String pageContent = "";
+		String analysisStatus = "done";
 		for (int i = 0; i < pages.size(); i++) {
 			if (page == pages.get(i).getPageNumber()) {
 				pageContent = pages.get(i).getPageContent();
+				analysisStatus = pages.get(i).getAnalysisStatus();
 			}
 		}
 		contentTextArea.setText(pageContent);
+		// Imported pages can be edited while their stored analytics are still being computed
+		if ("pending".equals(analysisStatus)) {
+			analyticsStatusLabel.setText("Analytics pending");
+		} else if ("failed".equals(analysisStatus)) {
+			analyticsStatusLabel.setText("Analytics failed");
+		} else {
+			analyticsStatusLabel.setText("");
+		}
 
 		pageCountLabel.setText("Page " + (page) + " of " + totalPageCount);
 
@@ -2,6 +2,10 @@ package pl;
 
 import java.awt.event.ActionEvent;
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
@@ -10,10 +14,14 @@ import javax.swing.UIManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import bll.BulkImportService;
 import bll.IEditorBO;
+import bll.IImportProgressListener;
+import dto.ImportSummary;
 
 public class FileImporter {
 	private static final Logger logger = LogManager.getLogger(EditorPO.class);
+	private static final int MAX_FILES_SHOWN = 10;
     private IEditorBO businessObj;
 
     public FileImporter(IEditorBO businessObj) {
@@ -27,21 +35,55 @@ public class FileImporter {
     }
 
     public void importFiles(ActionEvent e) {
+        importFiles(e, null);
+    }
+
+    public void importFiles(ActionEvent e, IImportProgressListener listener) {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setMultiSelectionEnabled(true);
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
         int result = fileChooser.showOpenDialog(null);
 
         if (result == JFileChooser.APPROVE_OPTION) {
             File[] selectedFiles = fileChooser.getSelectedFiles();
             if (selectedFiles.length > 0) {
-                for (File selectedFile : selectedFiles) {
-                    String fileName = selectedFile.getName();
-                    boolean isImport = businessObj.importTextFiles(selectedFile, fileName);
-                    JOptionPane.showMessageDialog(null,
-                            isImport ? fileName + " uploaded successfully!" : fileName + " failed to upload!");
-                    logger.info(isImport ? fileName + " uploaded successfully!" : fileName + " failed to upload!");
+                try {
+                    BulkImportService importService = new BulkImportService(businessObj);
+                    List<File> files = importService.collectFiles(Arrays.asList(selectedFiles));
+                    ImportSummary summary = importService.importFiles(files, listener);
+                    showSummary(summary);
+                } catch (IOException exception) {
+                    JOptionPane.showMessageDialog(null, "Could not read the selected files: " + exception.getMessage());
+                    logger.error(exception.getMessage());
                 }
             }
         }
     }
+
+    private void showSummary(ImportSummary summary) {
+        StringBuilder message = new StringBuilder();
+        message.append(summary.getImportedFiles()).append(" of ").append(summary.getTotalFiles())
+                .append(" files uploaded successfully!");
+        if (summary.getSkippedFiles() > 0) {
+            message.append("\n").append(summary.getSkippedFiles()).append(" skipped as already stored:");
+            appendFiles(message, summary.getSkipped());
+        }
+        if (summary.getFailedFiles() > 0) {
+            message.append("\n").append(summary.getFailedFiles()).append(" failed to upload:");
+            appendFiles(message, summary.getFailures());
+        }
+        JOptionPane.showMessageDialog(null, message.toString());
+        logger.info(summary.getImportedFiles() + " of " + summary.getTotalFiles() + " files uploaded successfully!");
+    }
+
+    private void appendFiles(StringBuilder message, Map<String, String> reasons) {
+        int shown = 0;
+        for (Map.Entry<String, String> entry : reasons.entrySet()) {
+            if (shown++ == MAX_FILES_SHOWN) {
+                message.append("\n...");
+                break;
+            }
+            message.append("\n").append(new File(entry.getKey()).getName()).append(" - ").append(entry.getValue());
+        }
+    }
 }